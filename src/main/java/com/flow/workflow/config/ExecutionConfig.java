@@ -0,0 +1,29 @@
+package com.flow.workflow.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutionConfig {
+
+    /**
+     * Bounded worker pool for asynchronously submitted runs.
+     * Once all workers are busy and the queue is full, submissions are rejected
+     * (the API answers 429) instead of piling up without limit.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor runExecutor(@Value("${workflow.execution.pool-size:8}") int poolSize,
+                                              @Value("${workflow.execution.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor e = new ThreadPoolTaskExecutor();
+        e.setCorePoolSize(poolSize);
+        e.setMaxPoolSize(poolSize);
+        e.setQueueCapacity(queueCapacity);
+        e.setThreadNamePrefix("wf-run-");
+        e.setWaitForTasksToCompleteOnShutdown(true);
+        e.setAwaitTerminationSeconds(30);
+        e.initialize();
+        return e;
+    }
+}
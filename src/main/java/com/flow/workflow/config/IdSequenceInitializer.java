@@ -0,0 +1,44 @@
+package com.flow.workflow.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * workflow_run_log, workflows and nodes ids used to come from AUTO_INCREMENT. The table-backed generators that
+ * replaced it start at 1, so on databases with existing rows move each one past the current max id before
+ * anything inserts.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class IdSequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    // sequence table -> table whose ids it generates
+    private static final String[][] SEQUENCES = {
+            {"workflow_run_log_seq", "workflow_run_log"},
+            {"workflows_seq", "workflows"},
+            {"nodes_seq", "nodes"},
+    };
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @PostConstruct
+    public void alignSequences() {
+        for (String[] s : SEQUENCES) {
+            try {
+                int updated = jdbc.update("update " + s[0] + " set next_val = "
+                        + "greatest(next_val, (select coalesce(max(id), 0) + 1 from " + s[1] + "))");
+                if (updated == 0) log.warn("{} has no row; {} ids are not aligned", s[0], s[1]);
+            } catch (Exception e) {
+                log.warn("Could not align {} with existing {} rows: {}", s[0], s[1], e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.flow.workflow.config;
+
+import com.flow.workflow.model.Node;
+import com.flow.workflow.repository.NodeRepository;
+import com.flow.workflow.util.ConfigMasker;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Node configs are masked on write for the workflow list. Nodes written before that, or masked under a
+ * different {@code workflow.masking.sensitive-keys}, are masked again here at startup, a batch per transaction.
+ * Until then the list masks them per read, so nothing unmasked is ever served.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class MaskedConfigBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(MaskedConfigBackfill.class);
+
+    private static final int BATCH = 500;
+
+    @Autowired
+    private NodeRepository nodeRepo;
+
+    @Autowired
+    private ConfigMasker masker;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void remaskStaleNodes() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        String version = masker.version();
+        long total = 0;
+        try {
+            while (true) {
+                // stamped rows drop out of the query, so the first page is always the next batch
+                Integer n = tx.execute(s -> {
+                    List<Node> nodes = nodeRepo.findMaskedWithOther(version, PageRequest.of(0, BATCH));
+                    nodes.forEach(masker::stamp);
+                    return nodes.size();
+                });
+                if (n == null || n == 0) break;
+                total += n;
+                if (n < BATCH) break;
+            }
+            if (total > 0) log.info("Masked the configs of {} nodes for sensitive key set {}", total, version);
+        } catch (Exception e) {
+            log.warn("Could not mask stored node configs ({} done): {}", total, e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.flow.workflow.controller;
 import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.flow.workflow.service.RunQueueFullException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -19,6 +21,22 @@ public class RestExceptionHandler {
 
     private final Logger log = LoggerFactory.getLogger(RestExceptionHandler.class);
 
+    /**
+     * Bounded run queue is saturated — tell the client to back off instead of failing with 500.
+     */
+    @ExceptionHandler(RunQueueFullException.class)
+    public ResponseEntity<?> handleRunQueueFull(HttpServletRequest request, RunQueueFullException ex) {
+        log.warn("Rejected run submission for {}: {}", request.getRequestURI(), ex.getMessage());
+        Map<String, Object> body = new java.util.HashMap<>();
+        body.put("message", ex.getMessage());
+        body.put("error", ex.getClass().getSimpleName());
+        body.put("path", request.getRequestURI());
+        body.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(body);
+    }
+
     /**
      * Generic exception handler for application endpoints.
      * For OpenAPI/swagger/actuator paths we rethrow so the framework can serve the static resources / docs.
@@ -0,0 +1,132 @@
+package com.flow.workflow.controller;
+
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.http.OutboundHttpClient;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import com.flow.workflow.security.JwtUtil;
+import com.flow.workflow.service.CustomUserDetailsService;
+import com.flow.workflow.service.RetentionService;
+import com.flow.workflow.service.RunQueueService;
+import com.flow.workflow.service.RunSubmissionService;
+import com.flow.workflow.service.ScheduleService;
+import com.flow.workflow.service.WebhookIngestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational views for admins (pool usage and similar runtime stats).
+ */
+@RestController
+@RequestMapping("/system")
+public class SystemController {
+
+    @Autowired
+    private NodeExecutorRegistry executorRegistry;
+
+    @Autowired
+    private OutboundHttpClient httpClient;
+
+    @Autowired
+    private RetentionService retentionService;
+
+    @Autowired
+    private WorkflowDefinitionCache definitionCache;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private RunQueueService runQueue;
+
+    @Autowired
+    private RunSubmissionService runSubmissionService;
+
+    @Autowired
+    private WebhookIngestService webhookIngest;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private CustomUserDetailsService userDetailsService;
+
+    @Autowired
+    @Qualifier("runExecutor")
+    private ThreadPoolTaskExecutor runExecutor;
+
+    @GetMapping("/executors")
+    public Map<String, Object> executors() {
+        var pool = runExecutor.getThreadPoolExecutor();
+        Map<String, Object> runPool = new LinkedHashMap<>();
+        runPool.put("poolSize", pool.getMaximumPoolSize());
+        runPool.put("active", pool.getActiveCount());
+        runPool.put("queued", pool.getQueue().size());
+        runPool.put("queueRemaining", pool.getQueue().remainingCapacity());
+        runPool.put("completed", pool.getCompletedTaskCount());
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("runPool", runPool);
+        m.put("nodeTypes", executorRegistry.saturation());
+        return m;
+    }
+
+    @GetMapping("/http-client")
+    public Map<String, Object> httpClient() {
+        return httpClient.metrics();
+    }
+
+    @GetMapping("/definition-cache")
+    public Map<String, Object> definitionCache() {
+        return definitionCache.metrics();
+    }
+
+    @GetMapping("/run-queue")
+    public Map<String, Object> runQueue() {
+        return runQueue.metrics();
+    }
+
+    @GetMapping("/concurrency")
+    public Map<String, Object> concurrency() {
+        return runSubmissionService.metrics();
+    }
+
+    @GetMapping("/webhooks")
+    public Map<String, Object> webhooks() {
+        return webhookIngest.metrics();
+    }
+
+    @GetMapping("/scheduler")
+    public Map<String, Object> scheduler() {
+        return scheduleService.metrics();
+    }
+
+    @GetMapping("/auth-cache")
+    public Map<String, Object> authCache() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("tokens", jwtUtil.cacheMetrics());
+        m.put("users", userDetailsService.cacheMetrics());
+        return m;
+    }
+
+    @GetMapping("/retention")
+    public Map<String, Object> retention() {
+        return retentionService.stats();
+    }
+
+    // run a retention pass now instead of waiting for the schedule
+    @PostMapping("/retention/purge")
+    public Map<String, Object> purgeNow() {
+        long purged = retentionService.purgeAll();
+        Map<String, Object> m = new LinkedHashMap<>(retentionService.stats());
+        m.put("purgedThisPass", purged);
+        return m;
+    }
+}
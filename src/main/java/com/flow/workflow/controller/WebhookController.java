@@ -1,8 +1,7 @@
 package com.flow.workflow.controller;
 
-import com.flow.workflow.model.Workflow;
-import com.flow.workflow.repository.WorkflowRepository;
-import com.flow.workflow.service.WorkflowExecutionService;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import com.flow.workflow.service.WebhookIngestService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -11,33 +10,35 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/webhook")
 public class WebhookController {
 
+    // longer keys are rejected rather than kept in the seen-set
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     @Autowired
-    private WorkflowRepository workflowRepo;
+    private WorkflowDefinitionCache definitions;
 
     @Autowired
-    private WorkflowExecutionService executionService;
+    private WebhookIngestService ingest;
 
     /**
      * Simple webhook trigger: POST /webhook/{workflowId}?secret=xxx
      * (You should validate secret from workflow config in prod)
+     * A repeated {@code Idempotency-Key} answers 200 without triggering again; a full ingest buffer answers 429.
      */
     @PostMapping("/{workflowId}")
     public ResponseEntity<String> trigger(@PathVariable Long workflowId,
-                                          @RequestParam(value = "secret", required = false) String secret) {
-        Workflow w = workflowRepo.findById(workflowId).orElse(null);
-        if (w == null) return ResponseEntity.notFound().build();
+                                          @RequestParam(value = "secret", required = false) String secret,
+                                          @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (definitions.get(workflowId).isEmpty()) return ResponseEntity.notFound().build();
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().body("Idempotency-Key is longer than " + MAX_IDEMPOTENCY_KEY_LENGTH);
+        }
 
         // optional: validate secret against stored workflow.secret (if present)
-        // For now just start execution in background thread and return 202
-        new Thread(() -> {
-            try {
-                executionService.executeWorkflow(workflowId);
-            } catch (Exception e) {
-                // log if you have logger
-                System.err.println("Webhook triggered workflow failed: " + e.getMessage());
-            }
-        }).start();
-
-        return ResponseEntity.accepted().body("Triggered");
+        // buffered and queued in batches; a full buffer answers 429 (RunQueueFullException)
+        return switch (ingest.accept(workflowId, idempotencyKey)) {
+            case DUPLICATE -> ResponseEntity.ok("Duplicate: already triggered with this Idempotency-Key");
+            case COALESCED -> ResponseEntity.accepted().body("Coalesced with a trigger accepted just before");
+            default -> ResponseEntity.accepted().body("Triggered");
+        };
     }
 }
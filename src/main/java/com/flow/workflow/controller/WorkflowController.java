@@ -3,23 +3,50 @@ package com.flow.workflow.controller;
 import com.flow.workflow.dto.*;
 import com.flow.workflow.model.*;
 import com.flow.workflow.repository.*;
+import com.flow.workflow.plan.WorkflowDefinition;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import com.flow.workflow.plan.WorkflowPlanCompiler;
+import com.flow.workflow.service.RunSubmissionService;
+import com.flow.workflow.service.RunExportService;
+import com.flow.workflow.service.RunStatsService;
+import com.flow.workflow.service.ScheduleService;
 import com.flow.workflow.service.WorkflowExecutionService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
+import com.flow.workflow.service.WorkflowTransferService;
+import com.flow.workflow.storage.BlobStore;
+import com.flow.workflow.storage.RunArchive;
+import com.flow.workflow.storage.SpillStore;
+import com.flow.workflow.util.ConfigMasker;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
-
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/workflow")
@@ -40,8 +67,39 @@ public class WorkflowController {
     @Autowired
     private WorkflowExecutionService executionService;
 
-    // reuse an ObjectMapper for JSON handling
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private RunSubmissionService runSubmissionService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private WorkflowDefinitionCache definitions;
+
+    @Autowired
+    private SpillStore spillStore;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private RunArchive runArchive;
+
+    @Autowired
+    private RunStatsService runStatsService;
+
+    @Autowired
+    private ConfigMasker configMasker;
+
+    @Autowired
+    private RunExportService runExportService;
+
+    @Autowired
+    private WorkflowTransferService transferService;
+
+    private static final int MAX_PAGE_SIZE = 500;
+    // keeps the IN list of the node query bounded when listing unpaged
+    private static final int NODE_QUERY_CHUNK = 1000;
 
     // -------------------------
     // Create / Publish
@@ -51,6 +109,21 @@ public class WorkflowController {
         Workflow workflow = new Workflow();
         workflow.setWorkflowName(request.getName());
         workflow.setStatus(WorkflowStatus.DRAFT);
+        workflow.setExecutionMode(request.getExecutionMode() == null ? ExecutionMode.LINEAR : request.getExecutionMode());
+        workflow.setRetentionMaxRuns(request.getRetentionMaxRuns());
+        workflow.setRetentionDays(request.getRetentionDays());
+        try {
+            scheduleService.validateCron(request.getCron());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cron: " + e.getMessage());
+        }
+        workflow.setCron(request.getCron());
+        workflow.setMisfirePolicy(request.getMisfirePolicy());
+        if (request.getMaxConcurrentRuns() != null && request.getMaxConcurrentRuns() < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxConcurrentRuns must be >= 1");
+        }
+        workflow.setMaxConcurrentRuns(request.getMaxConcurrentRuns());
+        workflow.setOverlapPolicy(request.getOverlapPolicy());
 
         Workflow savedWorkflow = workflowRepo.save(workflow);
 
@@ -60,12 +133,20 @@ public class WorkflowController {
                 node.setType(nodeRequest.getType());
                 // ensure config is stored as string (your Node model may vary)
                 node.setConfig(nodeRequest.getConfig());
+                configMasker.stamp(node);
                 node.setOrderIndex(nodeRequest.getOrderIndex());
+                if (nodeRequest.getDependsOn() != null && !nodeRequest.getDependsOn().isEmpty()) {
+                    node.setDependsOn(nodeRequest.getDependsOn().stream()
+                            .map(String::valueOf)
+                            .collect(Collectors.joining(",")));
+                }
                 node.setWorkflow(savedWorkflow);
                 nodeRepo.save(node);
             }
         }
 
+        definitions.invalidate(savedWorkflow.getId());
+
         // reload workflow with nodes to return a fully populated object
         Workflow full = workflowRepo.findById(savedWorkflow.getId())
                 .orElse(savedWorkflow);
@@ -79,31 +160,92 @@ public class WorkflowController {
                 .orElseThrow(() -> new RuntimeException("Workflow not found"));
         workflow.setStatus(WorkflowStatus.PUBLISHED);
         workflowRepo.save(workflow);
+        definitions.invalidate(id);
         return "Workflow published successfully!";
     }
 
+    /**
+     * Bulk import: the body is a JSON array of {@link WorkflowRequest} documents, read as a stream. Every item is
+     * validated first; valid ones are inserted in batched chunks. Returns per-item results (CREATED with the new id,
+     * INVALID or FAILED with the reason) in request order. A malformed array, or one over the item limit, is a 400
+     * and creates nothing.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> importWorkflows(HttpServletRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(transferService.importWorkflows(request.getInputStream()));
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /** Bulk export of all workflow definitions (unmasked) as a JSON array that {@code /import} accepts. */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportWorkflows(
+            @RequestParam(value = "pageSize", required = false, defaultValue = "500") int pageSize) {
+        int size = Math.min(Math.max(pageSize, 1), NODE_QUERY_CHUNK);
+        StreamingResponseBody body = out -> transferService.exportWorkflows(out, size);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"workflows.json\"")
+                .body(body);
+    }
+
     // -------------------------
     // List / detail (masked by default)
     // -------------------------
+    /**
+     * List workflows with their nodes. Unpaged by default (as before); pass {@code page}/{@code size} to page and
+     * {@code status}/{@code scheduled} to filter. Loads the workflows in one query; nodes come from the definition
+     * cache, and those of uncached workflows from one more query (per 1000 workflows). Paged responses carry
+     * X-Total-Count.
+     */
     @GetMapping("/all")
-    public List<WorkflowResponse> getAllWorkflows(
-            @RequestParam(value = "reveal", required = false, defaultValue = "false") boolean reveal) {
+    public ResponseEntity<List<WorkflowResponse>> getAllWorkflows(
+            @RequestParam(value = "reveal", required = false, defaultValue = "false") boolean reveal,
+            @RequestParam(value = "status", required = false) WorkflowStatus status,
+            @RequestParam(value = "scheduled", required = false) Boolean scheduled,
+            @RequestParam(value = "page", required = false) Integer page,
+            @RequestParam(value = "size", required = false) Integer size) {
 
         boolean revealSecrets = reveal && isAdmin();
-        List<Workflow> all = workflowRepo.findAll();
-        return all.stream().map(w -> {
-            WorkflowResponse resp = new WorkflowResponse();
-            resp.setId(w.getId());
-            resp.setWorkflowName(w.getWorkflowName());
-            resp.setScheduled(w.getScheduled());
-            resp.setLastRunAt(w.getLastRunAt());
-            resp.setStatus(w.getStatus());
-
-            List<NodeResponse> nodes = (w.getNodes() == null) ? java.util.List.of() :
-                    w.getNodes().stream().map(n -> mapNodeToResponse(n, revealSecrets)).collect(Collectors.toList());
-            resp.setNodes(nodes);
-            return resp;
-        }).collect(Collectors.toList());
+        boolean paged = page != null || size != null;
+        Sort byId = Sort.by("id");
+        Pageable pageable = paged
+                ? PageRequest.of(page == null ? 0 : Math.max(page, 0),
+                        Math.min(Math.max(size == null ? 50 : size, 1), MAX_PAGE_SIZE), byId)
+                : Pageable.unpaged(byId);
+        Page<Workflow> workflows = workflowRepo.findPage(status, scheduled, pageable);
+
+        Map<Long, List<NodeResponse>> nodesByWorkflow = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (Workflow w : workflows.getContent()) {
+            // cached definitions already hold the nodes; only the rest are queried
+            WorkflowDefinition cached = definitions.getIfPresent(w.getId());
+            if (cached == null) {
+                ids.add(w.getId());
+            } else {
+                nodesByWorkflow.put(w.getId(), cached.getNodes().stream()
+                        .map(n -> mapNodeToResponse(n, revealSecrets))
+                        .collect(Collectors.toList()));
+            }
+        }
+        for (int from = 0; from < ids.size(); from += NODE_QUERY_CHUNK) {
+            List<Long> chunk = ids.subList(from, Math.min(from + NODE_QUERY_CHUNK, ids.size()));
+            for (NodeRepository.NodeSummary n : nodeRepo.findSummariesByWorkflowIds(chunk)) {
+                nodesByWorkflow.computeIfAbsent(n.getWorkflowId(), k -> new ArrayList<>())
+                        .add(mapNodeToResponse(n.getId(), n.getType(), n.getOrderIndex(), n.getDependsOn(),
+                                revealSecrets ? configMasker.reveal(n.getConfig())
+                                        : configMasker.masked(n.getConfig(), n.getMaskedConfig(), n.getMaskedWith())));
+            }
+        }
+
+        List<WorkflowResponse> body = workflows.getContent().stream()
+                .map(w -> toWorkflowResponse(w, nodesByWorkflow.getOrDefault(w.getId(), List.of())))
+                .collect(Collectors.toList());
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (paged) ok.header("X-Total-Count", String.valueOf(workflows.getTotalElements()));
+        return ok.body(body);
     }
 
     @GetMapping("/{id}")
@@ -112,16 +254,41 @@ public class WorkflowController {
             @RequestParam(value = "reveal", required = false, defaultValue = "false") boolean reveal) {
 
         boolean revealSecrets = reveal && isAdmin();
-        Workflow w = workflowRepo.findById(id).orElseThrow(() -> new RuntimeException("Workflow not found"));
+        WorkflowDefinition w = definitions.get(id).orElseThrow(() -> new RuntimeException("Workflow not found"));
+        List<NodeResponse> nodes = w.getNodes().stream()
+                .map(n -> mapNodeToResponse(n, revealSecrets))
+                .collect(Collectors.toList());
         WorkflowResponse resp = new WorkflowResponse();
         resp.setId(w.getId());
         resp.setWorkflowName(w.getWorkflowName());
         resp.setScheduled(w.getScheduled());
+        resp.setCron(w.getCron());
+        resp.setMisfirePolicy(w.getMisfirePolicy());
         resp.setLastRunAt(w.getLastRunAt());
         resp.setStatus(w.getStatus());
+        resp.setExecutionMode(w.getExecutionMode());
+        resp.setRetentionMaxRuns(w.getRetentionMaxRuns());
+        resp.setRetentionDays(w.getRetentionDays());
+        resp.setMaxConcurrentRuns(w.getMaxConcurrentRuns());
+        resp.setOverlapPolicy(w.getOverlapPolicy());
+        resp.setNodes(nodes);
+        return resp;
+    }
 
-        List<NodeResponse> nodes = (w.getNodes() == null) ? java.util.List.of() :
-                w.getNodes().stream().map(n -> mapNodeToResponse(n, revealSecrets)).collect(Collectors.toList());
+    private WorkflowResponse toWorkflowResponse(Workflow w, List<NodeResponse> nodes) {
+        WorkflowResponse resp = new WorkflowResponse();
+        resp.setId(w.getId());
+        resp.setWorkflowName(w.getWorkflowName());
+        resp.setScheduled(w.getScheduled());
+        resp.setCron(w.getCron());
+        resp.setMisfirePolicy(w.getMisfirePolicy());
+        resp.setLastRunAt(w.getLastRunAt());
+        resp.setStatus(w.getStatus());
+        resp.setExecutionMode(w.getExecutionMode());
+        resp.setRetentionMaxRuns(w.getRetentionMaxRuns());
+        resp.setRetentionDays(w.getRetentionDays());
+        resp.setMaxConcurrentRuns(w.getMaxConcurrentRuns());
+        resp.setOverlapPolicy(w.getOverlapPolicy());
         resp.setNodes(nodes);
         return resp;
     }
@@ -129,18 +296,40 @@ public class WorkflowController {
     // -------------------------
     // Execution endpoints
     // -------------------------
+    /**
+     * Execute a workflow. By default the run executes on the request thread and the final result is returned.
+     * With {@code async=true} the run is put on the durable run queue and 202 is returned with the run id
+     * (poll {@code GET /workflow/runs/{runId}}); a full queue answers 429.
+     * <p>
+     * A workflow with {@code maxConcurrentRuns} applies its overlap policy first: a skipped trigger answers 409, a
+     * coalesced one 202 without a run, and a synchronous run that finds the workflow at its limit is queued (202).
+     */
     @PostMapping("/{id}/execute")
-    public WorkflowRunResultDto executeWorkflow(@PathVariable Long id) {
-        WorkflowRun run = executionService.executeWorkflow(id);
+    public ResponseEntity<WorkflowRunResultDto> executeWorkflow(
+            @PathVariable Long id,
+            @RequestParam(value = "async", required = false, defaultValue = "false") boolean async) {
+        switch (runSubmissionService.admit(id)) {
+            case SKIPPED -> {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(new WorkflowRunResultDto(null, id, "SKIPPED",
+                        null, null, "Workflow is at its limit of concurrent runs, trigger skipped"));
+            }
+            case COALESCED -> {
+                return ResponseEntity.accepted().body(new WorkflowRunResultDto(null, id, "COALESCED",
+                        null, null, "Trigger folded into the run already queued"));
+            }
+            default -> { }
+        }
+        if (async) {
+            WorkflowRun run = runSubmissionService.submit(id);
+            return ResponseEntity.accepted().body(toResultDto(run, "Workflow queued as run " + run.getId()));
+        }
 
-        return new WorkflowRunResultDto(
-                run.getId(),
-                run.getWorkflow().getId(),
-                run.getStatus().name(),
-                run.getStartedAt() != null ? run.getStartedAt().toString() : null,
-                run.getEndedAt() != null ? run.getEndedAt().toString() : null,
-                "Workflow executed with status: " + run.getStatus().name()
-        );
+        WorkflowRun run = runSubmissionService.execute(id);
+        if (run.getStatus() == WorkflowStatus.QUEUED) {
+            return ResponseEntity.accepted().body(toResultDto(run,
+                    "Workflow is at its limit of concurrent runs, queued as run " + run.getId()));
+        }
+        return ResponseEntity.ok(toResultDto(run, "Workflow executed with status: " + run.getStatus().name()));
     }
 
     @GetMapping("/{id}/runs")
@@ -154,6 +343,8 @@ public class WorkflowController {
         w.setScheduled(false); // stop automatic scheduling
         w.setStatus(WorkflowStatus.DRAFT); // optional: mark "paused"
         workflowRepo.saveAndFlush(w);
+        definitions.invalidate(id);
+        scheduleService.cancel(id);
         return ResponseEntity.ok("Workflow paused");
     }
 
@@ -162,7 +353,8 @@ public class WorkflowController {
         Workflow w = workflowRepo.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
         w.setScheduled(true);
         workflowRepo.saveAndFlush(w);
-        // schedule service will pick it up (see schedule service below)
+        definitions.invalidate(id);
+        scheduleService.scheduleWorkflow(w);
         return ResponseEntity.ok("Workflow resumed");
     }
 
@@ -172,15 +364,115 @@ public class WorkflowController {
             // optionally cascade delete nodes and runs via JPA cascade config
             workflowRepo.delete(w);
         });
+        definitions.invalidate(id);
+        scheduleService.cancel(id);
+        runStatsService.deleteStats(id);
         return ResponseEntity.ok("Workflow deleted (if existed)");
     }
 
+    /**
+     * Schedules the workflow. {@code cron} (Spring 6-field, e.g. {@code 0 0 * * * *}) and {@code misfirePolicy}
+     * replace the stored ones when given; otherwise the stored values or the {@code workflow.schedule.*} defaults apply.
+     */
     @PostMapping("/{id}/schedule/enable")
-    public ResponseEntity<String> enableSchedule(@PathVariable Long id) {
+    public ResponseEntity<String> enableSchedule(@PathVariable Long id,
+                                                 @RequestParam(required = false) String cron,
+                                                 @RequestParam(required = false) MisfirePolicy misfirePolicy) {
         Workflow w = workflowRepo.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
+        if (cron != null) {
+            try {
+                scheduleService.validateCron(cron);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body("Invalid cron: " + e.getMessage());
+            }
+            w.setCron(cron.isBlank() ? null : cron.trim());
+        }
+        if (misfirePolicy != null) w.setMisfirePolicy(misfirePolicy);
         w.setScheduled(true);
         workflowRepo.save(w);
-        return ResponseEntity.ok("Scheduling enabled (runs ~every 60s).");
+        definitions.invalidate(id);
+        scheduleService.scheduleWorkflow(w);
+        return ResponseEntity.ok("Scheduling enabled.");
+    }
+
+    @PutMapping("/{id}/retention")
+    public ResponseEntity<String> setRetention(@PathVariable Long id, @RequestBody RetentionRequest request) {
+        Workflow w = workflowRepo.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
+        if ((request.getMaxRuns() != null && request.getMaxRuns() < 0) || (request.getDays() != null && request.getDays() < 0)) {
+            return ResponseEntity.badRequest().body("maxRuns and days must be >= 0");
+        }
+        w.setRetentionMaxRuns(request.getMaxRuns());
+        w.setRetentionDays(request.getDays());
+        workflowRepo.save(w);
+        definitions.invalidate(id);
+        return ResponseEntity.ok("Retention updated.");
+    }
+
+    @PutMapping("/{id}/concurrency")
+    public ResponseEntity<String> setConcurrency(@PathVariable Long id, @RequestBody ConcurrencyRequest request) {
+        Workflow w = workflowRepo.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
+        if (request.getMaxConcurrentRuns() != null && request.getMaxConcurrentRuns() < 1) {
+            return ResponseEntity.badRequest().body("maxConcurrentRuns must be >= 1");
+        }
+        w.setMaxConcurrentRuns(request.getMaxConcurrentRuns());
+        w.setOverlapPolicy(request.getOverlapPolicy());
+        workflowRepo.save(w);
+        definitions.invalidate(id);
+        return ResponseEntity.ok("Concurrency updated.");
+    }
+
+    /**
+     * Runs purged by retention (with archiving enabled), as NDJSON — one run with its logs per line.
+     * {@code from}/{@code to} bound startedAt (ISO local date-time); {@code runId} picks a single run.
+     */
+    @GetMapping(value = "/{id}/runs/archived", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> getArchivedRuns(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) Long runId) {
+        StreamingResponseBody body = out -> runArchive.query(id, from, to, runId, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+    }
+
+    /**
+     * Run statistics maintained as runs finish: counts by status, last success/failure and latency
+     * quantiles, for whole runs and per node type. Runs purged by retention stay counted.
+     */
+    @GetMapping("/{id}/stats")
+    public WorkflowStatsDto getStats(@PathVariable Long id) {
+        if (definitions.get(id).isEmpty()) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Workflow not found");
+        return runStatsService.getStats(id);
+    }
+
+    /**
+     * Export runs with their logs as NDJSON, one run per line, streamed from a DB cursor (constant memory).
+     * {@code from}/{@code to} bound startedAt (ISO local date-time, to exclusive); {@code gzip=true} returns a
+     * gzip-compressed file instead.
+     */
+    @GetMapping("/{id}/runs/export")
+    public ResponseEntity<StreamingResponseBody> exportRuns(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(value = "gzip", required = false, defaultValue = "false") boolean gzip) {
+        if (definitions.get(id).isEmpty()) throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Workflow not found");
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream zipped = new GZIPOutputStream(out, 64 * 1024)) {
+                    runExportService.export(id, from, to, zipped);
+                }
+            } else {
+                runExportService.export(id, from, to, out);
+            }
+        };
+        if (!gzip) {
+            return ResponseEntity.ok().contentType(MediaType.parseMediaType("application/x-ndjson")).body(body);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"workflow-" + id + "-runs.ndjson.gz\"")
+                .body(body);
     }
 
     @PostMapping("/{id}/schedule/disable")
@@ -188,9 +480,56 @@ public class WorkflowController {
         Workflow w = workflowRepo.findById(id).orElseThrow(() -> new RuntimeException("Not found"));
         w.setScheduled(false);
         workflowRepo.save(w);
+        definitions.invalidate(id);
+        scheduleService.cancel(id);
         return "Scheduling disabled.";
     }
 
+    /**
+     * Run history of a workflow, newest first, as lightweight summaries. Keyset-paged on (startedAt, id):
+     * every page is one index range scan, so deep pages cost the same as the first.
+     */
+    @GetMapping("/{id}/runs/history")
+    public RunPageDto getRunHistory(@PathVariable Long id,
+                                    @RequestParam(required = false) String cursor,
+                                    @RequestParam(defaultValue = "50") int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        // fetch one extra row to know whether there is a next page
+        Pageable window = PageRequest.ofSize(size + 1);
+        List<RunDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = runRepo.findRunHistory(id, window);
+        } else {
+            String[] key = decodeCursor(cursor);
+            rows = runRepo.findRunHistoryBefore(id, LocalDateTime.parse(key[0]), Long.parseLong(key[1]), window);
+        }
+
+        String next = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            RunDto last = rows.get(size - 1);
+            next = encodeCursor(last.getStartedAt(), last.getId());
+        }
+        return new RunPageDto(rows, next);
+    }
+
+    private static String encodeCursor(LocalDateTime startedAt, Long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((startedAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] key = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            LocalDateTime.parse(key[0]);
+            Long.parseLong(key[1]);
+            return key;
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+    }
+
+    // OFFSET paging; prefer /{id}/runs/history for deep pages
     @GetMapping("/{id}/runs/paged")
     public Page<WorkflowRun> getWorkflowRunsPaged(@PathVariable Long id,
                                                   @RequestParam(defaultValue = "0") int page,
@@ -213,11 +552,13 @@ public class WorkflowController {
                     List<WorkflowRunLogDto> logs = logRepo.findByRun_IdOrderByStartedAtAsc(runId)
                             .stream()
                             .map(l -> new WorkflowRunLogDto(l.getId(), l.getNodeId(), l.getNodeType(),
-                                    l.getStatus().name(), l.getOutput(), l.getError(), l.getStartedAt(), l.getEndedAt()))
+                                    l.getStatus().name(), l.getOutput(), l.getError(), l.getOutputRef(),
+                                    l.getStartedAt(), l.getEndedAt()))
                             .toList();
 
                     WorkflowRunDto dto = new WorkflowRunDto(run.getId(), run.getWorkflow().getId(),
-                            run.getStatus().name(), run.getStartedAt(), run.getEndedAt(), logs);
+                            run.getStatus().name(), run.getStartedAt(), run.getExecutionStartedAt(), run.getEndedAt(),
+                            logs);
                     return ResponseEntity.ok(dto);
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -229,6 +570,30 @@ public class WorkflowController {
         return logRepo.findByRun_IdOrderByStartedAtAsc(runId);
     }
 
+    // full output of a node whose output was spilled to disk or tiered to the blob store (the log keeps a preview)
+    @GetMapping("/runs/{runId}/logs/{logId}/output")
+    public ResponseEntity<?> getSpilledOutput(@PathVariable Long runId, @PathVariable Long logId) {
+        WorkflowRunLog l = logRepo.findById(logId)
+                .filter(log -> log.getRun() != null && runId.equals(log.getRun().getId()))
+                .orElse(null);
+        if (l == null) return ResponseEntity.notFound().build();
+        if (BlobStore.isBlobRef(l.getOutputRef())) {
+            if (blobStore.resolve(l.getOutputRef()) == null) return ResponseEntity.notFound().build();
+            String ref = l.getOutputRef();
+            StreamingResponseBody body = out -> {
+                try (InputStream in = blobStore.open(ref)) {
+                    if (in != null) in.transferTo(out);
+                }
+            };
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_OCTET_STREAM).body(body);
+        }
+        Path path = spillStore.resolve(l.getOutputRef());
+        if (path == null) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(new FileSystemResource(path));
+    }
+
     // -------------------------
     // Debug helper (optional)
     // -------------------------
@@ -250,106 +615,33 @@ public class WorkflowController {
     // -------------------------
 
     /**
-     * Map a Node entity to NodeResponse. Always returns a JsonNode in NodeResponse.config.
+     * Map a cached node definition to NodeResponse; its masked config was computed when the definition was loaded.
      */
-    private NodeResponse mapNodeToResponse(Node n, boolean revealSecrets) {
-        NodeResponse nr = new NodeResponse();
-        nr.setId(n.getId());
-        nr.setType(n.getType());
-        nr.setOrderIndex(n.getOrderIndex());
-
-        // convert whatever Node.getConfig() returns into a JSON string if possible
-        String rawCfgStr = null;
-        try {
-            Object cfgObj = n.getConfig(); // adapt if Node.getConfig() is typed differently
-            if (cfgObj == null) {
-                rawCfgStr = null;
-            } else if (cfgObj instanceof String) {
-                rawCfgStr = (String) cfgObj;
-            } else {
-                // try to serialize other object types (e.g. JsonNode or POJO)
-                rawCfgStr = objectMapper.writeValueAsString(cfgObj);
-            }
-        } catch (Exception e) {
-            rawCfgStr = (n.getConfig() == null) ? null : n.getConfig().toString();
-        }
-
-        if (revealSecrets) {
-            if (rawCfgStr == null) {
-                nr.setConfig(null);
-            } else {
-                try {
-                    JsonNode parsed = objectMapper.readTree(rawCfgStr);
-                    nr.setConfig(parsed);
-                } catch (Exception ex) {
-                    // if rawCfgStr is not valid JSON, return as TextNode
-                    nr.setConfig(new TextNode(rawCfgStr));
-                }
-            }
-        } else {
-            // mask and return — maskConfigJson returns a String (either JSON string or masked text)
-            String masked = maskConfigJson(rawCfgStr);
-            if (masked == null) {
-                nr.setConfig(null);
-            } else {
-                try {
-                    // try parse masked result as JSON
-                    JsonNode parsedMasked = objectMapper.readTree(masked);
-                    nr.setConfig(parsedMasked);
-                } catch (Exception ex) {
-                    // not JSON -> wrap into TextNode
-                    nr.setConfig(new TextNode(masked));
-                }
-            }
-        }
+    private NodeResponse mapNodeToResponse(WorkflowDefinition.NodeDefinition n, boolean revealSecrets) {
+        return mapNodeToResponse(n.id(), n.type(), n.orderIndex(), n.dependsOn(),
+                revealSecrets ? configMasker.reveal(n.config()) : n.maskedConfig());
+    }
 
+    private NodeResponse mapNodeToResponse(Long id, String type, Integer orderIndex, String dependsOn,
+                                           String configJson) {
+        NodeResponse nr = new NodeResponse();
+        nr.setId(id);
+        nr.setType(type);
+        nr.setOrderIndex(orderIndex);
+        nr.setDependsOn(WorkflowPlanCompiler.parseDependsOn(dependsOn));
+        nr.setConfig(configJson);
         return nr;
     }
 
-    /**
-     * Mask known sensitive keys inside a JSON config string.
-     * If the config is not valid JSON, return a truncated/masked string.
-     */
-    private String maskConfigJson(String config) {
-        if (config == null) return null;
-        try {
-            JsonNode root = objectMapper.readTree(config);
-            String[] sensitive = {"webhookUrl", "webhook", "url", "token", "secret", "apiKey", "authorization", "auth"};
-
-            java.util.function.Consumer<JsonNode> walk = new java.util.function.Consumer<JsonNode>() {
-                @Override
-                public void accept(JsonNode node) {
-                    if (node == null) return;
-                    if (node.isObject()) {
-                        ObjectNode obj = (ObjectNode) node;
-                        for (String key : sensitive) {
-                            if (obj.has(key)) {
-                                String v = obj.get(key).asText(null);
-                                if (v != null && !v.isBlank()) {
-                                    String masked = "••••••••";
-                                    if (v.length() > 8) masked = "••••••••" + v.substring(v.length() - 8);
-                                    obj.put(key, masked);
-                                } else {
-                                    obj.put(key, "••••••••");
-                                }
-                            }
-                        }
-                        // recurse into children
-                        obj.fieldNames().forEachRemaining(fn -> accept(obj.get(fn)));
-                    } else if (node.isArray()) {
-                        for (JsonNode it : node) accept(it);
-                    }
-                }
-            };
-            walk.accept(root);
-            return objectMapper.writeValueAsString(root);
-        } catch (Exception e) {
-            // not JSON: truncate and hide obvious urls
-            String s = config;
-            if (s.length() > 200) s = s.substring(0, 200) + "…";
-            s = s.replaceAll("(https?://[^\\s\"]+)", "https://••••••••");
-            return s;
-        }
+    private WorkflowRunResultDto toResultDto(WorkflowRun run, String summary) {
+        return new WorkflowRunResultDto(
+                run.getId(),
+                run.getWorkflow().getId(),
+                run.getStatus().name(),
+                run.getStartedAt() != null ? run.getStartedAt().toString() : null,
+                run.getEndedAt() != null ? run.getEndedAt().toString() : null,
+                summary
+        );
     }
 
     /** Basic check for ROLE_ADMIN in the security context. */
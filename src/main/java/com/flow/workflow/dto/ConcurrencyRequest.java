@@ -0,0 +1,13 @@
+package com.flow.workflow.dto;
+
+import com.flow.workflow.model.OverlapPolicy;
+import lombok.Getter;
+import lombok.Setter;
+
+/** Concurrency limit of a workflow; null maxConcurrentRuns removes the limit, null overlapPolicy uses the default. */
+@Getter
+@Setter
+public class ConcurrencyRequest {
+    private Integer maxConcurrentRuns;
+    private OverlapPolicy overlapPolicy;
+}
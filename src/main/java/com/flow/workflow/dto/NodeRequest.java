@@ -3,10 +3,13 @@ package com.flow.workflow.dto;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.List;
+
 @Getter
 @Setter
 public class NodeRequest {
     private String type;
     private String config;   // JSON string
     private Integer orderIndex;
+    private List<Integer> dependsOn; // orderIndex values of upstream nodes (DAG workflows)
 }
@@ -1,8 +1,10 @@
 package com.flow.workflow.dto;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import lombok.*;
 
+import java.util.List;
+
 @Getter
 @Setter
 @NoArgsConstructor
@@ -12,9 +14,11 @@ public class NodeResponse {
     private Long id;
     private String type;
     private Integer orderIndex;
+    private List<Integer> dependsOn;
     /**
-     * Masked config. Use Object so controller can return either JSON (JsonNode) or String
-     * depending on whether the config is valid JSON and whether secrets are revealed.
+     * Masked (or, for admins, revealed) config as JSON text from ConfigMasker, embedded as-is in the response:
+     * the config object itself, or a JSON string if the stored config is not valid JSON.
      */
-    private JsonNode config;
+    @JsonRawValue
+    private String config;
 }
@@ -0,0 +1,12 @@
+package com.flow.workflow.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/** Retention policy of a workflow; null falls back to the global default, 0 keeps everything. */
+@Getter
+@Setter
+public class RetentionRequest {
+    private Integer maxRuns;
+    private Integer days;
+}
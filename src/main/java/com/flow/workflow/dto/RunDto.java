@@ -1,22 +1,51 @@
 package com.flow.workflow.dto;
 
+import com.flow.workflow.model.WorkflowStatus;
+import lombok.Getter;
+import lombok.Setter;
+
 import java.time.LocalDateTime;
 
+/** Lightweight run summary (no logs) used by the run history API. */
+@Getter
+@Setter
 public class RunDto {
     private Long id;
     private Long workflowId;
     private LocalDateTime startedAt;
+    private LocalDateTime executionStartedAt;
     private LocalDateTime endedAt;
     private String status;
+    // execution time, without the wait in the queue
+    private Long durationMs;
 
     // constructors/getters/setters
     public RunDto() {}
     public RunDto(Long id, Long workflowId, LocalDateTime startedAt, LocalDateTime endedAt, String status) {
+        this(id, workflowId, startedAt, null, endedAt, status);
+    }
+
+    public RunDto(Long id, Long workflowId, LocalDateTime startedAt, LocalDateTime executionStartedAt,
+                  LocalDateTime endedAt, String status) {
         this.id = id;
         this.workflowId = workflowId;
         this.startedAt = startedAt;
+        this.executionStartedAt = executionStartedAt;
         this.endedAt = endedAt;
         this.status = status;
+        LocalDateTime from = executionStartedAt != null ? executionStartedAt : startedAt;
+        if (from != null && endedAt != null) {
+            this.durationMs = java.time.Duration.between(from, endedAt).toMillis();
+        }
+    }
+
+    // used by JPQL constructor expressions
+    public RunDto(Long id, Long workflowId, LocalDateTime startedAt, LocalDateTime endedAt, WorkflowStatus status) {
+        this(id, workflowId, startedAt, null, endedAt, status == null ? null : status.name());
+    }
+
+    public RunDto(Long id, Long workflowId, LocalDateTime startedAt, LocalDateTime executionStartedAt,
+                  LocalDateTime endedAt, WorkflowStatus status) {
+        this(id, workflowId, startedAt, executionStartedAt, endedAt, status == null ? null : status.name());
     }
-    // getters & setters...
 }
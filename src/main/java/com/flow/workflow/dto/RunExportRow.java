@@ -0,0 +1,30 @@
+package com.flow.workflow.dto;
+
+import com.flow.workflow.model.WorkflowStatus;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the run export cursor: a run joined with one of its logs (log columns are null for a run
+ * without logs). Rows arrive ordered by run, so consecutive rows with the same runId belong together.
+ */
+@Getter
+@AllArgsConstructor
+public class RunExportRow {
+    private Long runId;
+    private Long workflowId;
+    private WorkflowStatus runStatus;
+    private LocalDateTime runStartedAt;
+    private LocalDateTime runEndedAt;
+    private Long logId;
+    private Long nodeId;
+    private String nodeType;
+    private WorkflowStatus logStatus;
+    private String output;
+    private String error;
+    private String outputRef;
+    private LocalDateTime logStartedAt;
+    private LocalDateTime logEndedAt;
+}
@@ -0,0 +1,14 @@
+package com.flow.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/** One page of run history; pass {@code nextCursor} back as {@code cursor} for the next page (null on the last). */
+@Getter
+@AllArgsConstructor
+public class RunPageDto {
+    private List<RunDto> items;
+    private String nextCursor;
+}
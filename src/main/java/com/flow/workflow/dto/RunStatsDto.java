@@ -0,0 +1,24 @@
+package com.flow.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/** Aggregate of finished runs or node executions; latencies are in ms and within 1% of the exact quantile. */
+@Getter
+@AllArgsConstructor
+public class RunStatsDto {
+    private long total;
+    private long success;
+    private long failed;
+    private long canceled;
+    private Double successRate;
+    private LocalDateTime lastSuccessAt;
+    private LocalDateTime lastFailureAt;
+    private Long meanMs;
+    private Long maxMs;
+    private Long p50Ms;
+    private Long p90Ms;
+    private Long p99Ms;
+}
@@ -0,0 +1,26 @@
+package com.flow.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/** Outcome of a bulk import: totals plus one entry per submitted workflow, in request order. */
+@Getter
+@AllArgsConstructor
+public class WorkflowImportResult {
+    private int created;
+    private int invalid;
+    private int failed;
+    private List<Item> items;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Item {
+        private int index;
+        private String name;
+        private String status; // CREATED, INVALID or FAILED
+        private Long id;
+        private String error;
+    }
+}
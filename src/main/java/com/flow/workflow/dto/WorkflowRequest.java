@@ -1,5 +1,8 @@
 package com.flow.workflow.dto;
 
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.MisfirePolicy;
+import com.flow.workflow.model.OverlapPolicy;
 import lombok.Getter;
 import lombok.Setter;
 import java.util.List;
@@ -8,5 +11,12 @@ import java.util.List;
 @Setter
 public class WorkflowRequest {
     private String name;
+    private ExecutionMode executionMode; // defaults to LINEAR
+    private Integer retentionMaxRuns;    // null = workflow.retention.default-max-runs
+    private Integer retentionDays;       // null = workflow.retention.default-days
+    private String cron;                 // null = workflow.schedule.default-cron
+    private MisfirePolicy misfirePolicy; // null = workflow.schedule.misfire-policy
+    private Integer maxConcurrentRuns;   // null = unlimited
+    private OverlapPolicy overlapPolicy; // null = workflow.concurrency.default-overlap-policy
     private List<NodeRequest> nodes;
 }
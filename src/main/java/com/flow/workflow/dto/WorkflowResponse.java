@@ -1,5 +1,8 @@
 package com.flow.workflow.dto;
 
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.MisfirePolicy;
+import com.flow.workflow.model.OverlapPolicy;
 import com.flow.workflow.model.WorkflowStatus;
 import lombok.Getter;
 import lombok.Setter;
@@ -13,7 +16,14 @@ public class WorkflowResponse {
     private Long id;
     private String workflowName;
     private Boolean scheduled;
+    private String cron;
+    private MisfirePolicy misfirePolicy;
     private LocalDateTime lastRunAt;
     private WorkflowStatus status;
+    private ExecutionMode executionMode;
+    private Integer retentionMaxRuns;
+    private Integer retentionDays;
+    private Integer maxConcurrentRuns;
+    private OverlapPolicy overlapPolicy;
     private List<NodeResponse> nodes;
 }
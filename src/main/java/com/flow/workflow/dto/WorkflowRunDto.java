@@ -15,6 +15,7 @@ public class WorkflowRunDto {
     private Long workflowId;
     private String status;
     private LocalDateTime startedAt;
+    private LocalDateTime executionStartedAt;
     private LocalDateTime endedAt;
     private List<WorkflowRunLogDto> logs;
 }
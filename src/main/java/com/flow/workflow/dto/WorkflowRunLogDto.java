@@ -16,6 +16,7 @@ public class WorkflowRunLogDto {
     private String status;
     private String output;
     private String error;
+    private String outputRef;
     private LocalDateTime startedAt;
     private LocalDateTime endedAt;
 }
@@ -0,0 +1,15 @@
+package com.flow.workflow.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/** Run statistics of one workflow: whole runs plus one entry per node type. */
+@Getter
+@AllArgsConstructor
+public class WorkflowStatsDto {
+    private Long workflowId;
+    private RunStatsDto runs;
+    private Map<String, RunStatsDto> nodeTypes;
+}
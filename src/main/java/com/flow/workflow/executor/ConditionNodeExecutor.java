@@ -0,0 +1,19 @@
+package com.flow.workflow.executor;
+
+import com.flow.workflow.plan.ConditionStep;
+import com.flow.workflow.plan.PlanStep;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ConditionNodeExecutor implements NodeExecutor {
+
+    @Override
+    public String type() {
+        return "CONDITION";
+    }
+
+    @Override
+    public NodeOutcome execute(PlanStep step, RunContext context) {
+        return NodeOutcome.success(((ConditionStep) step).evaluate(context));
+    }
+}
@@ -0,0 +1,46 @@
+package com.flow.workflow.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flow.workflow.http.OutboundHttpClient;
+import com.flow.workflow.plan.HttpStep;
+import com.flow.workflow.plan.PlanStep;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HttpNodeExecutor implements NodeExecutor {
+
+    // keep error messages readable when the remote answers with a whole HTML page
+    private static final int ERROR_BODY_PREVIEW = 200;
+
+    @Autowired
+    private OutboundHttpClient httpClient;
+
+    @Override
+    public String type() {
+        return "HTTP";
+    }
+
+    @Override
+    public NodeOutcome execute(PlanStep step, RunContext context) {
+        HttpStep http = (HttpStep) step;
+        OutboundHttpClient.Response response;
+        try {
+            response = httpClient.exchange(http.getMethod(), http.getUri(), http.getHeaders(),
+                    http.getBody(), http.getTimeouts(), "run-" + context.getRunId() + "-node-" + http.getNodeId());
+        } catch (Exception e) {
+            throw new RuntimeException("HTTP node failed: " + e.getMessage(), e);
+        }
+        // parsed once here; downstream nodes get the JsonNode from the run context
+        JsonNode json = response.isTruncated() ? null : RunContext.parseJson(response.getBody());
+        if (!response.is2xx()) {
+            String body = response.getBody();
+            if (body.length() > ERROR_BODY_PREVIEW) body = body.substring(0, ERROR_BODY_PREVIEW) + "...";
+            // still hand the status code downstream, e.g. for a CONDITION on {{n.status}}
+            return NodeOutcome.failed("HTTP node failed: " + response.getStatus() + " from "
+                    + http.getUri().getHost() + ": " + body).withData(json, response.getStatus());
+        }
+        return NodeOutcome.success(response.getBody(), response.getSpillRef())
+                .withData(json, response.getStatus());
+    }
+}
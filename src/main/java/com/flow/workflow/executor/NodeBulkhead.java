@@ -0,0 +1,97 @@
+package com.flow.workflow.executor;
+
+import com.flow.workflow.plan.PlanStep;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size pool with a bounded queue and a per-step timeout, owned by one node type.
+ * A full bulkhead fails the step immediately instead of borrowing threads from other types.
+ */
+class NodeBulkhead {
+
+    private final String type;
+    private final int queueCapacity;
+    private final long timeoutMs;
+    private final ThreadPoolExecutor pool;
+    private final ScheduledExecutorService timer;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    NodeBulkhead(String type, int poolSize, int queueCapacity, long timeoutMs, ScheduledExecutorService timer) {
+        this.type = type;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+        this.timer = timer;
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "wf-" + type.toLowerCase() + "-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Submit a step. The returned future always completes normally: rejection, timeout and
+     * executor exceptions become FAILED outcomes.
+     */
+    CompletableFuture<NodeOutcome> submit(NodeExecutor executor, PlanStep step, RunContext context) {
+        CompletableFuture<NodeOutcome> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = pool.submit(() -> {
+                try {
+                    result.complete(executor.execute(step, context));
+                } catch (Throwable t) {
+                    result.complete(NodeOutcome.failed(t.getMessage()));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.complete(NodeOutcome.failed(type + " bulkhead is full (" + pool.getMaximumPoolSize()
+                    + " busy, " + queueCapacity + " queued)"));
+            return result;
+        }
+
+        if (timeoutMs > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                if (result.complete(NodeOutcome.failed(type + " node timed out after " + timeoutMs + "ms"))) {
+                    timedOut.increment();
+                    task.cancel(true);
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            result.whenComplete((o, ex) -> timeout.cancel(false));
+        }
+        return result;
+    }
+
+    Map<String, Object> stats() {
+        int max = pool.getMaximumPoolSize();
+        int active = pool.getActiveCount();
+        int queued = pool.getQueue().size();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("poolSize", max);
+        m.put("active", active);
+        m.put("queued", queued);
+        m.put("queueCapacity", queueCapacity);
+        m.put("timeoutMs", timeoutMs);
+        m.put("completed", pool.getCompletedTaskCount());
+        m.put("rejected", rejected.sum());
+        m.put("timedOut", timedOut.sum());
+        // 1.0 means every thread is busy and the queue is full — the next step will be rejected
+        m.put("saturation", (double) (active + queued) / (max + queueCapacity));
+        return m;
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,30 @@
+package com.flow.workflow.executor;
+
+import com.flow.workflow.plan.PlanStep;
+
+/**
+ * SPI for node types. Every Spring bean implementing this is registered in {@link NodeExecutorRegistry}
+ * under {@link #type()} and gets its own bulkhead pool, so adding a node type means adding a bean —
+ * the engines don't change. Types without a dedicated plan step receive a
+ * {@link com.flow.workflow.plan.GenericStep} carrying the parsed node config.
+ */
+public interface NodeExecutor {
+
+    /** Node type handled by this executor, e.g. "HTTP" (matched case-insensitively). */
+    String type();
+
+    /**
+     * Execute one step. Runs on the type's bulkhead thread (see {@link #needsCallerThread()}).
+     * Upstream outputs are available from {@code context}; the engine records the returned outcome there.
+     * Throwing is fine — the registry turns exceptions into a FAILED outcome.
+     */
+    NodeOutcome execute(PlanStep step, RunContext context) throws Exception;
+
+    /**
+     * Executors that read or write run state through the calling run's transaction must run on the
+     * calling thread: another thread cannot see the run's uncommitted rows. Such executors bypass the bulkhead.
+     */
+    default boolean needsCallerThread() {
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.flow.workflow.executor;
+
+import com.flow.workflow.plan.InvalidStep;
+import com.flow.workflow.plan.PlanStep;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * All {@link NodeExecutor} beans keyed by node type, each behind its own {@link NodeBulkhead}.
+ * Bulkheads are configured per type with {@code workflow.bulkhead.<type>.pool-size|queue-capacity|timeout-ms},
+ * falling back to {@code workflow.bulkhead.default.*}.
+ */
+@Component
+public class NodeExecutorRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeExecutorRegistry.class);
+
+    private final Map<String, NodeExecutor> executors = new HashMap<>();
+    private final Map<String, NodeBulkhead> bulkheads = new HashMap<>();
+    private final ScheduledExecutorService timeoutTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "wf-bulkhead-timeout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public NodeExecutorRegistry(List<NodeExecutor> nodeExecutors, Environment env) {
+        for (NodeExecutor executor : nodeExecutors) {
+            String type = executor.type().toUpperCase();
+            if (executors.putIfAbsent(type, executor) != null) {
+                throw new IllegalStateException("Duplicate NodeExecutor for node type " + type);
+            }
+            if (executor.needsCallerThread()) {
+                log.info("Registered node executor {} (runs on caller thread)", type);
+                continue;
+            }
+            String prefix = "workflow.bulkhead." + type.toLowerCase() + ".";
+            int poolSize = setting(env, prefix, "pool-size", 8);
+            int queueCapacity = setting(env, prefix, "queue-capacity", 50);
+            long timeoutMs = setting(env, prefix, "timeout-ms", 30_000);
+            bulkheads.put(type, new NodeBulkhead(type, poolSize, queueCapacity, timeoutMs, timeoutTimer));
+            log.info("Registered node executor {} (pool={}, queue={}, timeout={}ms)", type, poolSize, queueCapacity, timeoutMs);
+        }
+    }
+
+    public boolean supports(String type) {
+        return type != null && executors.containsKey(type.toUpperCase());
+    }
+
+    /**
+     * Execute a step on its type's bulkhead. The future always completes normally with the outcome.
+     */
+    public CompletableFuture<NodeOutcome> submit(PlanStep step, RunContext context) {
+        if (step instanceof InvalidStep invalid) {
+            return CompletableFuture.completedFuture(NodeOutcome.failed(invalid.getError()));
+        }
+        String type = step.getType() == null ? "" : step.getType().toUpperCase();
+        NodeExecutor executor = executors.get(type);
+        if (executor == null) {
+            return CompletableFuture.completedFuture(NodeOutcome.failed("Unknown node type: " + step.getType()));
+        }
+
+        NodeBulkhead bulkhead = bulkheads.get(type);
+        if (bulkhead == null) {
+            try {
+                return CompletableFuture.completedFuture(executor.execute(step, context));
+            } catch (Exception e) {
+                return CompletableFuture.completedFuture(NodeOutcome.failed(e.getMessage()));
+            }
+        }
+        return bulkhead.submit(executor, step, context);
+    }
+
+    /** Blocking variant of {@link #submit(PlanStep, RunContext)} for the linear engine. */
+    public NodeOutcome execute(PlanStep step, RunContext context) {
+        return submit(step, context).join();
+    }
+
+    /** Per-type pool usage, for the /system/executors endpoint. */
+    public Map<String, Object> saturation() {
+        Map<String, Object> m = new TreeMap<>();
+        executors.forEach((type, executor) -> {
+            NodeBulkhead bulkhead = bulkheads.get(type);
+            m.put(type, bulkhead != null ? bulkhead.stats() : Map.of("mode", "caller-thread"));
+        });
+        return m;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(NodeBulkhead::shutdown);
+        timeoutTimer.shutdownNow();
+    }
+
+    private static int setting(Environment env, String prefix, String key, int fallback) {
+        Integer def = env.getProperty("workflow.bulkhead.default." + key, Integer.class, fallback);
+        return env.getProperty(prefix + key, Integer.class, def);
+    }
+}
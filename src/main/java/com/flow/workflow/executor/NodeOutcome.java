@@ -0,0 +1,65 @@
+package com.flow.workflow.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flow.workflow.model.WorkflowStatus;
+
+/**
+ * Result of executing a single node: the status, output and error that end up on its run log,
+ * plus an optional spill store ref when the full output was too large to keep inline.
+ * Structured data (parsed JSON, HTTP status) is not logged; it goes to the {@link RunContext} for downstream nodes.
+ */
+public final class NodeOutcome {
+
+    private final WorkflowStatus status;
+    private final String output;
+    private final String error;
+    private final String outputRef;
+    private final JsonNode data;
+    private final Integer statusCode;
+
+    private NodeOutcome(WorkflowStatus status, String output, String error, String outputRef,
+                        JsonNode data, Integer statusCode) {
+        this.status = status;
+        this.output = output;
+        this.error = error;
+        this.outputRef = outputRef;
+        this.data = data;
+        this.statusCode = statusCode;
+    }
+
+    private NodeOutcome(WorkflowStatus status, String output, String error, String outputRef) {
+        this(status, output, error, outputRef, null, null);
+    }
+
+    public static NodeOutcome success(String output) {
+        return new NodeOutcome(WorkflowStatus.SUCCESS, output, null, null);
+    }
+
+    /** Success whose output is only a preview; the full output is in the spill store under outputRef. */
+    public static NodeOutcome success(String output, String outputRef) {
+        return new NodeOutcome(WorkflowStatus.SUCCESS, output, null, outputRef);
+    }
+
+    public static NodeOutcome failed(String error) {
+        return new NodeOutcome(WorkflowStatus.FAILED, null, error, null);
+    }
+
+    /** Node was not executed, e.g. because an upstream node failed. */
+    public static NodeOutcome skipped(String reason) {
+        return new NodeOutcome(WorkflowStatus.CANCELED, null, reason, null);
+    }
+
+    public WorkflowStatus getStatus() { return status; }
+    public String getOutput() { return output; }
+    public String getError() { return error; }
+    public String getOutputRef() { return outputRef; }
+    public JsonNode getData() { return data; }
+    public Integer getStatusCode() { return statusCode; }
+
+    /** Copy of this outcome carrying structured data for downstream nodes. */
+    public NodeOutcome withData(JsonNode data, Integer statusCode) {
+        return new NodeOutcome(status, output, error, outputRef, data, statusCode);
+    }
+
+    public boolean isSuccess() { return status == WorkflowStatus.SUCCESS; }
+}
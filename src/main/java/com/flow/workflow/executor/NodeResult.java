@@ -0,0 +1,42 @@
+package com.flow.workflow.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flow.workflow.model.WorkflowStatus;
+
+/**
+ * Structured output of a finished node as seen by downstream nodes: the full in-memory output
+ * (not the compacted, truncated log text), the parsed JSON when there is one, and the HTTP status code.
+ */
+public final class NodeResult {
+
+    private final Long nodeId;
+    private final Integer orderIndex;
+    private final String type;
+    private final WorkflowStatus status;
+    private final String output;
+    private final JsonNode json;
+    private final Integer statusCode;
+
+    public NodeResult(Long nodeId, Integer orderIndex, String type, WorkflowStatus status,
+                      String output, JsonNode json, Integer statusCode) {
+        this.nodeId = nodeId;
+        this.orderIndex = orderIndex;
+        this.type = type;
+        this.status = status;
+        this.output = output;
+        this.json = json;
+        this.statusCode = statusCode;
+    }
+
+    public Long getNodeId() { return nodeId; }
+    public Integer getOrderIndex() { return orderIndex; }
+    public String getType() { return type; }
+    public WorkflowStatus getStatus() { return status; }
+    public String getOutput() { return output; }
+
+    /** Parsed output, or null when the output was not JSON (or too large to keep whole). */
+    public JsonNode getJson() { return json; }
+
+    /** HTTP status code for HTTP nodes, otherwise null. */
+    public Integer getStatusCode() { return statusCode; }
+}
@@ -2,55 +2,52 @@ package com.flow.workflow.executor;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.flow.workflow.model.WorkflowRun;
-import com.flow.workflow.model.WorkflowRunLog;
-import com.flow.workflow.model.WorkflowStatus;
-import com.flow.workflow.model.Node;
-import com.flow.workflow.repository.WorkflowRunLogRepository;
-import com.flow.workflow.repository.WorkflowRunRepository;
+import com.flow.workflow.http.HttpTimeouts;
+import com.flow.workflow.http.OutboundHttpClient;
+import com.flow.workflow.plan.NotifyStep;
+import com.flow.workflow.plan.PlanStep;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
 
-import java.time.LocalDateTime;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 @Component
-public class NotifyExecutor {
+public class NotifyExecutor implements NodeExecutor {
 
     private final Logger log = LoggerFactory.getLogger(NotifyExecutor.class);
-    private final WorkflowRunLogRepository runLogRepository;
-    private final WorkflowRunRepository runRepository;
-    private final RestTemplate restTemplate;
+    private final OutboundHttpClient httpClient;
     private final ObjectMapper objectMapper;
 
-    // truncate outputs longer than this to avoid huge DB fields / noisy logs
-    private static final int MAX_OUTPUT_LENGTH = 5_000;
-
-    public NotifyExecutor(WorkflowRunLogRepository runLogRepository,
-                          WorkflowRunRepository runRepository) {
-        this.runLogRepository = runLogRepository;
-        this.runRepository = runRepository;
-        this.restTemplate = new RestTemplate();
+    public NotifyExecutor(OutboundHttpClient httpClient) {
+        this.httpClient = httpClient;
         this.objectMapper = new ObjectMapper();
     }
 
+    @Override
+    public String type() {
+        return "NOTIFY";
+    }
+
+    @Override
+    public NodeOutcome execute(PlanStep step, RunContext context) {
+        return executeNotify(context, (NotifyStep) step);
+    }
+
     /**
-     * Execute notify node for the given runId & node config.
-     * We persist a runLog entry in a new transaction so it won't hold locks for the whole execution flow.
+     * Execute notify step for the run. Webhook and configured message come pre-parsed from the plan,
+     * the upstream HTTP result comes from the run context; the engine logs the returned outcome.
      */
-    public void executeNotify(Long runId, Node node) {
+    public NodeOutcome executeNotify(RunContext context, NotifyStep step) {
+        Long runId = context.getRunId();
         // configured fallback message from the node config (if any)
-        String configuredMessage = getConfiguredMessage(node);
+        String configuredMessage = step.getConfiguredMessage();
 
         // build message from latest HTTP output if available
-        String messageFromHttp = buildMessageFromHttpOutput(runId);
+        String messageFromHttp = buildMessageFromHttpOutput(context, step);
 
         // If HTTP produced a valid weather summary, use it.
         // Otherwise fall back to configuredMessage if present, else keep the HTTP fallback text.
@@ -63,87 +60,44 @@ public class NotifyExecutor {
             message = messageFromHttp; // e.g. "Weather report: (no HTTP data available)"
         }
 
-        // read webhook from node config
-        String webhookUrl = parseWebhookUrl(node);
+        // webhook from node config
+        String webhookUrl = step.getWebhookUrl();
         if (webhookUrl == null || webhookUrl.isBlank()) {
             String err = "Missing webhookUrl in node config";
             log.error(err);
-            persistRunLog(runId, node.getId(), "NOTIFY", null, WorkflowStatus.FAILED, err);
-            return;
+            return NodeOutcome.failed(err);
         }
 
         // try sending to Slack
         try {
-            postSlackWebhook(webhookUrl, message);
-            persistRunLog(runId, node.getId(), "NOTIFY", message, WorkflowStatus.SUCCESS, null);
+            postSlackWebhook(webhookUrl, message, step.getTimeouts());
             log.info("Notify sent successfully for runId {} message='{}'", runId, compactForLog(message));
+            return NodeOutcome.success(message);
         } catch (Exception ex) {
-            String err = ex.getMessage();
             log.error("Notify node failed for runId " + runId, ex);
-            persistRunLog(runId, node.getId(), "NOTIFY", message, WorkflowStatus.FAILED, err);
+            return NodeOutcome.failed(ex.getMessage());
         }
     }
 
     /**
-     * Return configured message from node config JSON if present.
-     */
-    private String getConfiguredMessage(Node node) {
-        try {
-            if (node == null || node.getConfig() == null) return null;
-            JsonNode cfg = objectMapper.readTree(node.getConfig());
-            if (cfg.has("message")) {
-                return cfg.get("message").asText(null);
-            }
-            // some configs might use 'text' or 'body' as key
-            if (cfg.has("text")) {
-                return cfg.get("text").asText(null);
-            }
-            if (cfg.has("body")) {
-                return cfg.get("body").asText(null);
-            }
-            return null;
-        } catch (Exception e) {
-            log.debug("Unable to read configured message from node config", e);
-            return null;
-        }
-    }
-
-    private String parseWebhookUrl(Node node) {
-        // node.getConfig() may be JSON string; adapt to your model. Example assumes config is JSON string.
-        try {
-            if (node == null || node.getConfig() == null) return null;
-            JsonNode cfg = objectMapper.readTree(node.getConfig());
-            JsonNode w = cfg.path("webhookUrl");
-            if (!w.isMissingNode() && !w.asText().isBlank()) return w.asText();
-            // older config might use "webhook" or "url" — try fallbacks:
-            JsonNode w2 = cfg.path("webhook");
-            if (!w2.isMissingNode() && !w2.asText().isBlank()) return w2.asText();
-            JsonNode w3 = cfg.path("url");
-            if (!w3.isMissingNode() && !w3.asText().isBlank()) return w3.asText();
-            return null;
-        } catch (Exception e) {
-            log.warn("Failed to parse node config for webhookUrl", e);
-            return null;
-        }
-    }
-
-    /**
-     * Build a weather message from the latest HTTP run log for the runId.
+     * Build a weather message from the upstream HTTP node's result (see {@link RunContext#upstream}).
      * Returns one of:
      *   - "Daily weather — Temp: 22.5°C · Wind: 7.0 km/h · code:80"  (good)
      *   - "Weather report: (no HTTP data available)"               (fallback)
      *   - "Weather report: (failed to parse HTTP output)"          (parse error)
      */
-    private String buildMessageFromHttpOutput(Long runId) {
+    private String buildMessageFromHttpOutput(RunContext context, NotifyStep step) {
         try {
-            Optional<WorkflowRunLog> maybe = runLogRepository.findFirstByRun_IdAndNodeTypeOrderByIdDesc(runId, "HTTP");
-            if (maybe.isEmpty()) {
+            NodeResult http = context.upstream(step, "HTTP");
+            if (http == null) {
                 return "Weather report: (no HTTP data available)";
             }
-            String output = maybe.get().getOutput();
+            String output = http.getOutput();
             if (output == null || output.isBlank()) return "Weather report: (empty HTTP output)";
 
-            JsonNode root = objectMapper.readTree(output);
+            // parsed once by the HTTP node; null means its output was not (complete) JSON
+            JsonNode root = http.getJson();
+            if (root == null) return "Weather report: (failed to parse HTTP output)";
 
             // First try Open-Meteo style "current_weather"
             JsonNode current = root.path("current_weather");
@@ -177,7 +131,7 @@ public class NotifyExecutor {
             // No recognizable weather fields found
             return "Weather report: (no HTTP data available)";
         } catch (Exception e) {
-            log.warn("Failed to parse HTTP output JSON for runId {}: {}", runId, e.getMessage());
+            log.warn("Failed to read HTTP output JSON for runId {}: {}", context.getRunId(), e.getMessage());
             return "Weather report: (failed to parse HTTP output)";
         }
     }
@@ -188,59 +142,24 @@ public class NotifyExecutor {
         return m.contains("no http data") || m.contains("empty http") || m.contains("failed to parse");
     }
 
-    private void postSlackWebhook(String webhookUrl, String message) {
+    private void postSlackWebhook(String webhookUrl, String message, HttpTimeouts timeouts) throws Exception {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
 
         Map<String, Object> body = new HashMap<>();
         body.put("text", message);
 
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
-        ResponseEntity<String> resp = restTemplate.postForEntity(webhookUrl, entity, String.class);
-        if (!resp.getStatusCode().is2xxSuccessful()) {
-            throw new RuntimeException("Slack webhook returned " + resp.getStatusCode());
-        }
-    }
-
-    // persist run log in new transaction (so we don't hold locks across node execution)
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
-    protected void persistRunLog(Long runId, Long nodeId, String nodeType, String output, WorkflowStatus status, String error) {
-        WorkflowRunLog l = new WorkflowRunLog();
-        // set run object from runId
-        WorkflowRun run = runRepository.findById(runId).orElse(null);
-        l.setRun(run);
-        l.setNodeId(nodeId);
-        l.setNodeType(nodeType);
-
-        // compact and truncate output to single-line
-        if (output != null) {
-            String compact = compact(output);
-            if (compact.length() > MAX_OUTPUT_LENGTH) {
-                compact = compact.substring(0, MAX_OUTPUT_LENGTH) + "...[truncated]";
-            }
-            l.setOutput(compact);
-        } else {
-            l.setOutput(null);
+        OutboundHttpClient.Response resp = httpClient.exchange(HttpMethod.POST, URI.create(webhookUrl), headers,
+                objectMapper.writeValueAsBytes(body), timeouts);
+        if (!resp.is2xx()) {
+            throw new RuntimeException("Slack webhook returned " + resp.getStatus());
         }
-
-        l.setStatus(status);
-        l.setError(error);
-        l.setStartedAt(LocalDateTime.now());
-        l.setEndedAt(LocalDateTime.now());
-        runLogRepository.save(l);
-    }
-
-    // compact helper used only here
-    private String compact(String s) {
-        if (s == null) return null;
-        // replace consecutive whitespace (including newlines) with single space and trim
-        return s.replaceAll("\\s+", " ").trim();
     }
 
     // small helper for log messages to avoid huge output in logs
     private String compactForLog(String s) {
         if (s == null) return null;
-        String c = compact(s);
+        String c = s.replaceAll("\\s+", " ").trim();
         return c.length() > 200 ? c.substring(0, 200) + "...[truncated]" : c;
     }
 }
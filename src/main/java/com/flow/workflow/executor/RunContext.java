@@ -0,0 +1,109 @@
+package com.flow.workflow.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.PlanStep;
+import com.flow.workflow.plan.WorkflowPlan;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Outputs of the nodes that already finished in one run, keyed by node id. The engines record every
+ * outcome here and pass the context to executors, so downstream nodes read upstream results directly
+ * instead of querying and re-parsing the truncated run-log text.
+ * <p>
+ * Lives only as long as the run is executing; a run resumed after a DELAY rebuilds it from its logs
+ * with {@link #fromLogs}.
+ */
+public final class RunContext {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Long runId;
+    private final Map<Long, NodeResult> byNodeId = new ConcurrentHashMap<>();
+    private final Map<Integer, NodeResult> byOrderIndex = new ConcurrentHashMap<>();
+    private final Map<String, NodeResult> latestByType = new ConcurrentHashMap<>();
+
+    public RunContext(Long runId) {
+        this.runId = runId;
+    }
+
+    public Long getRunId() { return runId; }
+
+    public void record(PlanStep step, NodeOutcome outcome) {
+        put(new NodeResult(step.getNodeId(), step.getOrderIndex(), step.getType(), outcome.getStatus(),
+                outcome.getOutput(), outcome.getData(), outcome.getStatusCode()));
+    }
+
+    private void put(NodeResult result) {
+        if (result.getNodeId() != null) byNodeId.put(result.getNodeId(), result);
+        if (result.getOrderIndex() != null) byOrderIndex.put(result.getOrderIndex(), result);
+        if (result.getType() != null) latestByType.put(result.getType().toUpperCase(), result);
+    }
+
+    public NodeResult get(Long nodeId) {
+        return byNodeId.get(nodeId);
+    }
+
+    public NodeResult byOrderIndex(Integer orderIndex) {
+        return byOrderIndex.get(orderIndex);
+    }
+
+    /**
+     * Result of type {@code type} that {@code step} should consume: the last of its declared upstreams
+     * with that type (DAG workflows), otherwise the most recently finished node of that type.
+     */
+    public NodeResult upstream(PlanStep step, String type) {
+        List<Integer> deps = step.getDependsOn();
+        for (int i = deps.size() - 1; i >= 0; i--) {
+            NodeResult r = byOrderIndex.get(deps.get(i));
+            if (r != null && type.equalsIgnoreCase(r.getType())) return r;
+        }
+        return latestByType.get(type.toUpperCase());
+    }
+
+    /**
+     * Rebuild the context of a resumed run from the logs written before it was suspended. Only the logged
+     * text survives a suspension, so JSON is re-parsed from it once here — best effort.
+     */
+    public static RunContext fromLogs(Long runId, WorkflowPlan plan, List<WorkflowRunLog> logs) {
+        return fromLogs(runId, plan, logs, WorkflowRunLog::getOutput);
+    }
+
+    /** As above, reading each row's output through {@code output} (e.g. full outputs tiered to the blob store). */
+    public static RunContext fromLogs(Long runId, WorkflowPlan plan, List<WorkflowRunLog> logs,
+                                      Function<WorkflowRunLog, String> output) {
+        Map<Long, PlanStep> steps = new HashMap<>();
+        for (PlanStep s : plan.getSteps()) steps.put(s.getNodeId(), s);
+
+        RunContext ctx = new RunContext(runId);
+        for (WorkflowRunLog l : logs) {
+            PlanStep step = l.getNodeId() == null ? null : steps.get(l.getNodeId());
+            if (step == null || l.getStatus() == WorkflowStatus.RUNNING || l.getStatus() == WorkflowStatus.WAITING) {
+                continue;
+            }
+            String text = output.apply(l);
+            ctx.put(new NodeResult(step.getNodeId(), step.getOrderIndex(), step.getType(), l.getStatus(),
+                    text, parseJson(text), null));
+        }
+        return ctx;
+    }
+
+    /** Parse text as JSON if it looks like an object or array; null otherwise. */
+    public static JsonNode parseJson(String text) {
+        if (text == null) return null;
+        String t = text.stripLeading();
+        if (t.isEmpty() || (t.charAt(0) != '{' && t.charAt(0) != '[')) return null;
+        try {
+            return MAPPER.readTree(t);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
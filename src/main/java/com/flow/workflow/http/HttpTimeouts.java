@@ -0,0 +1,24 @@
+package com.flow.workflow.http;
+
+/**
+ * Per-node timeout overrides in milliseconds; null means "use the client default".
+ * Read from the node config keys connectTimeoutMs, readTimeoutMs and timeoutMs (total).
+ */
+public final class HttpTimeouts {
+
+    public static final HttpTimeouts DEFAULTS = new HttpTimeouts(null, null, null);
+
+    private final Integer connectMs;
+    private final Integer readMs;
+    private final Integer totalMs;
+
+    public HttpTimeouts(Integer connectMs, Integer readMs, Integer totalMs) {
+        this.connectMs = connectMs;
+        this.readMs = readMs;
+        this.totalMs = totalMs;
+    }
+
+    public Integer getConnectMs() { return connectMs; }
+    public Integer getReadMs() { return readMs; }
+    public Integer getTotalMs() { return totalMs; }
+}
@@ -0,0 +1,411 @@
+package com.flow.workflow.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.flow.workflow.storage.SpillStore;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared outbound HTTP client for HTTP and NOTIFY nodes.
+ * <p>
+ * Built on the JDK client: connections are pooled and kept alive per host, and HTTPS hosts are
+ * spoken to over HTTP/2 when they negotiate it (plain http stays on HTTP/1.1 to avoid h2c upgrade
+ * surprises). On top of that it enforces a per-host concurrency limit, connect/read/total timeouts
+ * that nodes can override, and keeps request metrics for {@code /system/http-client}. The JDK's request
+ * timeout only covers the wait for the response headers, so while the body is read a watchdog closes the
+ * stream once no bytes arrived for the read timeout or the total timeout ran out; a stalled server cannot
+ * hold the node past either.
+ * <p>
+ * Bodies are streamed: only the first {@code workflow.http.max-body-in-memory-bytes} are kept in memory.
+ * Callers that pass a spill name get larger bodies written in full to the {@link SpillStore}; otherwise
+ * the rest of the body is not read at all. Memory per request stays bounded whatever the response size.
+ */
+@Component
+public class OutboundHttpClient {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundHttpClient.class);
+
+    // headers the JDK client manages itself and refuses to accept from callers
+    private static final Set<String> RESTRICTED_HEADERS =
+            Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final int defaultConnectMs;
+    private final int defaultReadMs;
+    private final int defaultTotalMs;
+    private final int maxPerHost;
+    private final int maxBodyInMemory;
+    private final SpillStore spillStore;
+
+    // one client (and connection pool) per connect timeout; almost every node uses the default
+    private final Map<Integer, HttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, HostStats> hosts = new ConcurrentHashMap<>();
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder hostLimitRejections = new LongAdder();
+    private final LongAdder truncatedBodies = new LongAdder();
+    private final LongAdder spilledBodies = new LongAdder();
+
+    private final ScheduledExecutorService bodyWatchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "wf-http-body-watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public OutboundHttpClient(@Value("${workflow.http.connect-timeout-ms:5000}") int connectTimeoutMs,
+                              @Value("${workflow.http.read-timeout-ms:20000}") int readTimeoutMs,
+                              @Value("${workflow.http.total-timeout-ms:25000}") int totalTimeoutMs,
+                              @Value("${workflow.http.max-connections-per-host:20}") int maxConnectionsPerHost,
+                              @Value("${workflow.http.keepalive-seconds:300}") int keepAliveSeconds,
+                              @Value("${workflow.http.max-body-in-memory-bytes:262144}") int maxBodyInMemory,
+                              SpillStore spillStore) {
+        this.defaultConnectMs = connectTimeoutMs;
+        this.defaultReadMs = readTimeoutMs;
+        this.defaultTotalMs = totalTimeoutMs;
+        this.maxPerHost = maxConnectionsPerHost;
+        this.maxBodyInMemory = maxBodyInMemory;
+        this.spillStore = spillStore;
+        // read once by the JDK when its connection pool class loads, so set it before the first client exists
+        if (System.getProperty("jdk.httpclient.keepalive.timeout") == null) {
+            System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAliveSeconds));
+        }
+    }
+
+    /**
+     * Perform a request and return the response with (the head of) its body as a String. Never throws for
+     * HTTP error statuses — callers decide what a non-2xx means for their node.
+     */
+    public Response exchange(HttpMethod method, URI uri, HttpHeaders headers, byte[] body, HttpTimeouts timeouts) {
+        return exchange(method, uri, headers, body, timeouts, null);
+    }
+
+    /**
+     * Like {@link #exchange(HttpMethod, URI, HttpHeaders, byte[], HttpTimeouts)}, but a body larger than the
+     * in-memory head is written in full to the spill store under {@code spillName} (if spilling is enabled).
+     */
+    public Response exchange(HttpMethod method, URI uri, HttpHeaders headers, byte[] body, HttpTimeouts timeouts,
+                             String spillName) {
+        HttpTimeouts t = timeouts == null ? HttpTimeouts.DEFAULTS : timeouts;
+        int connectMs = t.getConnectMs() != null ? t.getConnectMs() : defaultConnectMs;
+        int readMs = t.getReadMs() != null ? t.getReadMs() : defaultReadMs;
+        int totalMs = t.getTotalMs() != null ? t.getTotalMs() : defaultTotalMs;
+
+        HttpRequest request = buildRequest(method, uri, headers, body, readMs);
+        HostStats host = hosts.computeIfAbsent(hostKey(uri), k -> new HostStats(maxPerHost));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(totalMs);
+
+        requests.increment();
+        host.requests.increment();
+        boolean acquired = false;
+        CompletableFuture<HttpResponse<InputStream>> future = null;
+        try {
+            acquired = host.permits.tryAcquire(totalMs, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                hostLimitRejections.increment();
+                throw new RuntimeException("Too many concurrent requests to " + hostKey(uri)
+                        + " (limit " + maxPerHost + ")");
+            }
+            host.inFlight.incrementAndGet();
+            future = client(connectMs).sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            long remaining = Math.max(1, deadline - System.nanoTime());
+            HttpResponse<InputStream> resp = future.get(remaining, TimeUnit.NANOSECONDS);
+            if (resp.version() == HttpClient.Version.HTTP_2) host.http2.increment();
+            try (InputStream in = resp.body()) {
+                return readBody(resp, in, deadline, TimeUnit.MILLISECONDS.toNanos(readMs), spillName);
+            }
+        } catch (TimeoutException e) {
+            timedOut.increment();
+            failures.increment();
+            if (future != null) future.cancel(true);
+            throw new RuntimeException("Request to " + uri.getHost() + " timed out after " + totalMs + "ms");
+        } catch (BodyTimeoutException e) {
+            timedOut.increment();
+            failures.increment();
+            throw new RuntimeException("Request to " + uri.getHost() + " timed out after "
+                    + (e.idle ? readMs + "ms without response data" : totalMs + "ms"));
+        } catch (ExecutionException e) {
+            failures.increment();
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            if (cause instanceof HttpTimeoutException) timedOut.increment();
+            throw new RuntimeException(cause.getClass().getSimpleName() + ": " + cause.getMessage(), cause);
+        } catch (IOException e) {
+            failures.increment();
+            throw new RuntimeException("Reading response from " + uri.getHost() + " failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (future != null) future.cancel(true);
+            failures.increment();
+            throw new RuntimeException("Request to " + uri.getHost() + " interrupted", e);
+        } finally {
+            if (acquired) {
+                host.inFlight.decrementAndGet();
+                host.permits.release();
+            }
+        }
+    }
+
+    /**
+     * Keep the first maxBodyInMemory bytes; past that, either stream the whole body to a spill file or stop
+     * reading (closing the stream drops the connection instead of downloading bytes nobody keeps).
+     */
+    private Response readBody(HttpResponse<InputStream> resp, InputStream in, long deadline, long readNanos,
+                              String spillName) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream(Math.min(maxBodyInMemory, 16 * 1024));
+        SpillStore.Spill spill = null;
+        byte[] buf = new byte[8192];
+        long total = 0;
+        boolean complete = true;
+        BodyWatch watch = new BodyWatch(in, deadline, readNanos);
+        try {
+            int n;
+            while ((n = watch.read(buf)) != -1) {
+                total += n;
+                int toHead = Math.min(n, maxBodyInMemory - head.size());
+                if (toHead > 0) head.write(buf, 0, toHead);
+                if (toHead == n) continue;
+
+                if (spill == null) {
+                    if (spillName == null || !spillStore.isEnabled()) {
+                        complete = false;
+                        break;
+                    }
+                    spill = spillStore.create(spillName);
+                    spill.write(head.toByteArray(), 0, head.size());
+                    spilledBodies.increment();
+                }
+                if (!spill.write(buf, toHead, n - toHead)) {
+                    complete = false;
+                    break;
+                }
+            }
+        } finally {
+            watch.stop();
+            if (spill != null) spill.close();
+        }
+
+        if (!complete) truncatedBodies.increment();
+        long size = complete ? total : resp.headers().firstValueAsLong("Content-Length").orElse(-1);
+        String text = new String(head.toByteArray(), charsetOf(resp));
+        return new Response(resp.statusCode(), text, size, head.size() < total || !complete,
+                spill == null ? null : spill.getRef());
+    }
+
+    private static Charset charsetOf(HttpResponse<?> resp) {
+        String contentType = resp.headers().firstValue("Content-Type").orElse("");
+        int i = contentType.toLowerCase().indexOf("charset=");
+        if (i < 0) return StandardCharsets.UTF_8;
+        String name = contentType.substring(i + 8).split(";")[0].trim().replace("\"", "");
+        try {
+            return Charset.forName(name);
+        } catch (Exception e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    private HttpRequest buildRequest(HttpMethod method, URI uri, HttpHeaders headers, byte[] body, int readMs) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(readMs))
+                .method(method.name(), body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofByteArray(body));
+        if (!"https".equalsIgnoreCase(uri.getScheme())) {
+            b.version(HttpClient.Version.HTTP_1_1);
+        }
+        if (headers != null) {
+            headers.forEach((name, values) -> {
+                if (RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                    log.debug("Dropping restricted header {} for {}", name, uri.getHost());
+                    return;
+                }
+                values.forEach(v -> b.header(name, v));
+            });
+        }
+        return b.build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bodyWatchdog.shutdownNow();
+    }
+
+    private HttpClient client(int connectMs) {
+        return clients.computeIfAbsent(connectMs, ms -> HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(ms))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build());
+    }
+
+    private static String hostKey(URI uri) {
+        int port = uri.getPort() != -1 ? uri.getPort() : ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+        return uri.getHost() + ":" + port;
+    }
+
+    /** Request counters overall and per host, for {@code /system/http-client}. */
+    public Map<String, Object> metrics() {
+        Map<String, Object> perHost = new TreeMap<>();
+        hosts.forEach((k, h) -> {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("inFlight", h.inFlight.get());
+            m.put("limit", maxPerHost);
+            m.put("requests", h.requests.sum());
+            m.put("http2Responses", h.http2.sum());
+            perHost.put(k, m);
+        });
+
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("requests", requests.sum());
+        m.put("failures", failures.sum());
+        m.put("timeouts", timedOut.sum());
+        m.put("hostLimitRejections", hostLimitRejections.sum());
+        m.put("truncatedBodies", truncatedBodies.sum());
+        m.put("spilledBodies", spilledBodies.sum());
+        m.put("maxBodyInMemoryBytes", maxBodyInMemory);
+        m.put("clientPools", clients.size());
+        m.put("defaultConnectTimeoutMs", defaultConnectMs);
+        m.put("defaultReadTimeoutMs", defaultReadMs);
+        m.put("defaultTotalTimeoutMs", defaultTotalMs);
+        m.put("hosts", perHost);
+        return m;
+    }
+
+    public static final class Response {
+        private final int status;
+        private final String body;
+        private final long bodyBytes;
+        private final boolean truncated;
+        private final String spillRef;
+
+        Response(int status, String body, long bodyBytes, boolean truncated, String spillRef) {
+            this.status = status;
+            this.body = body;
+            this.bodyBytes = bodyBytes;
+            this.truncated = truncated;
+            this.spillRef = spillRef;
+        }
+
+        public int getStatus() { return status; }
+
+        /** The body, or its first max-body-in-memory-bytes when {@link #isTruncated()}. */
+        public String getBody() { return body; }
+
+        /** Full body size in bytes, or -1 when reading stopped early and the server sent no Content-Length. */
+        public long getBodyBytes() { return bodyBytes; }
+
+        public boolean isTruncated() { return truncated; }
+
+        /** Spill store ref holding the full body (capped at the store's max size), or null. */
+        public String getSpillRef() { return spillRef; }
+
+        public boolean is2xx() { return status >= 200 && status < 300; }
+    }
+
+    /**
+     * Reads the body under the read and total timeouts. A read blocked on a silent server never returns on
+     * its own, so the check runs on the watchdog thread: it closes the stream, which fails the blocked read.
+     */
+    private final class BodyWatch {
+        private final InputStream in;
+        private final long deadline;
+        private final long readNanos;
+        private volatile long lastData = System.nanoTime();
+        private volatile Boolean expiredIdle;
+        private volatile boolean stopped;
+        private ScheduledFuture<?> check;
+
+        BodyWatch(InputStream in, long deadline, long readNanos) {
+            this.in = in;
+            this.deadline = deadline;
+            this.readNanos = readNanos;
+            schedule();
+        }
+
+        int read(byte[] buf) throws IOException {
+            int n;
+            try {
+                n = in.read(buf);
+            } catch (IOException e) {
+                if (expiredIdle != null) throw new BodyTimeoutException(expiredIdle);
+                throw e;
+            }
+            if (expiredIdle != null) throw new BodyTimeoutException(expiredIdle);
+            lastData = System.nanoTime();
+            return n;
+        }
+
+        void stop() {
+            synchronized (this) {
+                stopped = true;
+                if (check != null) check.cancel(false);
+            }
+        }
+
+        private synchronized void schedule() {
+            if (stopped) return;
+            long due = Math.min(deadline, lastData + readNanos);
+            try {
+                check = bodyWatchdog.schedule(this::fire, Math.max(0, due - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                // shutting down: reads fall back to the server closing the connection
+            }
+        }
+
+        private void fire() {
+            long now = System.nanoTime();
+            boolean idle = now - lastData >= readNanos;
+            if (!idle && now < deadline) {
+                // data arrived since this check was scheduled
+                schedule();
+                return;
+            }
+            if (stopped) return;
+            expiredIdle = idle && now < deadline;
+            try {
+                in.close();
+            } catch (IOException e) {
+                log.debug("Closing a timed out response body failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    // the read and total timeouts also cover reading the body, which happens after the response future completed
+    private static final class BodyTimeoutException extends RuntimeException {
+        final boolean idle;
+
+        BodyTimeoutException(boolean idle) {
+            this.idle = idle;
+        }
+    }
+
+    private static final class HostStats {
+        final Semaphore permits;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder requests = new LongAdder();
+        final LongAdder http2 = new LongAdder();
+
+        HostStats(int limit) {
+            this.permits = new Semaphore(limit);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.flow.workflow.model;
+
+/**
+ * How a workflow's nodes are executed.
+ * LINEAR runs nodes one after another by orderIndex (the default);
+ * DAG runs nodes as soon as the upstream nodes listed in {@link Node#getDependsOn()} are done.
+ */
+public enum ExecutionMode {
+    LINEAR,
+    DAG
+}
@@ -0,0 +1,14 @@
+package com.flow.workflow.model;
+
+/**
+ * What the scheduler does when a cron fire time was missed by more than {@code workflow.schedule.misfire-threshold-ms}
+ * (instance down, scheduler lagging, or the run queue refusing the run).
+ * SKIP drops the missed fires and waits for the next one;
+ * FIRE_ONCE runs once now for all of them;
+ * CATCH_UP runs once per missed fire time (capped by {@code workflow.schedule.max-catch-up}).
+ */
+public enum MisfirePolicy {
+    SKIP,
+    FIRE_ONCE,
+    CATCH_UP
+}
@@ -6,8 +6,10 @@ import jakarta.persistence.*;
 @Table(name = "nodes")
 public class Node {
 
+    // table-backed pooled ids (see workflow_run_log) so bulk imports insert in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "nodes_seq")
+    @SequenceGenerator(name = "nodes_seq", sequenceName = "nodes_seq", allocationSize = 50)
     private Long id;
 
     private String type;
@@ -18,6 +20,17 @@ public class Node {
     @Column(columnDefinition = "TEXT")
     private String config; // stored as JSON string
 
+    // config as the list view shows it, masked on write; maskedWith is the ConfigMasker version that made it
+    @Lob
+    @Column(columnDefinition = "TEXT")
+    private String maskedConfig;
+
+    @Column(length = 16)
+    private String maskedWith;
+
+    // DAG mode only: comma-separated orderIndex values of the upstream nodes, e.g. "1,2"
+    private String dependsOn;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "workflow_id")
     private Workflow workflow;
@@ -35,6 +48,15 @@ public class Node {
     public String getConfig() { return config; }
     public void setConfig(String config) { this.config = config; }
 
+    public String getMaskedConfig() { return maskedConfig; }
+    public void setMaskedConfig(String maskedConfig) { this.maskedConfig = maskedConfig; }
+
+    public String getMaskedWith() { return maskedWith; }
+    public void setMaskedWith(String maskedWith) { this.maskedWith = maskedWith; }
+
+    public String getDependsOn() { return dependsOn; }
+    public void setDependsOn(String dependsOn) { this.dependsOn = dependsOn; }
+
     public Workflow getWorkflow() { return workflow; }
     public void setWorkflow(Workflow workflow) { this.workflow = workflow; }
 }
@@ -0,0 +1,15 @@
+package com.flow.workflow.model;
+
+/**
+ * What a trigger (schedule, webhook, API) does when the workflow already has {@code maxConcurrentRuns} runs active.
+ * SKIP drops the trigger;
+ * QUEUE queues the run until a running one finishes;
+ * CANCEL_PREVIOUS cancels the active and pending runs and queues the new one;
+ * COALESCE folds the trigger into the run already pending, or queues one if none is.
+ */
+public enum OverlapPolicy {
+    SKIP,
+    QUEUE,
+    CANCEL_PREVIOUS,
+    COALESCE
+}
@@ -0,0 +1,46 @@
+package com.flow.workflow.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A run waiting for (or held by) a worker. A claim pushes {@code availableAt} out by the visibility timeout and
+ * the worker keeps pushing it while the run executes; a claim whose worker died simply becomes available again.
+ * The row is deleted once the run finished or suspended.
+ */
+@Entity
+@Table(name = "run_queue",
+        indexes = @Index(name = "idx_run_queue_available", columnList = "available_at, id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RunQueueItem {
+    // pooled table-backed ids (see workflow_run_log) so scheduler bursts insert in JDBC batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "run_queue_seq")
+    @SequenceGenerator(name = "run_queue_seq", sequenceName = "run_queue_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long workflowId;
+
+    // created up front for API submissions (the caller gets its id), otherwise by the first worker
+    private Long runId;
+
+    // SCHEDULE, WEBHOOK, API
+    @Column(length = 16)
+    private String source;
+
+    private LocalDateTime enqueuedAt;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    @Column(length = 128)
+    private String claimedBy;
+
+    private int attempts;
+}
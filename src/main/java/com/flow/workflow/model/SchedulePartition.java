@@ -0,0 +1,32 @@
+package com.flow.workflow.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * One slice of the scheduled workflows ({@code workflowId mod workflow.schedule.cluster.partitions}), leased by the
+ * instance that fires its schedules. The fencing token goes up on every change of owner, so an instance that lost
+ * the lease (paused past its expiry, say) can tell before firing.
+ */
+@Entity
+@Table(name = "schedule_partition")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SchedulePartition {
+
+    @Id
+    @Column(name = "partition_no")
+    private Integer partitionNo;
+
+    // instance id of the holder, null when free
+    @Column(length = 128)
+    private String owner;
+
+    private LocalDateTime leaseUntil;
+
+    private long fencingToken;
+}
@@ -0,0 +1,22 @@
+package com.flow.workflow.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/** A running instance taking part in scheduling; live while its heartbeat is within the lease TTL. */
+@Entity
+@Table(name = "scheduler_instance")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SchedulerInstance {
+
+    @Id
+    @Column(length = 128)
+    private String instanceId;
+
+    private LocalDateTime heartbeatAt;
+}
@@ -8,19 +8,44 @@ import java.util.List;
 @Table(name = "workflows")
 public class Workflow {
 
+    // table-backed pooled ids (see workflow_run_log) so bulk imports insert in JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflows_seq")
+    @SequenceGenerator(name = "workflows_seq", sequenceName = "workflows_seq", allocationSize = 50)
     private Long id;
 
     private String workflowName;
 
     private Boolean scheduled;
 
+    // Spring 6-field cron (null = workflow.schedule.default-cron) and what to do about missed fires (null = default)
+    private String cron;
+
+    @Enumerated(EnumType.STRING)
+    private MisfirePolicy misfirePolicy;
+
     private LocalDateTime lastRunAt;
 
+    // when the scheduler last fired this workflow's cron; written only by the scheduler, start of the misfire window
+    private LocalDateTime lastScheduledFireAt;
+
     @Enumerated(EnumType.STRING)
     private WorkflowStatus status;
 
+    // null is treated as LINEAR
+    @Enumerated(EnumType.STRING)
+    private ExecutionMode executionMode;
+
+    // retention: keep at most this many runs / runs of the last N days (null = workflow.retention.default-*)
+    private Integer retentionMaxRuns;
+    private Integer retentionDays;
+
+    // at most this many runs active (RUNNING or WAITING) at once, null = unlimited; overlapPolicy null = default
+    private Integer maxConcurrentRuns;
+
+    @Enumerated(EnumType.STRING)
+    private OverlapPolicy overlapPolicy;
+
     @OneToMany(mappedBy = "workflow", cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     private List<Node> nodes;
 
@@ -34,12 +59,36 @@ public class Workflow {
     public Boolean getScheduled() { return scheduled; }
     public void setScheduled(Boolean scheduled) { this.scheduled = scheduled; }
 
+    public String getCron() { return cron; }
+    public void setCron(String cron) { this.cron = cron; }
+
+    public MisfirePolicy getMisfirePolicy() { return misfirePolicy; }
+    public void setMisfirePolicy(MisfirePolicy misfirePolicy) { this.misfirePolicy = misfirePolicy; }
+
     public LocalDateTime getLastRunAt() { return lastRunAt; }
     public void setLastRunAt(LocalDateTime lastRunAt) { this.lastRunAt = lastRunAt; }
 
+    public LocalDateTime getLastScheduledFireAt() { return lastScheduledFireAt; }
+    public void setLastScheduledFireAt(LocalDateTime lastScheduledFireAt) { this.lastScheduledFireAt = lastScheduledFireAt; }
+
     public WorkflowStatus getStatus() { return status; }
     public void setStatus(WorkflowStatus status) { this.status = status; }
 
+    public ExecutionMode getExecutionMode() { return executionMode; }
+    public void setExecutionMode(ExecutionMode executionMode) { this.executionMode = executionMode; }
+
+    public Integer getRetentionMaxRuns() { return retentionMaxRuns; }
+    public void setRetentionMaxRuns(Integer retentionMaxRuns) { this.retentionMaxRuns = retentionMaxRuns; }
+
+    public Integer getRetentionDays() { return retentionDays; }
+    public void setRetentionDays(Integer retentionDays) { this.retentionDays = retentionDays; }
+
+    public Integer getMaxConcurrentRuns() { return maxConcurrentRuns; }
+    public void setMaxConcurrentRuns(Integer maxConcurrentRuns) { this.maxConcurrentRuns = maxConcurrentRuns; }
+
+    public OverlapPolicy getOverlapPolicy() { return overlapPolicy; }
+    public void setOverlapPolicy(OverlapPolicy overlapPolicy) { this.overlapPolicy = overlapPolicy; }
+
     public List<Node> getNodes() { return nodes; }
     public void setNodes(List<Node> nodes) { this.nodes = nodes; }
 }
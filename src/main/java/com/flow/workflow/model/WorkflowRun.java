@@ -8,7 +8,14 @@ import java.util.List;
 
 @Entity
 // Map to the existing DB table name (singular) so FK relationships match the DB
-@Table(name = "workflow_run")
+@Table(name = "workflow_run",
+        indexes = {
+                @Index(name = "idx_workflow_run_status_resume_at", columnList = "status, resume_at"),
+                // keyset run history per workflow: (startedAt, id) cursor
+                @Index(name = "idx_workflow_run_workflow_started", columnList = "workflow_id, started_at, id"),
+                // orphaned-run reaper: RUNNING runs by heartbeat
+                @Index(name = "idx_workflow_run_status_heartbeat", columnList = "status, heartbeat_at")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,9 +33,21 @@ public class WorkflowRun {
     @Enumerated(EnumType.STRING)
     private WorkflowStatus status;
 
+    // when the run was created (for queued runs: enqueued); fixed, as the run history keyset sorts on it
     private LocalDateTime startedAt;
+    // when execution began: startedAt, or later for a run that waited QUEUED (null on rows from before)
+    private LocalDateTime executionStartedAt;
     private LocalDateTime endedAt;
 
+    // set while the run is WAITING on a DELAY node: when to resume and which node (sorted index) comes next
+    private LocalDateTime resumeAt;
+    private Integer resumeNodeIndex;
+
+    // instance executing the run and its last sign of life while RUNNING (see RunHeartbeatService)
+    @Column(length = 128)
+    private String ownerId;
+    private LocalDateTime heartbeatAt;
+
     // optional convenience - keeps in-sync JPA mapping (not strictly required)
     @OneToMany(mappedBy = "run", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<WorkflowRunLog> logs;
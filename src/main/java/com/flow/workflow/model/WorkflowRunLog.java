@@ -6,14 +6,22 @@ import lombok.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "workflow_run_log")
+@Table(name = "workflow_run_log",
+        indexes = {
+                @Index(name = "idx_workflow_run_log_run_started", columnList = "run_id, started_at"),
+                // blob sweep: which candidate blobs are still referenced
+                @Index(name = "idx_workflow_run_log_output_ref", columnList = "output_ref")
+        })
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class WorkflowRunLog {
+    // MySQL has no sequences, so Hibernate backs this with a workflow_run_log_seq table and hands out
+    // blocks of 50 ids (pooled-lo); unlike IDENTITY this lets log inserts go out as JDBC batches
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "workflow_run_log_seq")
+    @SequenceGenerator(name = "workflow_run_log_seq", sequenceName = "workflow_run_log_seq", allocationSize = 50)
     private Long id;
 
     // owning run
@@ -33,6 +41,9 @@ public class WorkflowRunLog {
     @Column(columnDefinition = "TEXT")
     private String error;
 
+    // SpillStore ref of the full output when it was too large for the output column
+    private String outputRef;
+
     private LocalDateTime startedAt;
     private LocalDateTime endedAt;
 }
@@ -0,0 +1,48 @@
+package com.flow.workflow.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Running aggregate of a workflow's runs ({@code nodeType = "*"}) or of its nodes of one type,
+ * updated as runs finalize so dashboards read one row instead of the run history.
+ */
+@Entity
+@Table(name = "workflow_run_stats",
+        uniqueConstraints = @UniqueConstraint(name = "uk_workflow_run_stats_scope", columnNames = {"workflow_id", "node_type"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class WorkflowRunStats {
+
+    public static final String RUN_SCOPE = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "workflow_id", nullable = false)
+    private Long workflowId;
+
+    // "*" for whole runs, otherwise the node type
+    @Column(name = "node_type", nullable = false, length = 64)
+    private String nodeType;
+
+    private long successCount;
+    private long failedCount;
+    private long canceledCount;
+
+    private LocalDateTime lastSuccessAt;
+    private LocalDateTime lastFailureAt;
+
+    private long totalDurationMs;
+    private long maxDurationMs;
+
+    // LatencySketch bytes
+    @Lob
+    @Column(columnDefinition = "BLOB")
+    private byte[] durationSketch;
+}
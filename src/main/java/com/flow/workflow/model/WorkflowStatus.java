@@ -7,7 +7,9 @@ package com.flow.workflow.model;
 public enum WorkflowStatus {
     DRAFT,
     PUBLISHED,
+    QUEUED,
     RUNNING,
+    WAITING,
     SUCCESS,
     FAILED,
     CANCELED
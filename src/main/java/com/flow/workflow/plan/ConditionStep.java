@@ -0,0 +1,97 @@
+package com.flow.workflow.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flow.workflow.executor.NodeResult;
+import com.flow.workflow.executor.RunContext;
+import com.flow.workflow.model.Node;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * CONDITION node with its "left > right" expression parsed once. Each side is an integer literal or a
+ * reference to an upstream node's result by orderIndex: {@code {{2.status}}} (HTTP status code) or
+ * {@code {{2.json.current_weather.temperature}}} (a field of its JSON output).
+ */
+public final class ConditionStep extends PlanStep {
+
+    private static final Pattern REF = Pattern.compile("\\{\\{\\s*(\\d+)\\.(status|json(?:\\.[^}\\s]+)?)\\s*}}");
+
+    private final String condition;
+    private final boolean supported;
+    private final Operand left;
+    private final Operand right;
+    private final String trueMessage;
+    private final String falseMessage;
+
+    ConditionStep(Node node, List<Integer> dependsOn, String condition, boolean supported, Operand left, Operand right,
+                  String trueMessage, String falseMessage) {
+        super(node, dependsOn);
+        this.condition = condition;
+        this.supported = supported;
+        this.left = left;
+        this.right = right;
+        this.trueMessage = trueMessage;
+        this.falseMessage = falseMessage;
+    }
+
+    public String evaluate(RunContext context) {
+        if (!supported) return "Unsupported condition format: " + condition;
+        return (left.resolve(context) > right.resolve(context)) ? trueMessage : falseMessage;
+    }
+
+    public String getCondition() { return condition; }
+
+    /** Parse one side of the expression; throws for anything that is neither an integer nor a reference. */
+    static Operand parseOperand(String raw) {
+        String text = raw.trim();
+        Matcher m = REF.matcher(text);
+        if (m.matches()) {
+            String path = m.group(2);
+            String jsonPointer = path.startsWith("json.") ? "/" + path.substring(5).replace('.', '/') : null;
+            return new Operand(text, null, Integer.parseInt(m.group(1)), "status".equals(path), jsonPointer);
+        }
+        return new Operand(text, (double) Integer.parseInt(text), null, false, null);
+    }
+
+    static final class Operand {
+        private final String text;
+        private final Double literal;
+        private final Integer orderIndex;
+        private final boolean statusCode;
+        private final String jsonPointer;
+
+        private Operand(String text, Double literal, Integer orderIndex, boolean statusCode, String jsonPointer) {
+            this.text = text;
+            this.literal = literal;
+            this.orderIndex = orderIndex;
+            this.statusCode = statusCode;
+            this.jsonPointer = jsonPointer;
+        }
+
+        double resolve(RunContext context) {
+            if (literal != null) return literal;
+            NodeResult r = context.byOrderIndex(orderIndex);
+            if (r != null) {
+                if (statusCode && r.getStatusCode() != null) return r.getStatusCode();
+                JsonNode json = r.getJson();
+                if (jsonPointer == null && json != null && json.isNumber()) return json.asDouble();
+                if (jsonPointer != null && json != null) {
+                    JsonNode v = json.at(jsonPointer);
+                    if (v.isNumber() || (v.isTextual() && isNumeric(v.asText()))) return v.asDouble();
+                }
+            }
+            throw new RuntimeException("Condition node failed: no numeric value for " + text);
+        }
+
+        private static boolean isNumeric(String s) {
+            try {
+                Double.parseDouble(s);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.model.Node;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * DELAY node. Both engines suspend the run (WAITING until resumeAt) rather than wait in memory.
+ */
+public final class DelayStep extends PlanStep {
+
+    private final Duration delay;
+
+    DelayStep(Node node, List<Integer> dependsOn, Duration delay) {
+        super(node, dependsOn);
+        this.delay = delay;
+    }
+
+    public Duration getDelay() { return delay; }
+}
@@ -0,0 +1,23 @@
+package com.flow.workflow.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flow.workflow.model.Node;
+
+import java.util.List;
+
+/**
+ * Step for node types contributed through the NodeExecutor SPI: the config is parsed once
+ * and handed to the executor as a tree.
+ */
+public final class GenericStep extends PlanStep {
+
+    private final JsonNode config;
+
+    GenericStep(Node node, List<Integer> dependsOn, JsonNode config) {
+        super(node, dependsOn);
+        this.config = config == null ? null : config.deepCopy();
+    }
+
+    /** Parsed node config (may be null). Shared across runs — must not be modified. */
+    public JsonNode getConfig() { return config; }
+}
@@ -0,0 +1,40 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.http.HttpTimeouts;
+import com.flow.workflow.model.Node;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * HTTP node with its URL expanded, method resolved, headers built and body serialized up front.
+ */
+public final class HttpStep extends PlanStep {
+
+    private final URI uri;
+    private final HttpMethod method;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final HttpTimeouts timeouts;
+
+    HttpStep(Node node, List<Integer> dependsOn, URI uri, HttpMethod method, HttpHeaders headers, byte[] body,
+             HttpTimeouts timeouts) {
+        super(node, dependsOn);
+        this.uri = uri;
+        this.method = method;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.timeouts = timeouts;
+    }
+
+    public URI getUri() { return uri; }
+    public HttpMethod getMethod() { return method; }
+    public HttpHeaders getHeaders() { return headers; }
+
+    /** Serialized request body, or null. Shared across runs — must not be modified. */
+    public byte[] getBody() { return body; }
+
+    public HttpTimeouts getTimeouts() { return timeouts; }
+}
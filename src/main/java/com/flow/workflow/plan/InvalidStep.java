@@ -0,0 +1,21 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.model.Node;
+
+import java.util.List;
+
+/**
+ * Node whose config could not be compiled (or whose type is unknown). Executing it fails
+ * with the compile error, so a bad node fails its own log entry rather than the whole plan.
+ */
+public final class InvalidStep extends PlanStep {
+
+    private final String error;
+
+    InvalidStep(Node node, List<Integer> dependsOn, String error) {
+        super(node, dependsOn);
+        this.error = error;
+    }
+
+    public String getError() { return error; }
+}
@@ -0,0 +1,31 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.http.HttpTimeouts;
+import com.flow.workflow.model.Node;
+
+import java.util.List;
+
+/**
+ * NOTIFY node: resolved webhook URL and the optional message configured on the node.
+ */
+public final class NotifyStep extends PlanStep {
+
+    private final String webhookUrl;
+    private final String configuredMessage;
+    private final HttpTimeouts timeouts;
+
+    NotifyStep(Node node, List<Integer> dependsOn, String webhookUrl, String configuredMessage,
+               HttpTimeouts timeouts) {
+        super(node, dependsOn);
+        this.webhookUrl = webhookUrl;
+        this.configuredMessage = configuredMessage;
+        this.timeouts = timeouts;
+    }
+
+    /** May be null when the node config has no webhook — the executor reports that as a failure. */
+    public String getWebhookUrl() { return webhookUrl; }
+
+    public String getConfiguredMessage() { return configuredMessage; }
+
+    public HttpTimeouts getTimeouts() { return timeouts; }
+}
@@ -0,0 +1,34 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.model.Node;
+
+import java.util.List;
+
+/**
+ * One compiled, immutable node of a {@link WorkflowPlan}. Subclasses carry the node config
+ * already parsed into typed fields, so executing a step never touches JSON.
+ */
+public abstract class PlanStep {
+
+    private final Long nodeId;
+    private final String type;
+    private final Integer orderIndex;
+    private final List<Integer> dependsOn;
+
+    protected PlanStep(Node node, List<Integer> dependsOn) {
+        this.nodeId = node.getId();
+        this.type = node.getType();
+        this.orderIndex = node.getOrderIndex();
+        this.dependsOn = List.copyOf(dependsOn);
+    }
+
+    public Long getNodeId() { return nodeId; }
+
+    /** Node type as stored on the node (used for run logs). */
+    public String getType() { return type; }
+
+    public Integer getOrderIndex() { return orderIndex; }
+
+    /** orderIndex values of upstream steps (DAG workflows). */
+    public List<Integer> getDependsOn() { return dependsOn; }
+}
@@ -0,0 +1,116 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.MisfirePolicy;
+import com.flow.workflow.model.Node;
+import com.flow.workflow.model.OverlapPolicy;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.util.ConfigMasker;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a workflow and its nodes, with the plan compiled from it. Shared across threads by
+ * {@link WorkflowDefinitionCache}; never attached to a persistence context.
+ */
+public final class WorkflowDefinition {
+
+    /** Node columns as stored plus the masked config for read APIs; nodes are sorted by orderIndex. */
+    public record NodeDefinition(Long id, String type, String config, String maskedConfig, Integer orderIndex,
+                                 String dependsOn) {}
+
+    private final Long id;
+    private final String workflowName;
+    private final Boolean scheduled;
+    private final String cron;
+    private final MisfirePolicy misfirePolicy;
+    private final WorkflowStatus status;
+    private final LocalDateTime lastRunAt;
+    private final ExecutionMode executionMode;
+    private final Integer retentionMaxRuns;
+    private final Integer retentionDays;
+    private final Integer maxConcurrentRuns;
+    private final OverlapPolicy overlapPolicy;
+    private final List<NodeDefinition> nodes;
+    private final WorkflowPlan plan;
+    private final RuntimeException planError;
+
+    private WorkflowDefinition(Long id, String workflowName, Boolean scheduled, String cron,
+                               MisfirePolicy misfirePolicy, WorkflowStatus status, LocalDateTime lastRunAt, ExecutionMode executionMode, Integer retentionMaxRuns,
+                               Integer retentionDays, Integer maxConcurrentRuns, OverlapPolicy overlapPolicy,
+                               List<NodeDefinition> nodes, WorkflowPlan plan,
+                               RuntimeException planError) {
+        this.id = id;
+        this.workflowName = workflowName;
+        this.scheduled = scheduled;
+        this.cron = cron;
+        this.misfirePolicy = misfirePolicy;
+        this.status = status;
+        this.lastRunAt = lastRunAt;
+        this.executionMode = executionMode;
+        this.retentionMaxRuns = retentionMaxRuns;
+        this.retentionDays = retentionDays;
+        this.maxConcurrentRuns = maxConcurrentRuns;
+        this.overlapPolicy = overlapPolicy;
+        this.nodes = nodes;
+        this.plan = plan;
+        this.planError = planError;
+    }
+
+    /**
+     * Snapshot a workflow whose nodes are loaded, compiling its plan; node configs masked on write are reused.
+     * An invalid plan is kept as its error.
+     */
+    static WorkflowDefinition of(Workflow workflow, WorkflowPlanCompiler compiler, ConfigMasker masker) {
+        List<NodeDefinition> nodes = new ArrayList<>();
+        if (workflow.getNodes() != null) {
+            for (Node n : workflow.getNodes()) {
+                nodes.add(new NodeDefinition(n.getId(), n.getType(), n.getConfig(),
+                        masker.masked(n.getConfig(), n.getMaskedConfig(), n.getMaskedWith()),
+                        n.getOrderIndex(), n.getDependsOn()));
+            }
+        }
+        nodes.sort(Comparator.comparing(NodeDefinition::orderIndex, Comparator.nullsLast(Comparator.naturalOrder())));
+        WorkflowPlan plan = null;
+        RuntimeException planError = null;
+        try {
+            plan = compiler.compile(workflow);
+        } catch (RuntimeException e) {
+            planError = e;
+        }
+        return new WorkflowDefinition(workflow.getId(), workflow.getWorkflowName(), workflow.getScheduled(),
+                workflow.getCron(), workflow.getMisfirePolicy(), workflow.getStatus(), workflow.getLastRunAt(), workflow.getExecutionMode(),
+                workflow.getRetentionMaxRuns(), workflow.getRetentionDays(), workflow.getMaxConcurrentRuns(),
+                workflow.getOverlapPolicy(), List.copyOf(nodes), plan, planError);
+    }
+
+    /** Same definition after a run finished; the run metadata is the only part runs change. */
+    WorkflowDefinition withLastRun(LocalDateTime lastRunAt, WorkflowStatus status) {
+        return new WorkflowDefinition(id, workflowName, scheduled, cron, misfirePolicy, status, lastRunAt, executionMode,
+                retentionMaxRuns, retentionDays, maxConcurrentRuns, overlapPolicy, nodes, plan, planError);
+    }
+
+    public Long getId() { return id; }
+    public String getWorkflowName() { return workflowName; }
+    public Boolean getScheduled() { return scheduled; }
+    public String getCron() { return cron; }
+    public MisfirePolicy getMisfirePolicy() { return misfirePolicy; }
+    public WorkflowStatus getStatus() { return status; }
+    public LocalDateTime getLastRunAt() { return lastRunAt; }
+    public ExecutionMode getExecutionMode() { return executionMode; }
+    public Integer getRetentionMaxRuns() { return retentionMaxRuns; }
+    public Integer getRetentionDays() { return retentionDays; }
+    public Integer getMaxConcurrentRuns() { return maxConcurrentRuns; }
+    public OverlapPolicy getOverlapPolicy() { return overlapPolicy; }
+    public List<NodeDefinition> getNodes() { return nodes; }
+
+    /** Compiled plan; throws the compile error (unknown upstream, cycle, ...) for an invalid definition. */
+    public WorkflowPlan getPlan() {
+        if (planError != null) throw planError;
+        return plan;
+    }
+}
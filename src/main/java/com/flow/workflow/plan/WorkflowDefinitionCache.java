@@ -0,0 +1,133 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.util.ConfigMasker;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of {@link WorkflowDefinition} snapshots keyed by workflow id, bounded by
+ * {@code workflow.definition-cache.max-size} (LRU) and {@code workflow.definition-cache.ttl-seconds}.
+ * A miss loads the workflow with its nodes in one query and compiles the plan, so steady-state runs and
+ * detail reads make no definition queries. WorkflowController invalidates an entry whenever it changes
+ * the workflow; finished runs patch lastRunAt/status in place via {@link #recordRun}.
+ */
+@Component
+public class WorkflowDefinitionCache {
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private WorkflowPlanCompiler compiler;
+
+    @Autowired
+    private ConfigMasker masker;
+
+    @Value("${workflow.definition-cache.max-size:1000}")
+    private int maxSize = 1000;
+
+    @Value("${workflow.definition-cache.ttl-seconds:300}")
+    private long ttlSeconds = 300;
+
+    private record Entry(WorkflowDefinition definition, long loadedAt) {}
+
+    // access-ordered for LRU eviction; guarded by itself
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // bumped by every invalidation: a load that started before one must not cache what it read
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /** Snapshot of the workflow, loading it on a miss; empty if the workflow does not exist. */
+    public Optional<WorkflowDefinition> get(Long workflowId) {
+        if (workflowId == null) return Optional.empty();
+        WorkflowDefinition cached = getIfPresent(workflowId);
+        if (cached != null) return Optional.of(cached);
+
+        misses.increment();
+        long loadGeneration = generation.get();
+        Optional<WorkflowDefinition> loaded = workflowRepo.findWithNodesById(workflowId)
+                .map(w -> WorkflowDefinition.of(w, compiler, masker));
+        loaded.ifPresent(definition -> {
+            synchronized (entries) {
+                if (generation.get() != loadGeneration) return;
+                entries.put(workflowId, new Entry(definition, System.nanoTime()));
+                evictOverflow();
+            }
+        });
+        return loaded;
+    }
+
+    /** Cached snapshot without loading; counts a hit when present. */
+    public WorkflowDefinition getIfPresent(Long workflowId) {
+        synchronized (entries) {
+            Entry e = entries.get(workflowId);
+            if (e == null) return null;
+            if (System.nanoTime() - e.loadedAt() > ttlSeconds * 1_000_000_000L) {
+                entries.remove(workflowId);
+                evictions.increment();
+                return null;
+            }
+            hits.increment();
+            return e.definition();
+        }
+    }
+
+    public void invalidate(Long workflowId) {
+        if (workflowId == null) return;
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(workflowId);
+        }
+        invalidations.increment();
+    }
+
+    /** Apply a finished run's lastRunAt/status (the DB row is updated alongside) without dropping the entry. */
+    public void recordRun(Long workflowId, LocalDateTime lastRunAt, WorkflowStatus status) {
+        if (workflowId == null) return;
+        synchronized (entries) {
+            Entry e = entries.get(workflowId);
+            if (e != null) {
+                entries.put(workflowId, new Entry(e.definition().withLastRun(lastRunAt, status), e.loadedAt()));
+            }
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> out = new LinkedHashMap<>();
+        synchronized (entries) {
+            out.put("size", entries.size());
+        }
+        out.put("maxSize", maxSize);
+        out.put("ttlSeconds", ttlSeconds);
+        out.put("hits", h);
+        out.put("misses", m);
+        out.put("hitRate", h + m == 0 ? null : (double) h / (h + m));
+        out.put("evictions", evictions.sum());
+        out.put("invalidations", invalidations.sum());
+        return out;
+    }
+
+    private void evictOverflow() {
+        Iterator<Long> it = entries.keySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+}
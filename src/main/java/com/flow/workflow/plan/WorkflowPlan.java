@@ -0,0 +1,41 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.model.ExecutionMode;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compiled form of a workflow definition: steps sorted by (orderIndex, id) and,
+ * for DAG workflows, the validated dependency graph. Built by {@link WorkflowPlanCompiler}
+ * and shared across runs through {@link WorkflowDefinitionCache}.
+ */
+public final class WorkflowPlan {
+
+    private final Long workflowId;
+    private final ExecutionMode executionMode;
+    private final List<PlanStep> steps;
+    private final Map<Long, Integer> upstreamCounts;
+    private final Map<Long, List<PlanStep>> downstream;
+
+    WorkflowPlan(Long workflowId, ExecutionMode executionMode, List<PlanStep> steps,
+                 Map<Long, Integer> upstreamCounts, Map<Long, List<PlanStep>> downstream) {
+        this.workflowId = workflowId;
+        this.executionMode = executionMode;
+        this.steps = List.copyOf(steps);
+        this.upstreamCounts = Map.copyOf(upstreamCounts);
+        this.downstream = Map.copyOf(downstream);
+    }
+
+    public Long getWorkflowId() { return workflowId; }
+    public ExecutionMode getExecutionMode() { return executionMode; }
+
+    /** Steps in linear execution order; the index is what a suspended run stores as its resume point. */
+    public List<PlanStep> getSteps() { return steps; }
+
+    /** DAG only: number of upstream steps per node id. */
+    public Map<Long, Integer> getUpstreamCounts() { return upstreamCounts; }
+
+    /** DAG only: steps that depend on the given node id. */
+    public List<PlanStep> downstreamOf(Long nodeId) { return downstream.getOrDefault(nodeId, List.of()); }
+}
@@ -0,0 +1,242 @@
+package com.flow.workflow.plan;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.http.HttpTimeouts;
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.Node;
+import com.flow.workflow.model.Workflow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.DefaultUriBuilderFactory;
+import org.springframework.web.util.UriTemplateHandler;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Turns a workflow's nodes into a {@link WorkflowPlan}. All node JSON is parsed here, once per
+ * workflow definition, instead of on every run.
+ */
+@Component
+public class WorkflowPlanCompiler {
+
+    @Autowired
+    private NodeExecutorRegistry executorRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // same expansion/encoding RestTemplate applies to String URLs
+    private final UriTemplateHandler uriTemplateHandler = new DefaultUriBuilderFactory();
+
+    public WorkflowPlan compile(Workflow workflow) {
+        ExecutionMode mode = workflow.getExecutionMode() == null ? ExecutionMode.LINEAR : workflow.getExecutionMode();
+
+        List<Node> nodes = workflow.getNodes() == null ? List.of() : new ArrayList<>(workflow.getNodes());
+        // tie-break on id so the step index stored for resumption is stable
+        nodes.sort(Comparator.comparing(Node::getOrderIndex, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Node::getId));
+
+        List<PlanStep> steps = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            steps.add(compileStep(node, parseDependsOn(node.getDependsOn())));
+        }
+
+        Map<Long, Integer> upstreamCounts = new HashMap<>();
+        Map<Long, List<PlanStep>> downstream = new HashMap<>();
+        if (mode == ExecutionMode.DAG) {
+            buildGraph(steps, upstreamCounts, downstream);
+        }
+        return new WorkflowPlan(workflow.getId(), mode, steps, upstreamCounts, downstream);
+    }
+
+    PlanStep compileStep(Node node, List<Integer> dependsOn) {
+        String type = node.getType() == null ? "" : node.getType().toUpperCase();
+        try {
+            switch (type) {
+                case "HTTP":
+                    return compileHttp(node, dependsOn);
+                case "NOTIFY":
+                    return compileNotify(node, dependsOn);
+                case "CONDITION":
+                    return compileCondition(node, dependsOn);
+                case "DELAY":
+                    JsonNode cfg = objectMapper.readTree(node.getConfig());
+                    return new DelayStep(node, dependsOn, Duration.ofSeconds(Math.max(0, cfg.get("seconds").asInt())));
+                default:
+                    if (executorRegistry.supports(type)) {
+                        // pluggable node type: hand its executor the parsed config
+                        JsonNode config = node.getConfig() == null ? null : objectMapper.readTree(node.getConfig());
+                        return new GenericStep(node, dependsOn, config);
+                    }
+                    return new InvalidStep(node, dependsOn, "Unknown node type: " + node.getType());
+            }
+        } catch (Exception e) {
+            // same wording the node executors used when they parsed config themselves
+            return new InvalidStep(node, dependsOn, failureLabel(type) + " failed: " + e.getMessage());
+        }
+    }
+
+    private static String failureLabel(String type) {
+        switch (type) {
+            case "HTTP": return "HTTP node";
+            case "NOTIFY": return "Notify node";
+            case "CONDITION": return "Condition node";
+            case "DELAY": return "Delay node";
+            default: return "Node";
+        }
+    }
+
+    private HttpStep compileHttp(Node node, List<Integer> dependsOn) throws Exception {
+        JsonNode configJson = objectMapper.readTree(node.getConfig());
+        String url = configJson.get("url").asText();
+        String method = configJson.has("method")
+                ? configJson.get("method").asText().toUpperCase()
+                : "GET";
+
+        HttpHeaders headers = new HttpHeaders();
+        if (configJson.has("headers")) {
+            configJson.get("headers").fields().forEachRemaining(entry -> {
+                headers.add(entry.getKey(), entry.getValue().asText());
+            });
+        }
+
+        byte[] body = null;
+        if (configJson.has("body")) {
+            body = configJson.get("body").toString().getBytes(StandardCharsets.UTF_8);
+            // body is always serialized JSON, so say so unless the node overrides it
+            if (headers.getContentType() == null) headers.setContentType(MediaType.APPLICATION_JSON);
+        }
+
+        HttpMethod httpMethod = "POST".equals(method) ? HttpMethod.POST
+                : "PUT".equals(method) ? HttpMethod.PUT
+                : HttpMethod.GET;
+        return new HttpStep(node, dependsOn, uriTemplateHandler.expand(url), httpMethod, headers, body,
+                timeouts(configJson));
+    }
+
+    private NotifyStep compileNotify(Node node, List<Integer> dependsOn) {
+        JsonNode cfg;
+        try {
+            cfg = node.getConfig() == null ? null : objectMapper.readTree(node.getConfig());
+        } catch (Exception e) {
+            cfg = null;
+        }
+        // unreadable config behaves like a missing webhook: NotifyExecutor logs the failure
+        if (cfg == null) return new NotifyStep(node, dependsOn, null, null, HttpTimeouts.DEFAULTS);
+
+        // older config might use "webhook" or "url" for the webhook, "text" or "body" for the message
+        String webhookUrl = firstNonBlank(cfg, "webhookUrl", "webhook", "url");
+        String message = null;
+        for (String key : new String[]{"message", "text", "body"}) {
+            if (cfg.has(key)) {
+                message = cfg.get(key).asText(null);
+                break;
+            }
+        }
+        return new NotifyStep(node, dependsOn, webhookUrl, message, timeouts(cfg));
+    }
+
+    /** Optional per-node overrides of the outbound client's timeouts; timeoutMs caps the whole exchange. */
+    private static HttpTimeouts timeouts(JsonNode cfg) {
+        Integer connect = positiveInt(cfg, "connectTimeoutMs");
+        Integer read = positiveInt(cfg, "readTimeoutMs");
+        Integer total = positiveInt(cfg, "timeoutMs");
+        if (connect == null && read == null && total == null) return HttpTimeouts.DEFAULTS;
+        return new HttpTimeouts(connect, read, total);
+    }
+
+    private static Integer positiveInt(JsonNode cfg, String key) {
+        JsonNode v = cfg.get(key);
+        if (v == null || !v.canConvertToInt() || v.asInt() <= 0) return null;
+        return v.asInt();
+    }
+
+    private ConditionStep compileCondition(Node node, List<Integer> dependsOn) throws Exception {
+        JsonNode configJson = objectMapper.readTree(node.getConfig());
+        String condition = configJson.get("condition").asText();
+        String trueMessage = configJson.has("trueMessage") ? configJson.get("trueMessage").asText() : "Condition true";
+        String falseMessage = configJson.has("falseMessage") ? configJson.get("falseMessage").asText() : "Condition false";
+
+        if (condition.contains(">")) {
+            String[] parts = condition.split(">");
+            ConditionStep.Operand left = ConditionStep.parseOperand(parts[0]);
+            ConditionStep.Operand right = ConditionStep.parseOperand(parts[1]);
+            return new ConditionStep(node, dependsOn, condition, true, left, right, trueMessage, falseMessage);
+        }
+        return new ConditionStep(node, dependsOn, condition, false, null, null, trueMessage, falseMessage);
+    }
+
+    /**
+     * Validate the DAG (unique orderIndex, known upstreams, no cycles) and precompute its edges.
+     */
+    private void buildGraph(List<PlanStep> steps, Map<Long, Integer> upstreamCounts, Map<Long, List<PlanStep>> downstream) {
+        Map<Integer, PlanStep> byIndex = new HashMap<>();
+        for (PlanStep s : steps) {
+            if (s.getOrderIndex() == null) {
+                throw new RuntimeException("DAG node " + s.getNodeId() + " has no orderIndex");
+            }
+            if (byIndex.put(s.getOrderIndex(), s) != null) {
+                throw new RuntimeException("Duplicate orderIndex " + s.getOrderIndex() + " in DAG workflow");
+            }
+        }
+
+        Map<Long, List<PlanStep>> edges = new HashMap<>();
+        for (PlanStep s : steps) {
+            upstreamCounts.put(s.getNodeId(), s.getDependsOn().size());
+            for (Integer idx : s.getDependsOn()) {
+                PlanStep up = byIndex.get(idx);
+                if (up == null) {
+                    throw new RuntimeException("Node " + s.getOrderIndex() + " depends on unknown node " + idx);
+                }
+                edges.computeIfAbsent(up.getNodeId(), k -> new ArrayList<>()).add(s);
+            }
+        }
+
+        // Kahn's algorithm on a copy of the in-degrees: every step must be reachable from the roots
+        Map<Long, Integer> remaining = new HashMap<>(upstreamCounts);
+        Deque<PlanStep> queue = new ArrayDeque<>();
+        for (PlanStep s : steps) {
+            if (remaining.get(s.getNodeId()) == 0) queue.add(s);
+        }
+        int visited = 0;
+        while (!queue.isEmpty()) {
+            PlanStep s = queue.poll();
+            visited++;
+            for (PlanStep next : edges.getOrDefault(s.getNodeId(), List.of())) {
+                if (remaining.merge(next.getNodeId(), -1, Integer::sum) == 0) queue.add(next);
+            }
+        }
+        if (visited != steps.size()) {
+            throw new RuntimeException("DAG workflow has a dependency cycle");
+        }
+
+        edges.forEach((id, list) -> downstream.put(id, List.copyOf(list)));
+    }
+
+    /**
+     * Parse a node's dependsOn column ("1,2") into orderIndex values. Blank means no upstream nodes.
+     */
+    public static List<Integer> parseDependsOn(String raw) {
+        if (raw == null || raw.isBlank()) return List.of();
+        List<Integer> result = new ArrayList<>();
+        for (String part : raw.split(",")) {
+            String p = part.trim();
+            if (!p.isEmpty()) result.add(Integer.parseInt(p));
+        }
+        return result;
+    }
+
+    private static String firstNonBlank(JsonNode cfg, String... keys) {
+        for (String key : keys) {
+            JsonNode v = cfg.path(key);
+            if (!v.isMissingNode() && !v.asText().isBlank()) return v.asText();
+        }
+        return null;
+    }
+}
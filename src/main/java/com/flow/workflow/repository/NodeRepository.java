@@ -1,10 +1,36 @@
 package com.flow.workflow.repository;
 
 import com.flow.workflow.model.Node;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface NodeRepository extends JpaRepository<Node, Long> {
     List<Node> findByWorkflowIdOrderByOrderIndex(Long workflowId);
+
+    // nodes of many workflows as flat rows (no entities, no workflow join) for the list view
+    @Query("select n.workflow.id as workflowId, n.id as id, n.type as type, n.config as config, "
+            + "n.maskedConfig as maskedConfig, n.maskedWith as maskedWith, "
+            + "n.orderIndex as orderIndex, n.dependsOn as dependsOn "
+            + "from Node n where n.workflow.id in :workflowIds order by n.workflow.id, n.orderIndex")
+    List<NodeSummary> findSummariesByWorkflowIds(@Param("workflowIds") Collection<Long> workflowIds);
+
+    // nodes written before configs were masked on write, or masked under another sensitive key set
+    @Query("select n from Node n where n.maskedWith is null or n.maskedWith <> :version order by n.id")
+    List<Node> findMaskedWithOther(@Param("version") String version, Pageable pageable);
+
+    interface NodeSummary {
+        Long getWorkflowId();
+        Long getId();
+        String getType();
+        String getConfig();
+        String getMaskedConfig();
+        String getMaskedWith();
+        Integer getOrderIndex();
+        String getDependsOn();
+    }
 }
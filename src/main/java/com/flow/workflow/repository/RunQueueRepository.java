@@ -0,0 +1,55 @@
+package com.flow.workflow.repository;
+
+import com.flow.workflow.model.RunQueueItem;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface RunQueueRepository extends JpaRepository<RunQueueItem, Long> {
+
+    // SELECT ... FOR UPDATE SKIP LOCKED (lock timeout -2): concurrent claimers each get different rows
+    // instead of queueing on each other's locks
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select q from RunQueueItem q where q.availableAt <= :now order by q.availableAt, q.id")
+    List<RunQueueItem> findClaimable(@Param("now") LocalDateTime now, Pageable pageable);
+
+    // visibility heartbeat for the runs this worker is executing
+    @Modifying
+    @Query("update RunQueueItem q set q.availableAt = :until where q.claimedBy = :worker and q.id in :ids")
+    int extend(@Param("worker") String worker, @Param("ids") Collection<Long> ids, @Param("until") LocalDateTime until);
+
+    @Modifying
+    @Query("update RunQueueItem q set q.runId = :runId where q.id = :id")
+    int setRunId(@Param("id") Long id, @Param("runId") Long runId);
+
+    // only the current claim holder may complete; a worker that lost its claim leaves the row to the new one
+    @Modifying
+    @Query("delete from RunQueueItem q where q.id = :id and q.claimedBy = :worker")
+    int complete(@Param("id") Long id, @Param("worker") String worker);
+
+    // a trigger of the workflow still waiting to be picked up (COALESCE folds new triggers into it)
+    boolean existsByWorkflowIdAndClaimedByIsNull(Long workflowId);
+
+    // CANCEL_PREVIOUS: drop the workflow's queued triggers that have no run yet (and are not being picked up)
+    @Modifying
+    @Query("delete from RunQueueItem q where q.workflowId = :workflowId and q.runId is null and q.claimedBy is null")
+    int deletePending(@Param("workflowId") Long workflowId);
+
+    // hand claims back that could not be dispatched (pool full) or were deferred (workflow at its run limit),
+    // visible again at :now
+    @Modifying
+    @Query("update RunQueueItem q set q.availableAt = :now, q.claimedBy = null, q.attempts = q.attempts - 1 "
+            + "where q.claimedBy = :worker and q.id in :ids")
+    int release(@Param("worker") String worker, @Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,44 @@
+package com.flow.workflow.repository;
+
+import com.flow.workflow.model.SchedulePartition;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface SchedulePartitionRepository extends JpaRepository<SchedulePartition, Integer> {
+
+    @Query("select p.partitionNo from SchedulePartition p")
+    List<Integer> findAllPartitionNos();
+
+    List<SchedulePartition> findByOwner(String owner);
+
+    // leases this instance still holds at :now (fencing check before firing)
+    @Query("select p from SchedulePartition p where p.owner = :owner and p.leaseUntil > :now")
+    List<SchedulePartition> findValid(@Param("owner") String owner, @Param("now") LocalDateTime now);
+
+    @Query("select p from SchedulePartition p where p.owner is null or p.leaseUntil < :now order by p.partitionNo")
+    List<SchedulePartition> findClaimable(@Param("now") LocalDateTime now);
+
+    // conditional on the partition still being free/expired, so only one of several racing instances gets it
+    @Modifying
+    @Query("update SchedulePartition p set p.owner = :owner, p.leaseUntil = :until, p.fencingToken = p.fencingToken + 1 "
+            + "where p.partitionNo = :partitionNo and (p.owner is null or p.leaseUntil < :now)")
+    int claim(@Param("partitionNo") Integer partitionNo, @Param("owner") String owner,
+              @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    // expired leases are not renewed: someone else may have claimed them already
+    @Modifying
+    @Query("update SchedulePartition p set p.leaseUntil = :until where p.owner = :owner and p.leaseUntil >= :now")
+    int renew(@Param("owner") String owner, @Param("until") LocalDateTime until, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update SchedulePartition p set p.owner = null, p.leaseUntil = :now "
+            + "where p.owner = :owner and p.partitionNo in :partitionNos")
+    int release(@Param("owner") String owner, @Param("partitionNos") Collection<Integer> partitionNos,
+                @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,23 @@
+package com.flow.workflow.repository;
+
+import com.flow.workflow.model.SchedulerInstance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+
+public interface SchedulerInstanceRepository extends JpaRepository<SchedulerInstance, String> {
+
+    @Modifying
+    @Query("update SchedulerInstance i set i.heartbeatAt = :now where i.instanceId = :instanceId")
+    int touch(@Param("instanceId") String instanceId, @Param("now") LocalDateTime now);
+
+    @Query("select count(i) from SchedulerInstance i where i.heartbeatAt > :since")
+    long countLive(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Query("delete from SchedulerInstance i where i.heartbeatAt < :before")
+    int deleteStale(@Param("before") LocalDateTime before);
+}
@@ -1,9 +1,80 @@
 package com.flow.workflow.repository;
 
+import com.flow.workflow.model.MisfirePolicy;
 import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface WorkflowRepository extends JpaRepository<Workflow, Long> {
     Optional<Workflow> findByWorkflowName(String name);
+
+    // list view: workflows only, nodes are loaded separately for the whole page (see NodeRepository)
+    @Query(value = "select w from Workflow w where (:status is null or w.status = :status) "
+            + "and (:scheduled is null or coalesce(w.scheduled, false) = :scheduled)",
+            countQuery = "select count(w) from Workflow w where (:status is null or w.status = :status) "
+                    + "and (:scheduled is null or coalesce(w.scheduled, false) = :scheduled)")
+    Page<Workflow> findPage(@Param("status") WorkflowStatus status,
+                            @Param("scheduled") Boolean scheduled,
+                            Pageable pageable);
+
+    // export: keyset pages by id
+    @Query("select w from Workflow w where w.id > :afterId order by w.id")
+    List<Workflow> findAfterId(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select w.id as id, w.retentionMaxRuns as retentionMaxRuns, w.retentionDays as retentionDays "
+            + "from Workflow w order by w.id")
+    List<RetentionPolicy> findRetentionPolicies();
+
+    // scheduler startup: what it needs of every scheduled workflow, without entities
+    @Query("select w.id as id, w.cron as cron, w.misfirePolicy as misfirePolicy, "
+            + "w.lastScheduledFireAt as lastScheduledFireAt "
+            + "from Workflow w where w.scheduled = true")
+    List<ScheduleSpec> findScheduleSpecs();
+
+    // same for the schedule partitions (workflow id mod partitions) this instance holds
+    @Query("select w.id as id, w.cron as cron, w.misfirePolicy as misfirePolicy, "
+            + "w.lastScheduledFireAt as lastScheduledFireAt "
+            + "from Workflow w where w.scheduled = true and mod(w.id, :partitions) in :owned")
+    List<ScheduleSpec> findScheduleSpecs(@Param("partitions") long partitions, @Param("owned") Collection<Long> owned);
+
+    interface ScheduleSpec {
+        Long getId();
+        String getCron();
+        MisfirePolicy getMisfirePolicy();
+        LocalDateTime getLastScheduledFireAt();
+    }
+
+    interface RetentionPolicy {
+        Long getId();
+        Integer getRetentionMaxRuns();
+        Integer getRetentionDays();
+    }
+
+    // detail view: workflow and its nodes in one query
+    @EntityGraph(attributePaths = "nodes")
+    @Query("select w from Workflow w where w.id = :id")
+    Optional<Workflow> findWithNodesById(@Param("id") Long id);
+
+    // run finalize: touch the run metadata without loading the workflow
+    @Modifying
+    @Query("update Workflow w set w.lastRunAt = :lastRunAt, w.status = :status where w.id = :id")
+    int updateLastRun(@Param("id") Long id, @Param("lastRunAt") LocalDateTime lastRunAt,
+                      @Param("status") WorkflowStatus status);
+
+    // scheduler only: fires handled up to :firedAt; never moves backwards (e.g. a stale tick after a lease handover)
+    @Modifying
+    @Query("update Workflow w set w.lastScheduledFireAt = :firedAt where w.id in :ids "
+            + "and (w.lastScheduledFireAt is null or w.lastScheduledFireAt < :firedAt)")
+    int updateLastScheduledFire(@Param("ids") Collection<Long> ids, @Param("firedAt") LocalDateTime firedAt);
 }
@@ -2,11 +2,26 @@ package com.flow.workflow.repository;
 
 import com.flow.workflow.model.WorkflowRunLog;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 public interface WorkflowRunLogRepository extends JpaRepository<WorkflowRunLog, Long> {
     List<WorkflowRunLog> findByRun_IdOrderByStartedAtAsc(Long runId);
-    Optional<WorkflowRunLog> findFirstByRun_IdAndNodeTypeOrderByIdDesc(Long runId, String nodeType);
+
+    List<WorkflowRunLog> findByRun_IdInOrderByStartedAtAsc(Collection<Long> runIds);
+
+    @Query("select l.outputRef from WorkflowRunLog l where l.run.id in :runIds and l.outputRef is not null")
+    List<String> findOutputRefs(@Param("runIds") Collection<Long> runIds);
+
+    // blob sweep: the given refs some log still points to
+    @Query("select distinct l.outputRef from WorkflowRunLog l where l.outputRef in :refs")
+    List<String> findReferencedOutputRefs(@Param("refs") Collection<String> refs);
+
+    @Modifying
+    @Query("delete from WorkflowRunLog l where l.run.id in :runIds")
+    int deleteByRunIds(@Param("runIds") Collection<Long> runIds);
 }
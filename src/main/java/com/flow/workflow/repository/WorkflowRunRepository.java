@@ -1,15 +1,150 @@
 package com.flow.workflow.repository;
 
+import com.flow.workflow.dto.RunDto;
+import com.flow.workflow.dto.RunExportRow;
 import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface WorkflowRunRepository extends JpaRepository<WorkflowRun, Long> {
     List<WorkflowRun> findByWorkflowId(Long workflowId);
+
+    // export: runs with their logs as flat DTO rows on a forward-only cursor. Fetch size MIN_VALUE makes
+    // MySQL Connector/J stream rows instead of buffering the whole result; no entities enter the session.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select new com.flow.workflow.dto.RunExportRow(r.id, r.workflow.id, r.status, r.startedAt, r.endedAt, "
+            + "l.id, l.nodeId, l.nodeType, l.status, l.output, l.error, l.outputRef, l.startedAt, l.endedAt) "
+            + "from WorkflowRun r left join WorkflowRunLog l on l.run = r "
+            + "where r.workflow.id = :workflowId and r.startedAt >= :from and r.startedAt < :to "
+            + "order by r.startedAt, r.id, l.startedAt, l.id")
+    Stream<RunExportRow> streamRunsWithLogs(@Param("workflowId") Long workflowId,
+                                            @Param("from") LocalDateTime from,
+                                            @Param("to") LocalDateTime to);
     Optional<WorkflowRun> findFirstByWorkflowIdOrderByStartedAtDesc(Long workflowId);
     Page<WorkflowRun> findByWorkflowIdOrderByStartedAtDesc(Long workflowId, Pageable pageable);
+
+    // run history, newest first, keyset-paged on (startedAt, id) — served by idx_workflow_run_workflow_started.
+    // startedAt is set once when the run is created, so a page boundary never moves under a reader
+    @Query("select new com.flow.workflow.dto.RunDto(r.id, r.workflow.id, r.startedAt, r.executionStartedAt, " +
+            "r.endedAt, r.status) " +
+            "from WorkflowRun r where r.workflow.id = :workflowId order by r.startedAt desc, r.id desc")
+    List<RunDto> findRunHistory(@Param("workflowId") Long workflowId, Pageable pageable);
+
+    @Query("select new com.flow.workflow.dto.RunDto(r.id, r.workflow.id, r.startedAt, r.executionStartedAt, " +
+            "r.endedAt, r.status) " +
+            "from WorkflowRun r where r.workflow.id = :workflowId " +
+            "and (r.startedAt < :startedAt or (r.startedAt = :startedAt and r.id < :id)) " +
+            "order by r.startedAt desc, r.id desc")
+    List<RunDto> findRunHistoryBefore(@Param("workflowId") Long workflowId,
+                                      @Param("startedAt") LocalDateTime startedAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+
+    // retention: the run at position N (newest first) is the oldest one a keep-last-N policy keeps
+    @Query("select new com.flow.workflow.dto.RunDto(r.id, r.workflow.id, r.startedAt, r.endedAt, r.status) " +
+            "from WorkflowRun r where r.workflow.id = :workflowId order by r.startedAt desc, r.id desc")
+    List<RunDto> findNewestRuns(@Param("workflowId") Long workflowId, Pageable pageable);
+
+    // retention: finished runs strictly older than (startedAt, id), oldest first
+    @Query("select r.id from WorkflowRun r where r.workflow.id = :workflowId and r.status in :statuses " +
+            "and (r.startedAt < :startedAt or (r.startedAt = :startedAt and r.id < :id)) " +
+            "order by r.startedAt, r.id")
+    List<Long> findRunIdsOlderThan(@Param("workflowId") Long workflowId,
+                                   @Param("statuses") Collection<WorkflowStatus> statuses,
+                                   @Param("startedAt") LocalDateTime startedAt,
+                                   @Param("id") Long id,
+                                   Pageable pageable);
+
+    @Query("select new com.flow.workflow.dto.RunDto(r.id, r.workflow.id, r.startedAt, r.endedAt, r.status) " +
+            "from WorkflowRun r where r.id in :ids order by r.startedAt, r.id")
+    List<RunDto> findRunSummaries(@Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from WorkflowRun r where r.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select r.id from WorkflowRun r where r.status = :status and r.resumeAt <= :now order by r.resumeAt")
+    List<Long> findDueRunIds(@Param("status") WorkflowStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // WAITING -> RUNNING; returns 0 when someone else already resumed (or canceled) the run
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update WorkflowRun r set r.status = com.flow.workflow.model.WorkflowStatus.RUNNING, r.resumeAt = null " +
+            "where r.id = :id and r.status = com.flow.workflow.model.WorkflowStatus.WAITING")
+    int claimWaitingRun(@Param("id") Long id);
+
+    // redelivered queue items: runs left RUNNING by a worker that died go back to QUEUED to be executed again
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update WorkflowRun r set r.status = com.flow.workflow.model.WorkflowStatus.QUEUED " +
+            "where r.id in :ids and r.status = com.flow.workflow.model.WorkflowStatus.RUNNING")
+    int requeueRunning(@Param("ids") Collection<Long> ids);
+
+    // concurrency limits: active runs of workflows that have a limit (seeds and reconciles RunPermits)
+    @Query("select r.id as id, r.workflow.id as workflowId from WorkflowRun r "
+            + "where r.status in :statuses and r.workflow.maxConcurrentRuns is not null")
+    List<ActiveRun> findLimitedRuns(@Param("statuses") Collection<WorkflowStatus> statuses);
+
+    @Query("select r.id from WorkflowRun r where r.id in :ids and r.status in :statuses")
+    List<Long> findIdsWithStatus(@Param("ids") Collection<Long> ids,
+                                 @Param("statuses") Collection<WorkflowStatus> statuses);
+
+    @Query("select r.id from WorkflowRun r where r.workflow.id = :workflowId and r.status in :statuses")
+    List<Long> findIdsByWorkflowAndStatus(@Param("workflowId") Long workflowId,
+                                          @Param("statuses") Collection<WorkflowStatus> statuses);
+
+    // WAITING -> CANCELED; 0 when the timer resumed the run first
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update WorkflowRun r set r.status = com.flow.workflow.model.WorkflowStatus.CANCELED, r.endedAt = :now, "
+            + "r.resumeAt = null, r.resumeNodeIndex = null "
+            + "where r.id = :id and r.status = com.flow.workflow.model.WorkflowStatus.WAITING")
+    int cancelWaitingRun(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // RUNNING -> FAILED when the run's own finish could not be written; 0 if it ended after all
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update WorkflowRun r set r.status = com.flow.workflow.model.WorkflowStatus.FAILED, r.endedAt = :now, "
+            + "r.resumeAt = null, r.resumeNodeIndex = null "
+            + "where r.id = :id and r.status = com.flow.workflow.model.WorkflowStatus.RUNNING")
+    int failRunningRun(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // liveness of the runs executing on one instance
+    @Modifying
+    @Query("update WorkflowRun r set r.heartbeatAt = :now "
+            + "where r.id in :ids and r.status = com.flow.workflow.model.WorkflowStatus.RUNNING")
+    int heartbeat(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // RUNNING runs nobody has vouched for since :cutoff; queued runs are left to run_queue redelivery
+    @Query("select r.id as id, r.workflow.id as workflowId from WorkflowRun r "
+            + "where r.status = com.flow.workflow.model.WorkflowStatus.RUNNING "
+            + "and coalesce(r.heartbeatAt, r.startedAt) < :cutoff "
+            + "and not exists (select q.id from RunQueueItem q where q.runId = r.id)")
+    List<ActiveRun> findOrphanedRuns(@Param("cutoff") LocalDateTime cutoff, Pageable page);
+
+    // RUNNING -> :status for a run still without a heartbeat since :cutoff; 0 if it came back or ended meanwhile
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update WorkflowRun r set r.status = :status, r.endedAt = :now "
+            + "where r.id = :id and r.status = com.flow.workflow.model.WorkflowStatus.RUNNING "
+            + "and coalesce(r.heartbeatAt, r.startedAt) < :cutoff")
+    int endOrphanedRun(@Param("id") Long id, @Param("status") WorkflowStatus status, @Param("now") LocalDateTime now,
+                       @Param("cutoff") LocalDateTime cutoff);
+
+    interface ActiveRun {
+        Long getId();
+        Long getWorkflowId();
+    }
 }
@@ -0,0 +1,25 @@
+package com.flow.workflow.repository;
+
+import com.flow.workflow.model.WorkflowRunStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface WorkflowRunStatsRepository extends JpaRepository<WorkflowRunStats, Long> {
+    List<WorkflowRunStats> findByWorkflowIdOrderByNodeType(Long workflowId);
+
+    @Modifying
+    @Query("delete from WorkflowRunStats s where s.workflowId = :workflowId")
+    int deleteByWorkflowId(@Param("workflowId") Long workflowId);
+
+    // concurrent runs of one workflow finalize at the same time: serialize their updates on the row
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from WorkflowRunStats s where s.workflowId = :workflowId and s.nodeType = :nodeType")
+    Optional<WorkflowRunStats> findForUpdate(@Param("workflowId") Long workflowId, @Param("nodeType") String nodeType);
+}
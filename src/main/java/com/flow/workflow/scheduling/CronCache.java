@@ -0,0 +1,31 @@
+package com.flow.workflow.scheduling;
+
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parsed cron expressions by their text. Schedules mostly share a handful of expressions, so each is parsed once
+ * and the (immutable, thread-safe) {@link CronExpression} is reused for every next-fire computation.
+ */
+@Component
+public class CronCache {
+
+    private final Map<String, CronExpression> parsed = new ConcurrentHashMap<>();
+
+    /** @throws IllegalArgumentException if the expression is not a valid 6-field Spring cron expression */
+    public CronExpression get(String expression) {
+        String key = expression.trim();
+        CronExpression cron = parsed.get(key);
+        if (cron != null) return cron;
+        cron = CronExpression.parse(key);
+        parsed.putIfAbsent(key, cron);
+        return cron;
+    }
+
+    public int size() {
+        return parsed.size();
+    }
+}
@@ -0,0 +1,266 @@
+package com.flow.workflow.scheduling;
+
+import com.flow.workflow.model.SchedulePartition;
+import com.flow.workflow.model.SchedulerInstance;
+import com.flow.workflow.repository.SchedulePartitionRepository;
+import com.flow.workflow.repository.SchedulerInstanceRepository;
+import com.flow.workflow.util.InstanceIds;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Splits scheduled workflows between running instances through the database. Workflows are hashed into
+ * {@code workflow.schedule.cluster.partitions} partitions; each instance leases about its fair share of them
+ * (partitions / live instances) in {@code schedule_partition} and only fires schedules of partitions it holds.
+ * <p>
+ * Every heartbeat an instance refreshes its row in {@code scheduler_instance}, renews its leases, releases
+ * partitions above its share (an instance joined) and claims free or expired ones below it (an instance left or
+ * died, after its leases ran out). Claims are conditional updates, so two instances never hold the same partition;
+ * the fencing token bumped on every claim lets the firing path check it still holds the lease
+ * ({@link #verifiedPartitions}) instead of trusting a local view that may be stale after a long pause.
+ * Lease times come from each instance's clock, so clocks should be synchronized well within the lease TTL.
+ */
+@Component
+public class ScheduleLeaseManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ScheduleLeaseManager.class);
+
+    /** Told about partitions this instance starts or stops firing; called on the heartbeat thread. */
+    public interface Listener {
+        /** {@code handoverAt}: when the previous holder's lease ended (null if never held). */
+        void acquired(int partition, LocalDateTime handoverAt);
+
+        void released(int partition);
+    }
+
+    @Autowired
+    private SchedulePartitionRepository partitionRepo;
+
+    @Autowired
+    private SchedulerInstanceRepository instanceRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${workflow.schedule.cluster.enabled:true}")
+    private boolean enabled;
+
+    @Value("${workflow.schedule.cluster.partitions:64}")
+    private int partitions;
+
+    @Value("${workflow.schedule.cluster.lease-ttl-ms:30000}")
+    private long leaseTtlMs;
+
+    @Value("${workflow.schedule.cluster.instance-id:}")
+    private String instanceId;
+
+    private Clock clock = Clock.systemDefaultZone();
+    private TransactionTemplate tx;
+    private volatile Listener listener;
+    // partition -> fencing token of our lease
+    private final Map<Integer, Long> owned = new ConcurrentHashMap<>();
+    private volatile int liveInstances;
+    private boolean partitionsReady;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        if (instanceId == null || instanceId.isBlank()) instanceId = InstanceIds.local();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    public int partitionOf(Long workflowId) {
+        return (int) Math.floorMod(workflowId, (long) partitions);
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** Partitions this instance believes it holds (as of the last heartbeat). */
+    public Set<Integer> ownedPartitions() {
+        return new TreeSet<>(owned.keySet());
+    }
+
+    public boolean holds(int partition) {
+        return owned.containsKey(partition);
+    }
+
+    /** One membership/lease round: heartbeat, renew, then release or claim towards the fair share. */
+    public synchronized void heartbeat() {
+        try {
+            ensurePartitions();
+            LocalDateTime now = LocalDateTime.now(clock);
+            Duration ttl = Duration.ofMillis(leaseTtlMs);
+            LocalDateTime until = now.plus(ttl);
+
+            long live = tx.execute(status -> {
+                if (instanceRepo.touch(instanceId, now) == 0) {
+                    instanceRepo.save(new SchedulerInstance(instanceId, now));
+                }
+                instanceRepo.deleteStale(now.minus(ttl.multipliedBy(10)));
+                return instanceRepo.countLive(now.minus(ttl));
+            });
+            liveInstances = (int) Math.max(live, 1);
+            int share = (partitions + liveInstances - 1) / liveInstances;
+
+            Map<Integer, Long> held = tx.execute(status -> {
+                partitionRepo.renew(instanceId, until, now);
+                return holdings(now);
+            });
+            // leases that expired or were taken over since the last round
+            for (Integer p : new ArrayList<>(owned.keySet())) {
+                if (!owned.get(p).equals(held.get(p))) drop(p);
+            }
+
+            if (held.size() > share) {
+                List<Integer> extra = new ArrayList<>(new TreeSet<>(held.keySet())).subList(share, held.size());
+                // stop firing before giving the partitions away
+                extra.forEach(this::drop);
+                tx.execute(status -> partitionRepo.release(instanceId, extra, now));
+                extra.forEach(held::remove);
+                log.info("Scheduler {} released partitions {} ({} live instances)", instanceId, extra, liveInstances);
+            } else if (held.size() < share) {
+                Map<Integer, LocalDateTime> claimed = new LinkedHashMap<>();
+                for (SchedulePartition p : partitionRepo.findClaimable(now)) {
+                    if (held.size() + claimed.size() >= share) break;
+                    Integer no = p.getPartitionNo();
+                    Integer won = tx.execute(status -> partitionRepo.claim(no, instanceId, until, now));
+                    if (won != null && won == 1) claimed.put(no, p.getLeaseUntil());
+                }
+                if (!claimed.isEmpty()) {
+                    held = tx.execute(status -> holdings(now));
+                    log.info("Scheduler {} claimed partitions {} ({} live instances)", instanceId, claimed.keySet(), liveInstances);
+                }
+                for (Map.Entry<Integer, LocalDateTime> c : claimed.entrySet()) {
+                    Long token = held.get(c.getKey());
+                    if (token == null) continue;
+                    owned.put(c.getKey(), token);
+                    Listener l = listener;
+                    if (l != null) l.acquired(c.getKey(), c.getValue());
+                }
+            }
+            // partitions held in the DB but unknown locally (e.g. a restart with a fixed instance id)
+            for (Map.Entry<Integer, Long> h : held.entrySet()) {
+                if (owned.putIfAbsent(h.getKey(), h.getValue()) == null) {
+                    Listener l = listener;
+                    if (l != null) l.acquired(h.getKey(), null);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Scheduler {} heartbeat failed: {}", instanceId, e.getMessage());
+        }
+    }
+
+    /**
+     * Partitions whose lease this instance provably still holds, with the token it was acquired with. Checked
+     * right before firing; on a database error nothing is verified and nothing fires.
+     */
+    public Set<Integer> verifiedPartitions() {
+        try {
+            LocalDateTime now = LocalDateTime.now(clock);
+            Set<Integer> valid = new HashSet<>();
+            for (SchedulePartition p : partitionRepo.findValid(instanceId, now)) {
+                Long token = owned.get(p.getPartitionNo());
+                if (token != null && token == p.getFencingToken()) valid.add(p.getPartitionNo());
+            }
+            return valid;
+        } catch (Exception e) {
+            log.warn("Scheduler {} could not verify its leases: {}", instanceId, e.getMessage());
+            return Set.of();
+        }
+    }
+
+    /** Graceful shutdown: hand all partitions back right away instead of letting the leases expire. */
+    public synchronized void releaseAll() {
+        if (owned.isEmpty()) return;
+        List<Integer> all = new ArrayList<>(owned.keySet());
+        all.forEach(this::drop);
+        try {
+            LocalDateTime now = LocalDateTime.now(clock);
+            tx.execute(status -> {
+                partitionRepo.release(instanceId, all, now);
+                instanceRepo.deleteById(instanceId);
+                return null;
+            });
+        } catch (Exception e) {
+            log.warn("Scheduler {} could not release its partitions: {}", instanceId, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("instanceId", instanceId);
+        m.put("liveInstances", liveInstances);
+        m.put("partitions", partitions);
+        m.put("ownedPartitions", ownedPartitions());
+        return m;
+    }
+
+    private Map<Integer, Long> holdings(LocalDateTime now) {
+        Map<Integer, Long> held = new HashMap<>();
+        for (SchedulePartition p : partitionRepo.findByOwner(instanceId)) {
+            if (p.getLeaseUntil() != null && !p.getLeaseUntil().isBefore(now)) held.put(p.getPartitionNo(), p.getFencingToken());
+        }
+        return held;
+    }
+
+    private void drop(Integer partition) {
+        if (owned.remove(partition) == null) return;
+        Listener l = listener;
+        if (l != null) l.released(partition);
+    }
+
+    // partition rows are created by whichever instance gets there first; persist (not save/merge) so a racing
+    // insert fails on the primary key instead of overwriting a row someone already claimed
+    private void ensurePartitions() {
+        if (partitionsReady) return;
+        Set<Integer> existing = new HashSet<>(partitionRepo.findAllPartitionNos());
+        for (int p = 0; p < partitions; p++) {
+            if (existing.contains(p)) continue;
+            SchedulePartition row = new SchedulePartition(p, null, null, 0);
+            try {
+                tx.execute(status -> {
+                    entityManager.persist(row);
+                    entityManager.flush();
+                    return null;
+                });
+            } catch (DataIntegrityViolationException e) {
+                // another instance inserted it
+            }
+        }
+        partitionsReady = true;
+    }
+}
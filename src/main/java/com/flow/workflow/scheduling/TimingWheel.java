@@ -0,0 +1,133 @@
+package com.flow.workflow.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: level 0 has {@code wheelSize} slots of {@code tickMs}, every further level has
+ * {@code wheelSize} slots each spanning a whole rotation of the level below. Scheduling and cancelling are O(1);
+ * advancing costs O(1) per tick plus the timers that move down a level or fall due, so the cost does not depend on
+ * how many timers are pending (unlike a priority queue, which pays O(log n) per insert and poll).
+ * <p>
+ * Timers fire at the end of the tick that contains their deadline, i.e. at most {@code tickMs} late.
+ * Cancelled timers stay in their slot and are dropped when the slot is drained.
+ * Not thread-safe: the owner serializes all calls.
+ */
+public class TimingWheel<T> {
+
+    public static final class Timeout<T> {
+        private final T task;
+        private final long deadline;
+        private volatile boolean cancelled;
+
+        private Timeout(T task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public T getTask() { return task; }
+        public long getDeadline() { return deadline; }
+        public boolean isCancelled() { return cancelled; }
+        public void cancel() { cancelled = true; }
+    }
+
+    private final long tickMs;
+    private final int mask;
+    // tick of each level: tickMs, tickMs * wheelSize, tickMs * wheelSize^2, ...
+    private final long[] levelTick;
+    private final List<List<Timeout<T>>> slots;
+    private final int wheelSize;
+    // all deadlines before this have been handed out; always a multiple of tickMs
+    private long currentTime;
+    private final List<Timeout<T>> overdue = new ArrayList<>();
+    private int size;
+
+    public TimingWheel(long tickMs, int wheelSize, int levels, long startMs) {
+        if (tickMs <= 0 || levels < 1 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMs > 0, levels >= 1 and a power-of-two wheelSize required");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.mask = wheelSize - 1;
+        this.levelTick = new long[levels];
+        long t = tickMs;
+        for (int i = 0; i < levels; i++) {
+            levelTick[i] = t;
+            t = Math.multiplyExact(t, wheelSize);
+        }
+        this.slots = new ArrayList<>(levels * wheelSize);
+        for (int i = 0; i < levels * wheelSize; i++) slots.add(new ArrayList<>());
+        this.currentTime = startMs - Math.floorMod(startMs, tickMs);
+    }
+
+    /** Adds a timer; deadlines already in the past come out of the next {@link #advanceTo} call. */
+    public Timeout<T> schedule(T task, long deadlineMs) {
+        Timeout<T> t = new Timeout<>(task, deadlineMs);
+        place(t);
+        size++;
+        return t;
+    }
+
+    /** Moves the wheel to {@code nowMs} and returns the tasks of all timers due by then, in deadline-tick order. */
+    public List<T> advanceTo(long nowMs) {
+        List<Timeout<T>> due = new ArrayList<>(overdue);
+        overdue.clear();
+        while (currentTime + tickMs <= nowMs) {
+            currentTime += tickMs;
+            // the level-0 slot that just ended, before cascading: it is also the slot of currentTime + a rotation
+            due.addAll(drain(0, currentTime - tickMs));
+            // higher levels first, so their timers land in the lower slots before those are drained
+            for (int level = levelTick.length - 1; level >= 1; level--) {
+                if (currentTime % levelTick[level] == 0) {
+                    for (Timeout<T> t : drain(level, currentTime)) {
+                        if (!t.cancelled) place(t);
+                        else size--;
+                    }
+                }
+            }
+        }
+        List<T> tasks = new ArrayList<>(due.size());
+        for (Timeout<T> t : due) {
+            size--;
+            if (!t.cancelled) tasks.add(t.task);
+        }
+        return tasks;
+    }
+
+    /** Pending timers, including cancelled ones not yet dropped. */
+    public int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    private void place(Timeout<T> t) {
+        if (t.deadline < currentTime) {
+            overdue.add(t);
+            return;
+        }
+        for (int level = 0; level < levelTick.length; level++) {
+            long tick = levelTick[level];
+            long levelStart = currentTime - Math.floorMod(currentTime, tick);
+            if (t.deadline < levelStart + tick * wheelSize) {
+                slots.get(level * wheelSize + slotOf(t.deadline, tick)).add(t);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("deadline " + t.deadline + " is beyond the wheel's range");
+    }
+
+    private List<Timeout<T>> drain(int level, long time) {
+        int index = level * wheelSize + slotOf(time, levelTick[level]);
+        List<Timeout<T>> bucket = slots.get(index);
+        if (bucket.isEmpty()) return List.of();
+        slots.set(index, new ArrayList<>());
+        return bucket;
+    }
+
+    private int slotOf(long time, long tick) {
+        return (int) (Math.floorDiv(time, tick) & mask);
+    }
+}
@@ -1,7 +1,6 @@
 package com.flow.workflow.security;
 
 import com.flow.workflow.service.CustomUserDetailsService;
-import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,25 +36,22 @@ public class JwtFilter extends OncePerRequestFilter {
                                     FilterChain chain) throws ServletException, IOException {
 
         String authHeader = request.getHeader("Authorization");
-        String username = null;
-        String token = null;
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
+        if (authHeader != null && authHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String token = authHeader.substring(7);
+            // signature and expiry are verified once; repeat calls with the same token are a cache lookup
+            JwtUtil.VerifiedToken verified = null;
             try {
-                username = jwtUtil.extractUsername(token);
-            } catch (JwtException ex) {
-                log.warn("JWT parse failed: {}", ex.getMessage());
+                verified = jwtUtil.verify(token);
             } catch (Exception ex) {
                 log.warn("Unexpected JWT error: {}", ex.getMessage());
             }
-        }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            if (jwtUtil.validateToken(token, userDetails.getUsername())) {
-                // Extract role from token (may be null)
-                String role = jwtUtil.extractRole(token);
+            if (verified != null) {
+                String username = verified.username();
+                String role = verified.role();
+                UserDetails userDetails = userDetailsService.loadCachedUser(username);
 
                 // Use role if present; otherwise fall back to authorities from the user record
                 var authorities = (role != null && !role.isBlank())
@@ -68,7 +64,7 @@ public class JwtFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(authToken);
                 log.debug("Authenticated user {} with role {}", username, role);
             } else {
-                log.debug("Token validation failed or userDetails null for {}", username);
+                log.debug("Token validation failed");
             }
         }
 
@@ -1,11 +1,18 @@
 package com.flow.workflow.security;
 
+import com.flow.workflow.util.BoundedTtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
 
 @Component
 public class JwtUtil {
@@ -17,6 +24,19 @@ public class JwtUtil {
 
     private final Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
 
+    // parsers are immutable and thread-safe: build once
+    private final JwtParser parser = Jwts.parserBuilder().setSigningKey(key).build();
+
+    // verified tokens keyed by SHA-256 of the token, kept until the token expires
+    private final BoundedTtlCache<String, VerifiedToken> verified;
+
+    public JwtUtil(@Value("${security.jwt.cache.max-size:10000}") int cacheMaxSize) {
+        this.verified = new BoundedTtlCache<>(cacheMaxSize);
+    }
+
+    /** Claims of a token whose signature and expiry were checked. */
+    public record VerifiedToken(String username, String role, long expiresAtMillis) {}
+
     // token with role claim
     public String generateToken(String username, String role) {
         return Jwts.builder()
@@ -28,63 +48,59 @@ public class JwtUtil {
                 .compact();
     }
 
-    public String extractUsername(String token) {
+    /**
+     * Verify the token once and return its claims, or null if it is invalid or expired. A token seen before is
+     * answered from the cache with a hash lookup instead of another HMAC verification.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isBlank()) return null;
+        String cacheKey = sha256(token);
+        VerifiedToken cached = verified.get(cacheKey);
+        if (cached != null) return cached;
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getSubject();
-        } catch (JwtException e) {
-            // invalid token
-            return null;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            if (claims.getSubject() == null || expiration == null || expiration.before(new Date())) return null;
+            // claim might be stored as String
+            Object roleObj = claims.get("role");
+            VerifiedToken result = new VerifiedToken(claims.getSubject(), roleObj == null ? null : roleObj.toString(),
+                    expiration.getTime());
+            verified.put(cacheKey, result, result.expiresAtMillis());
+            return result;
+        } catch (ExpiredJwtException e) {
+            System.err.println("JWT expired: " + e.getMessage());
+        } catch (JwtException | IllegalArgumentException e) {
+            System.err.println("JWT invalid: " + e.getMessage());
         }
+        return null;
     }
 
-    // <--- new helper: safely read the "role" claim (may be null)
-    public String extractRole(String token) {
-        try {
-            Claims claims = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .setAllowedClockSkewSeconds(60)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+    public String extractUsername(String token) {
+        VerifiedToken t = verify(token);
+        return t == null ? null : t.username();
+    }
 
-            Object roleObj = claims.get("role");
-            if (roleObj == null) return null;
-            // claim might be stored as String
-            return roleObj.toString();
-        } catch (JwtException e) {
-            return null;
-        }
+    // safely read the "role" claim (may be null)
+    public String extractRole(String token) {
+        VerifiedToken t = verify(token);
+        return t == null ? null : t.role();
     }
 
     public boolean validateToken(String token, String username) {
-        try {
-            String extracted = extractUsername(token);
-            return (username != null && username.equals(extracted) && !isTokenExpired(token));
-        } catch (ExpiredJwtException e) {
-            System.err.println("JWT expired: " + e.getMessage());
-        } catch (JwtException e) {
-            System.err.println("JWT invalid: " + e.getMessage());
-        }
-        return false;
+        VerifiedToken t = verify(token);
+        return t != null && username != null && username.equals(t.username());
+    }
+
+    public Map<String, Object> cacheMetrics() {
+        return verified.metrics();
     }
 
-    private boolean isTokenExpired(String token) {
+    private static String sha256(String token) {
         try {
-            Date expiration = Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .setAllowedClockSkewSeconds(60)
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody()
-                    .getExpiration();
-            return expiration.before(new Date());
-        } catch (JwtException e) {
-            return true; // treat parsing issues as expired/invalid
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 }
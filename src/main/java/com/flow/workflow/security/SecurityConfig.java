@@ -84,6 +84,9 @@ public class SecurityConfig {
                         .requestMatchers("/swagger-resources/**", "/webjars/**").permitAll()
                         .requestMatchers(HttpMethod.POST, "/workflow/*/execute").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.POST, "/workflow/**/schedule/**").hasRole("ADMIN")
+                        .requestMatchers("/system/**").hasRole("ADMIN")
+                        // bulk provisioning; export carries unmasked node configs
+                        .requestMatchers("/workflow/import", "/workflow/export").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.GET, "/workflow/**").authenticated()
                         .anyRequest().authenticated()
                 )
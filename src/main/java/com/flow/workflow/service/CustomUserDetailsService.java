@@ -2,12 +2,15 @@ package com.flow.workflow.service;
 
 import com.flow.workflow.model.User;
 import com.flow.workflow.repository.UserRepository;
+import com.flow.workflow.util.BoundedTtlCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
@@ -15,6 +18,32 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepo;
 
+    @Value("${security.user-cache.ttl-seconds:30}")
+    private long userCacheTtlSeconds = 30;
+
+    // only the JWT filter reads through this; login (DaoAuthenticationProvider) always checks the DB
+    private final BoundedTtlCache<String, UserDetails> cache;
+
+    public CustomUserDetailsService(@Value("${security.user-cache.max-size:1000}") int cacheMaxSize) {
+        this.cache = new BoundedTtlCache<>(cacheMaxSize);
+    }
+
+    /**
+     * User details for an already authenticated token, served from a short-TTL cache so API calls do not
+     * query the users table each time. Role changes take effect within the TTL.
+     */
+    public UserDetails loadCachedUser(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.get(username);
+        if (cached != null) return cached;
+        UserDetails loaded = loadUserByUsername(username);
+        cache.put(username, loaded, System.currentTimeMillis() + userCacheTtlSeconds * 1000);
+        return loaded;
+    }
+
+    public Map<String, Object> cacheMetrics() {
+        return cache.metrics();
+    }
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepo.findByUsername(username)
@@ -0,0 +1,228 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.executor.NodeOutcome;
+import com.flow.workflow.executor.RunContext;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.DelayStep;
+import com.flow.workflow.plan.PlanStep;
+import com.flow.workflow.plan.WorkflowPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static com.flow.workflow.util.OutputTruncator.compactAndTruncate;
+
+/**
+ * Executes DAG-mode workflows. Each node lists the orderIndex values of its upstream nodes in
+ * {@code dependsOn} (validated into a graph when the plan is compiled); nodes whose upstreams are all done
+ * run in parallel on their node type's bulkhead, and fan-in nodes start as soon as their last upstream
+ * finishes, so run latency follows the critical path.
+ * <p>
+ * The calling thread coordinates: it is the only one touching the run's log buffer.
+ * It also records each outcome in the run's {@link RunContext} before releasing downstream nodes, so they see
+ * every upstream result.
+ * Nodes downstream of a failed node are not executed and are logged as CANCELED.
+ * A run asked to stop ({@link RunPermits#requestCancel}) starts no further nodes and ends CANCELED.
+ * <p>
+ * A DELAY node does not wait in memory: its log row is written as WAITING (startedAt = start of the wait) and
+ * the other branches go on. Once nothing else can run the run is suspended like a linear one (WAITING, resumeAt =
+ * the earliest due delay) and {@link RunTimerService} resumes it. On resume the finished nodes and the waiting
+ * delays are read back from the run's log rows, due delays complete and execution continues from there, so no
+ * finished node runs twice.
+ */
+@Service
+public class DagExecutionEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(DagExecutionEngine.class);
+
+    @Autowired
+    private NodeExecutorRegistry executorRegistry;
+
+    @Autowired
+    private RunPermits permits;
+
+    /** Executes a new run; see {@link #execute(WorkflowRun, WorkflowPlan, RunLogBuffer, RunContext, List)}. */
+    public boolean execute(WorkflowRun run, WorkflowPlan plan, RunLogBuffer logs) {
+        return execute(run, plan, logs, new RunContext(run.getId()), List.of());
+    }
+
+    /**
+     * Runs the DAG until every node finished or only DELAY nodes are left waiting. {@code history} holds the log
+     * rows of a resumed run (empty for a new one) and {@code context} its node results. Returns true when the run
+     * was suspended: status WAITING with resumeAt set.
+     */
+    public boolean execute(WorkflowRun run, WorkflowPlan plan, RunLogBuffer logs, RunContext context,
+                           List<WorkflowRunLog> history) {
+        // the plan already validated the graph; only the per-run countdown is mutable
+        Map<Long, Integer> pending = new HashMap<>(plan.getUpstreamCounts());
+        Map<Long, PlanStep> steps = new HashMap<>();
+        Deque<PlanStep> ready = new ArrayDeque<>();
+        for (PlanStep step : plan.getSteps()) {
+            steps.put(step.getNodeId(), step);
+            if (pending.get(step.getNodeId()) == 0) ready.add(step);
+        }
+
+        Set<Long> upstreamFailed = new HashSet<>();
+        // nodes already executed, executing or waiting; ready nodes in here are skipped
+        Set<Long> started = new HashSet<>();
+        Map<Long, Waiting> delays = new HashMap<>();
+
+        // resumed run: replay what finished before the suspension, then complete the delays that are due
+        Map<Long, WorkflowRunLog> waitingRows = new HashMap<>();
+        for (WorkflowRunLog row : history) {
+            PlanStep step = row.getNodeId() == null ? null : steps.get(row.getNodeId());
+            if (step == null || row.getStatus() == WorkflowStatus.RUNNING) continue;
+            if (row.getStatus() == WorkflowStatus.WAITING) {
+                waitingRows.put(step.getNodeId(), row);
+            } else if (started.add(step.getNodeId())) {
+                release(plan, step, row.getStatus() == WorkflowStatus.SUCCESS, pending, upstreamFailed, ready);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (WorkflowRunLog row : waitingRows.values()) {
+            PlanStep step = steps.get(row.getNodeId());
+            if (!started.add(step.getNodeId())) continue;
+            LocalDateTime due = row.getStartedAt().plus(((DelayStep) step).getDelay());
+            if (due.isAfter(now)) {
+                delays.put(step.getNodeId(), new Waiting(row, due));
+            } else {
+                // the row was inserted when the wait began; this updates it
+                finish(plan, context, logs, step, row, NodeOutcome.success(
+                        "Delay of " + ((DelayStep) step).getDelay().getSeconds() + " seconds completed"),
+                        pending, upstreamFailed, ready);
+            }
+        }
+
+        BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        int inFlight = 0;
+        boolean canceled = false;
+
+        while (!ready.isEmpty() || inFlight > 0) {
+            while (!ready.isEmpty()) {
+                PlanStep step = ready.poll();
+                if (!started.add(step.getNodeId())) continue;
+                WorkflowRunLog stepLog = logs.start(step);
+                canceled = canceled || permits.isCancelRequested(run.getId());
+
+                if (canceled) {
+                    // nodes in flight finish; nothing new starts
+                    finish(plan, context, logs, step, stepLog,
+                            NodeOutcome.skipped("Skipped: run canceled"), pending, upstreamFailed, ready);
+                } else if (upstreamFailed.contains(step.getNodeId())) {
+                    finish(plan, context, logs, step, stepLog,
+                            NodeOutcome.skipped("Skipped: an upstream node did not succeed"), pending, upstreamFailed, ready);
+                } else if (step instanceof DelayStep delay && delay.getDelay().getSeconds() > 0) {
+                    LocalDateTime due = stepLog.getStartedAt().plus(delay.getDelay());
+                    stepLog.setStatus(WorkflowStatus.WAITING);
+                    stepLog.setOutput(compactAndTruncate(
+                            "Delay of " + delay.getDelay().getSeconds() + " seconds, resumes at " + due));
+                    logs.add(stepLog);
+                    delays.put(step.getNodeId(), new Waiting(stepLog, due));
+                } else {
+                    try {
+                        launch(step, stepLog, context, completions);
+                        inFlight++;
+                    } catch (Exception e) {
+                        finish(plan, context, logs, step, stepLog, NodeOutcome.failed(e.getMessage()),
+                                pending, upstreamFailed, ready);
+                    }
+                }
+            }
+
+            if (inFlight > 0) {
+                Completion c;
+                try {
+                    c = completions.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("DAG run " + run.getId() + " interrupted", e);
+                }
+                inFlight--;
+                finish(plan, context, logs, c.step, c.log, c.outcome, pending, upstreamFailed, ready);
+            }
+        }
+
+        canceled = canceled || (!delays.isEmpty() && permits.isCancelRequested(run.getId()));
+        if (canceled) {
+            for (Waiting w : delays.values()) {
+                w.log.setStatus(WorkflowStatus.CANCELED);
+                w.log.setError("Skipped: run canceled");
+                w.log.setEndedAt(LocalDateTime.now());
+                // rows not flushed yet are still in the buffer and go out with the change
+                if (w.log.getId() != null) logs.add(w.log);
+            }
+            throw new RunCanceledException("Canceled: superseded by a newer run");
+        }
+        if (delays.isEmpty()) return false;
+
+        LocalDateTime resumeAt = delays.values().stream().map(w -> w.due).min(Comparator.naturalOrder()).orElseThrow();
+        run.setStatus(WorkflowStatus.WAITING);
+        run.setResumeAt(resumeAt);
+        log.debug("DAG run {} suspended until {} ({} delays waiting)", run.getId(), resumeAt, delays.size());
+        return true;
+    }
+
+    /**
+     * Start a node on its type's bulkhead. Executors that need the caller thread complete synchronously here,
+     * which still feeds the same completion queue. Zero-second DELAY nodes complete right away.
+     */
+    private void launch(PlanStep step, WorkflowRunLog stepLog, RunContext context,
+                        BlockingQueue<Completion> completions) {
+        CompletableFuture<NodeOutcome> future;
+        if (step instanceof DelayStep) {
+            future = CompletableFuture.completedFuture(NodeOutcome.success("Delay of 0 seconds completed"));
+        } else {
+            future = executorRegistry.submit(step, context);
+        }
+        future.whenComplete((outcome, ex) -> completions.add(
+                new Completion(step, stepLog, ex == null ? outcome : NodeOutcome.failed(ex.getMessage()))));
+    }
+
+    private void finish(WorkflowPlan plan, RunContext context, RunLogBuffer logs, PlanStep step, WorkflowRunLog stepLog,
+                        NodeOutcome outcome, Map<Long, Integer> pending, Set<Long> upstreamFailed,
+                        Deque<PlanStep> ready) {
+        context.record(step, outcome);
+        stepLog.setStatus(outcome.getStatus());
+        logs.setOutput(stepLog, outcome.getOutput(), outcome.getOutputRef());
+        stepLog.setError(compactAndTruncate(outcome.getError()));
+        stepLog.setEndedAt(LocalDateTime.now());
+        logs.add(stepLog);
+        log.debug("DAG node {} ({}) finished with {}", step.getOrderIndex(), step.getType(), outcome.getStatus());
+
+        release(plan, step, outcome.isSuccess(), pending, upstreamFailed, ready);
+    }
+
+    // counts the finished node off its downstream nodes; those left without pending upstreams become ready
+    private void release(WorkflowPlan plan, PlanStep step, boolean success, Map<Long, Integer> pending,
+                         Set<Long> upstreamFailed, Deque<PlanStep> ready) {
+        for (PlanStep next : plan.downstreamOf(step.getNodeId())) {
+            if (!success) upstreamFailed.add(next.getNodeId());
+            int left = pending.merge(next.getNodeId(), -1, Integer::sum);
+            if (left == 0) ready.add(next);
+        }
+    }
+
+    private record Waiting(WorkflowRunLog log, LocalDateTime due) {}
+
+    private static final class Completion {
+        final PlanStep step;
+        final WorkflowRunLog log;
+        final NodeOutcome outcome;
+
+        Completion(PlanStep step, WorkflowRunLog log, NodeOutcome outcome) {
+            this.step = step;
+            this.log = log;
+            this.outcome = outcome;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.dto.RunDto;
+import com.flow.workflow.dto.WorkflowRunLogDto;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.repository.WorkflowRunLogRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import com.flow.workflow.storage.BlobStore;
+import com.flow.workflow.storage.RunArchive;
+import com.flow.workflow.storage.SpillStore;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes runs (and their logs) that fall outside their workflow's retention policy: keep the last
+ * {@code retentionMaxRuns} runs and/or runs of the last {@code retentionDays} days, falling back to
+ * {@code workflow.retention.default-*} (0 = keep everything). Only finished runs are purged.
+ * <p>
+ * Purging walks each workflow oldest-first in chunks of {@code workflow.retention.chunk-size} runs, one short
+ * transaction per chunk, so no delete holds locks on the hot tables for long. With archiving enabled each chunk
+ * is first written as a compressed NDJSON segment by {@link RunArchive}, where it stays queryable.
+ */
+@Service
+public class RetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionService.class);
+
+    private static final List<WorkflowStatus> FINISHED =
+            List.of(WorkflowStatus.SUCCESS, WorkflowStatus.FAILED, WorkflowStatus.CANCELED);
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowRunLogRepository logRepo;
+
+    @Autowired
+    private RunArchive archive;
+
+    @Autowired
+    private SpillStore spillStore;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${workflow.retention.default-max-runs:0}")
+    private int defaultMaxRuns;
+
+    @Value("${workflow.retention.default-days:0}")
+    private int defaultDays;
+
+    @Value("${workflow.retention.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${workflow.retention.chunk-pause-ms:50}")
+    private long chunkPauseMs;
+
+    @Value("${workflow.retention.archive.enabled:false}")
+    private boolean archiveEnabled;
+
+    private TransactionTemplate tx;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong purgedRuns = new AtomicLong();
+    private final AtomicLong purgedLogs = new AtomicLong();
+    private final AtomicLong archivedSegments = new AtomicLong();
+    private final AtomicLong sweptBlobs = new AtomicLong();
+    private volatile LocalDateTime lastPassAt;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${workflow.retention.initial-delay-ms:60000}",
+            fixedDelayString = "${workflow.retention.interval-ms:3600000}")
+    public void scheduledPurge() {
+        purgeAll();
+    }
+
+    /** One retention pass over all workflows. Returns the number of runs purged (0 if a pass is already running). */
+    public long purgeAll() {
+        if (!running.compareAndSet(false, true)) return 0;
+        long total = 0;
+        Instant passStart = Instant.now();
+        try {
+            for (WorkflowRepository.RetentionPolicy p : workflowRepo.findRetentionPolicies()) {
+                try {
+                    total += purgeWorkflow(p.getId(), orDefault(p.getRetentionMaxRuns(), defaultMaxRuns),
+                            orDefault(p.getRetentionDays(), defaultDays));
+                } catch (Exception e) {
+                    log.warn("Retention purge failed for workflow {}: {}", p.getId(), e.getMessage());
+                }
+            }
+            if (total > 0) sweepBlobs(passStart);
+            lastPassAt = LocalDateTime.now();
+            if (total > 0) log.info("Retention pass purged {} runs", total);
+        } finally {
+            running.set(false);
+        }
+        return total;
+    }
+
+    /**
+     * Blobs are shared between runs (deduplicated), so they are not deleted with a run's logs; instead the
+     * store is swept for blobs no log references any more, looked up a batch of candidates at a time. Blobs
+     * touched within the last hour are kept for runs whose logs are not flushed yet.
+     */
+    private void sweepBlobs(Instant passStart) {
+        if (!blobStore.isEnabled()) return;
+        try {
+            int deleted = blobStore.sweep(passStart.minus(Duration.ofHours(1)), chunkSize,
+                    refs -> tx.execute(status -> logRepo.findReferencedOutputRefs(refs)));
+            sweptBlobs.addAndGet(deleted);
+            if (deleted > 0) log.info("Retention pass deleted {} unreferenced blobs", deleted);
+        } catch (Exception e) {
+            log.warn("Blob sweep failed: {}", e.getMessage());
+        }
+    }
+
+    long purgeWorkflow(Long workflowId, int maxRuns, int days) throws InterruptedException {
+        // everything strictly older than this (startedAt, id) key is expired
+        RunKey boundary = null;
+        if (maxRuns > 0) {
+            List<RunDto> nth = runRepo.findNewestRuns(workflowId, PageRequest.of(maxRuns - 1, 1));
+            if (!nth.isEmpty() && nth.get(0).getStartedAt() != null) {
+                boundary = new RunKey(nth.get(0).getStartedAt(), nth.get(0).getId());
+            }
+        }
+        if (days > 0) {
+            RunKey byAge = new RunKey(LocalDateTime.now().minusDays(days), 0L);
+            if (boundary == null || byAge.isAfter(boundary)) boundary = byAge;
+        }
+        if (boundary == null) return 0;
+
+        long purged = 0;
+        while (true) {
+            List<Long> ids = runRepo.findRunIdsOlderThan(workflowId, FINISHED, boundary.startedAt, boundary.id,
+                    PageRequest.ofSize(chunkSize));
+            if (ids.isEmpty()) break;
+            purged += purgeChunk(workflowId, ids);
+            if (ids.size() < chunkSize) break;
+            // let hot-path writers in between chunks
+            if (chunkPauseMs > 0) Thread.sleep(chunkPauseMs);
+        }
+        return purged;
+    }
+
+    private int purgeChunk(Long workflowId, List<Long> runIds) {
+        Path segment = archiveEnabled ? archiveChunk(workflowId, runIds) : null;
+        if (archiveEnabled && segment == null) {
+            // never delete what could not be archived; retried on the next pass
+            throw new RuntimeException("archiving runs of workflow " + workflowId + " failed");
+        }
+
+        List<String> spilled = new ArrayList<>();
+        int[] deleted;
+        try {
+            deleted = tx.execute(status -> {
+                spilled.addAll(logRepo.findOutputRefs(runIds));
+                int logs = logRepo.deleteByRunIds(runIds);
+                int runs = runRepo.deleteByIds(runIds);
+                return new int[]{runs, logs};
+            });
+        } catch (RuntimeException e) {
+            if (segment != null) archive.deleteSegment(segment);
+            throw e;
+        }
+        // blob refs are shared and swept separately
+        spilled.stream().filter(ref -> !BlobStore.isBlobRef(ref)).forEach(spillStore::delete);
+
+        purgedRuns.addAndGet(deleted[0]);
+        purgedLogs.addAndGet(deleted[1]);
+        return deleted[0];
+    }
+
+    private Path archiveChunk(Long workflowId, List<Long> runIds) {
+        try {
+            List<Map<String, Object>> records = new ArrayList<>();
+            tx.execute(status -> {
+                Map<Long, List<WorkflowRunLogDto>> logsByRun = new HashMap<>();
+                for (WorkflowRunLog l : logRepo.findByRun_IdInOrderByStartedAtAsc(runIds)) {
+                    logsByRun.computeIfAbsent(l.getRun().getId(), k -> new ArrayList<>())
+                            .add(new WorkflowRunLogDto(l.getId(), l.getNodeId(), l.getNodeType(),
+                                    l.getStatus() == null ? null : l.getStatus().name(), l.getOutput(), l.getError(),
+                                    l.getOutputRef(), l.getStartedAt(), l.getEndedAt()));
+                }
+                for (RunDto r : runRepo.findRunSummaries(runIds)) {
+                    Map<String, Object> rec = new LinkedHashMap<>();
+                    rec.put("id", r.getId());
+                    rec.put("workflowId", r.getWorkflowId());
+                    rec.put("status", r.getStatus());
+                    rec.put("startedAt", r.getStartedAt());
+                    rec.put("endedAt", r.getEndedAt());
+                    rec.put("durationMs", r.getDurationMs());
+                    rec.put("logs", logsByRun.getOrDefault(r.getId(), List.of()));
+                    records.add(rec);
+                }
+                return null;
+            });
+            if (records.isEmpty()) return null;
+            LocalDateTime from = (LocalDateTime) records.get(0).get("startedAt");
+            LocalDateTime to = (LocalDateTime) records.get(records.size() - 1).get("startedAt");
+            Path segment = archive.writeSegment(workflowId, from, to, records);
+            archivedSegments.incrementAndGet();
+            return segment;
+        } catch (Exception e) {
+            log.warn("Archiving {} runs of workflow {} failed: {}", runIds.size(), workflowId, e.getMessage());
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("running", running.get());
+        m.put("lastPassAt", lastPassAt);
+        m.put("purgedRuns", purgedRuns.get());
+        m.put("purgedLogs", purgedLogs.get());
+        m.put("archiveEnabled", archiveEnabled);
+        m.put("archivedSegments", archivedSegments.get());
+        m.put("sweptBlobs", sweptBlobs.get());
+        m.put("defaultMaxRuns", defaultMaxRuns);
+        m.put("defaultDays", defaultDays);
+        return m;
+    }
+
+    private static int orDefault(Integer value, int fallback) {
+        return value == null ? fallback : value;
+    }
+
+    private static final class RunKey {
+        final LocalDateTime startedAt;
+        final Long id;
+
+        RunKey(LocalDateTime startedAt, Long id) {
+            this.startedAt = startedAt;
+            this.id = id;
+        }
+
+        boolean isAfter(RunKey o) {
+            int c = startedAt.compareTo(o.startedAt);
+            return c > 0 || (c == 0 && id > o.id);
+        }
+    }
+}
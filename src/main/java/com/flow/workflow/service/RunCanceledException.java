@@ -0,0 +1,8 @@
+package com.flow.workflow.service;
+
+/** Thrown inside a run that was asked to stop (e.g. superseded under CANCEL_PREVIOUS); the run ends CANCELED. */
+public class RunCanceledException extends RuntimeException {
+    public RunCanceledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,105 @@
+package com.flow.workflow.service;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.flow.workflow.dto.RunExportRow;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Streams a workflow's runs with their logs as NDJSON, one line per run in the same shape as the retention
+ * archive ({@code id, workflowId, status, startedAt, endedAt, durationMs, logs[]}). Rows come off a
+ * forward-only cursor and are written straight to the output, so heap use does not grow with the export.
+ */
+@Service
+public class RunExportService {
+
+    private static final LocalDateTime MIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX = LocalDateTime.of(9999, 1, 1, 0, 0);
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    /**
+     * Write runs whose startedAt is in [from, to) (either bound may be null) to {@code out}. The caller closes
+     * {@code out}. Returns the number of runs written.
+     */
+    @Transactional(readOnly = true)
+    public long export(Long workflowId, LocalDateTime from, LocalDateTime to, OutputStream out) throws IOException {
+        long runs = 0;
+        try (Stream<RunExportRow> rows = runRepo.streamRunsWithLogs(workflowId,
+                from == null ? MIN : from, to == null ? MAX : to);
+             JsonGenerator g = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            g.setRootValueSeparator(null);
+            g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            Long currentRun = null;
+            Iterator<RunExportRow> it = rows.iterator();
+            while (it.hasNext()) {
+                RunExportRow row = it.next();
+                if (!Objects.equals(currentRun, row.getRunId())) {
+                    if (currentRun != null) endRun(g);
+                    startRun(g, row);
+                    currentRun = row.getRunId();
+                    runs++;
+                }
+                if (row.getLogId() != null) writeLog(g, row);
+            }
+            if (currentRun != null) endRun(g);
+        }
+        return runs;
+    }
+
+    private static void startRun(JsonGenerator g, RunExportRow r) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("id", r.getRunId());
+        g.writeNumberField("workflowId", r.getWorkflowId());
+        g.writeStringField("status", r.getRunStatus() == null ? null : r.getRunStatus().name());
+        g.writeObjectField("startedAt", r.getRunStartedAt());
+        g.writeObjectField("endedAt", r.getRunEndedAt());
+        if (r.getRunStartedAt() != null && r.getRunEndedAt() != null) {
+            g.writeNumberField("durationMs", Duration.between(r.getRunStartedAt(), r.getRunEndedAt()).toMillis());
+        } else {
+            g.writeNullField("durationMs");
+        }
+        g.writeArrayFieldStart("logs");
+    }
+
+    private static void writeLog(JsonGenerator g, RunExportRow r) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField("id", r.getLogId());
+        if (r.getNodeId() == null) g.writeNullField("nodeId"); else g.writeNumberField("nodeId", r.getNodeId());
+        g.writeStringField("nodeType", r.getNodeType());
+        g.writeStringField("status", r.getLogStatus() == null ? null : r.getLogStatus().name());
+        g.writeStringField("output", r.getOutput());
+        g.writeStringField("error", r.getError());
+        g.writeStringField("outputRef", r.getOutputRef());
+        g.writeObjectField("startedAt", r.getLogStartedAt());
+        g.writeObjectField("endedAt", r.getLogEndedAt());
+        g.writeEndObject();
+    }
+
+    private static void endRun(JsonGenerator g) throws IOException {
+        g.writeEndArray();
+        g.writeEndObject();
+        g.writeRaw('\n');
+        // hand each line to the servlet stream; buffering is left to it
+        g.flush();
+    }
+}
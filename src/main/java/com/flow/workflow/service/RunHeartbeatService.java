@@ -0,0 +1,154 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRunLogRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import com.flow.workflow.util.InstanceIds;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Liveness of RUNNING runs. A run that starts executing is stamped with this instance's id and a heartbeat, which
+ * is renewed every {@code workflow.run.heartbeat-ms} while it executes here. A RUNNING run whose heartbeat is older
+ * than {@code stale-after-ms} has lost its thread (instance died during a synchronous or resumed run, or its
+ * finish could not be written): every {@code reap-ms} such runs are marked FAILED and their permit is released,
+ * so a workflow at its {@code maxConcurrentRuns} limit gets going again. Runs with a run_queue row are left to
+ * the queue's redelivery.
+ * <p>
+ * With {@code workflow.execution.transaction-per-step=false} a run's RUNNING state is never committed before it
+ * ends (a dead instance rolls it back), so those runs are not tracked.
+ */
+@Service
+public class RunHeartbeatService {
+
+    private static final Logger log = LoggerFactory.getLogger(RunHeartbeatService.class);
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowRunLogRepository logRepo;
+
+    @Autowired
+    private RunPermits permits;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${workflow.run.stale-after-ms:90000}")
+    private long staleAfterMs;
+
+    @Value("${workflow.run.reap-batch-size:100}")
+    private int reapBatchSize;
+
+    private Clock clock = Clock.systemDefaultZone();
+    private final String ownerId = InstanceIds.local();
+    // runs executing on this instance
+    private final Set<Long> local = ConcurrentHashMap.newKeySet();
+    private final AtomicLong reaped = new AtomicLong();
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    public String ownerId() {
+        return ownerId;
+    }
+
+    public LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    /** The run (already stamped with {@link #ownerId()} and {@link #now()}) executes here from now on. */
+    public void begin(Long runId) {
+        local.add(runId);
+    }
+
+    public void end(Long runId) {
+        local.remove(runId);
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.run.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (local.isEmpty()) return;
+        try {
+            List<Long> ids = new ArrayList<>(local);
+            LocalDateTime now = now();
+            tx.executeWithoutResult(status -> {
+                for (int i = 0; i < ids.size(); i += 1000) {
+                    runRepo.heartbeat(ids.subList(i, Math.min(i + 1000, ids.size())), now);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Run heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.run.reap-ms:30000}")
+    public void reap() {
+        try {
+            LocalDateTime cutoff = now().minusNanos(staleAfterMs * 1_000_000);
+            for (WorkflowRunRepository.ActiveRun r : runRepo.findOrphanedRuns(cutoff, PageRequest.of(0, reapBatchSize))) {
+                // still executing here after all (e.g. heartbeats failing): not an orphan
+                if (local.contains(r.getId())) continue;
+                if (end(r.getId(), r.getWorkflowId(), WorkflowStatus.FAILED, cutoff,
+                        "Run lost its worker (no heartbeat since " + cutoff + ")")) {
+                    reaped.incrementAndGet();
+                    log.warn("Marked orphaned run {} of workflow {} FAILED", r.getId(), r.getWorkflowId());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Orphaned run reap failed: {}", e.getMessage());
+        }
+    }
+
+    /** Cancels a RUNNING run whose worker is gone; false if it is alive (or ended meanwhile). */
+    public boolean cancelIfOrphaned(Long runId, Long workflowId, String reason) {
+        if (local.contains(runId)) return false;
+        return end(runId, workflowId, WorkflowStatus.CANCELED, now().minusNanos(staleAfterMs * 1_000_000), reason);
+    }
+
+    private boolean end(Long runId, Long workflowId, WorkflowStatus status, LocalDateTime cutoff, String reason) {
+        LocalDateTime now = now();
+        boolean ended = Boolean.TRUE.equals(tx.execute(s -> {
+            if (runRepo.endOrphanedRun(runId, status, now, cutoff) == 0) return false;
+            logRepo.save(WorkflowRunLog.builder()
+                    .run(runRepo.getReferenceById(runId))
+                    .nodeType("SYSTEM")
+                    .status(status)
+                    .startedAt(now)
+                    .endedAt(now)
+                    .error(reason)
+                    .build());
+            return true;
+        }));
+        if (ended) permits.release(workflowId, runId);
+        return ended;
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("ownerId", ownerId);
+        m.put("executingHere", local.size());
+        m.put("reaped", reaped.get());
+        m.put("staleAfterMs", staleAfterMs);
+        return m;
+    }
+}
@@ -0,0 +1,82 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.PlanStep;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write-behind log rows of one run. A node's log row is built in memory when it starts and
+ * {@link #add added} once it finished, so each row is inserted exactly once with its final status.
+ * Only the run's coordinating thread touches the buffer.
+ */
+public final class RunLogBuffer {
+
+    private final RunLogWriter writer;
+    private final WorkflowRun run;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final List<WorkflowRunLog> pending = new ArrayList<>();
+    // what RunStatsService folds into the node-type aggregates when the run finalizes
+    private final List<NodeSample> samples = new ArrayList<>();
+    private long lastFlush = System.currentTimeMillis();
+
+    RunLogBuffer(RunLogWriter writer, WorkflowRun run, int batchSize, long flushIntervalMs) {
+        this.writer = writer;
+        this.run = run;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    /** RUNNING log for a step that is about to execute; not persisted until it is added. */
+    public WorkflowRunLog start(PlanStep step) {
+        return WorkflowRunLog.builder()
+                .run(run)
+                .nodeId(step.getNodeId())
+                .nodeType(step.getType())
+                .status(WorkflowStatus.RUNNING)
+                .startedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /** Set a finished step's output on its row, tiering large outputs to the blob store (see {@link RunLogWriter}). */
+    public void setOutput(WorkflowRunLog log, String output, String outputRef) {
+        writer.applyOutput(log, output, outputRef);
+    }
+
+    /** Queue a finished log row; flushes when the size or time threshold is reached. */
+    public void add(WorkflowRunLog log) {
+        pending.add(log);
+        if (log.getNodeId() != null && log.getStartedAt() != null && log.getEndedAt() != null) {
+            samples.add(new NodeSample(log.getNodeType(), log.getStatus(),
+                    Duration.between(log.getStartedAt(), log.getEndedAt()).toMillis()));
+        }
+        if (pending.size() >= batchSize || System.currentTimeMillis() - lastFlush >= flushIntervalMs) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        lastFlush = System.currentTimeMillis();
+        if (pending.isEmpty()) return;
+        List<WorkflowRunLog> batch = new ArrayList<>(pending);
+        pending.clear();
+        writer.write(batch);
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /** Node executions added to this buffer (SYSTEM rows excluded). */
+    public List<NodeSample> samples() {
+        return samples;
+    }
+
+    public record NodeSample(String nodeType, WorkflowStatus status, long durationMs) {}
+}
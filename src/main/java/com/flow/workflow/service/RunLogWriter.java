@@ -0,0 +1,88 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.repository.WorkflowRunLogRepository;
+import com.flow.workflow.storage.BlobStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+import static com.flow.workflow.util.OutputTruncator.compactAndTruncate;
+
+/**
+ * Writes buffered run logs in JDBC batches. Engines don't save logs one by one; they collect finished
+ * rows in a {@link RunLogBuffer} (see {@link #open}) which flushes here at run end, on suspension, or when
+ * the buffer grows past {@code workflow.run-log.batch-size} rows or {@code workflow.run-log.flush-interval-ms}.
+ */
+@Component
+public class RunLogWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RunLogWriter.class);
+
+    @Autowired
+    private WorkflowRunLogRepository logRepo;
+
+    @Autowired(required = false)
+    private BlobStore blobStore;
+
+    @Value("${workflow.blob.threshold-chars:2048}")
+    private int blobThresholdChars = 2048;
+
+    @Value("${workflow.blob.preview-chars:512}")
+    private int blobPreviewChars = 512;
+
+    @Value("${workflow.run-log.batch-size:50}")
+    private int batchSize = 50;
+
+    @Value("${workflow.run-log.flush-interval-ms:2000}")
+    private long flushIntervalMs = 2000;
+
+    public RunLogBuffer open(WorkflowRun run) {
+        return new RunLogBuffer(this, run, batchSize, flushIntervalMs);
+    }
+
+    /**
+     * Outputs up to {@code workflow.blob.threshold-chars} are stored inline (compacted, capped at 5000 chars).
+     * Longer ones go to the {@link BlobStore} in full: the row keeps only a preview and the blob ref.
+     * An output that was already spilled by its executor keeps the spill ref.
+     */
+    void applyOutput(WorkflowRunLog row, String output, String outputRef) {
+        row.setOutputRef(outputRef);
+        if (output != null && outputRef == null && blobStore != null && blobStore.isEnabled()
+                && output.length() > blobThresholdChars) {
+            try {
+                row.setOutputRef(blobStore.put(output));
+                row.setOutput(compactAndTruncate(output, blobPreviewChars));
+                return;
+            } catch (Exception e) {
+                log.warn("Storing output of node {} as blob failed, keeping it truncated: {}",
+                        row.getNodeId(), e.getMessage());
+            }
+        }
+        row.setOutput(compactAndTruncate(output));
+    }
+
+    /** Full output of a row: read back from the blob store when it was tiered, else the column itself. */
+    public String fullOutput(WorkflowRunLog row) {
+        if (blobStore != null && BlobStore.isBlobRef(row.getOutputRef())) {
+            try {
+                String full = blobStore.read(row.getOutputRef());
+                if (full != null) return full;
+            } catch (Exception e) {
+                log.warn("Reading blob {} failed: {}", row.getOutputRef(), e.getMessage());
+            }
+        }
+        return row.getOutput();
+    }
+
+    // ids come from a pooled generator, so the inserts go out as one JDBC batch when the transaction commits:
+    // saveAll's own short one mid-run, or the run's finalize transaction it joins
+    void write(List<WorkflowRunLog> logs) {
+        logRepo.saveAll(logs);
+    }
+}
@@ -0,0 +1,153 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.OverlapPolicy;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.WorkflowDefinition;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-workflow run permits behind {@code Workflow.maxConcurrentRuns}. A run takes a permit right before it starts
+ * executing and gives it back when it ends; a run suspended on a DELAY node keeps it. Acquire and release are a CAS
+ * on a per-workflow counter plus the set of permit-holding run ids (so both are idempotent per run); no locks.
+ * <p>
+ * The map is only memory, so it is rebuilt from the database: every {@code workflow.concurrency.reconcile-ms}
+ * (and at startup) the RUNNING/WAITING runs of limited workflows are added, which also brings in runs of other
+ * instances, and tracked runs that ended elsewhere are dropped. A RUNNING run whose worker died keeps its permit
+ * until {@link RunHeartbeatService} marks it FAILED (stale heartbeat) or run_queue redelivers it. Between two rounds
+ * several instances can together exceed a limit by what they started in that interval.
+ */
+@Component
+public class RunPermits {
+
+    private static final Logger log = LoggerFactory.getLogger(RunPermits.class);
+
+    private static final List<WorkflowStatus> ACTIVE = List.of(WorkflowStatus.RUNNING, WorkflowStatus.WAITING);
+    // a run holds its permit from just before QUEUED -> RUNNING
+    private static final List<WorkflowStatus> HELD = List.of(WorkflowStatus.QUEUED, WorkflowStatus.RUNNING,
+            WorkflowStatus.WAITING);
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Value("${workflow.concurrency.default-overlap-policy:QUEUE}")
+    private OverlapPolicy defaultOverlapPolicy;
+
+    // one entry per limited workflow that ever ran here; entries are never removed, so a CAS never hits a stale one
+    private final Map<Long, Slots> slots = new ConcurrentHashMap<>();
+    // runs asked to stop before their next node (CANCEL_PREVIOUS)
+    private final Set<Long> cancelRequested = ConcurrentHashMap.newKeySet();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong reconciled = new AtomicLong();
+
+    /** The workflow's overlap policy, or the default when it has none. */
+    public OverlapPolicy overlapPolicy(WorkflowDefinition definition) {
+        return definition.getOverlapPolicy() == null ? defaultOverlapPolicy : definition.getOverlapPolicy();
+    }
+
+    /** Takes a permit for the run unless the workflow has {@code limit} active runs; true if the run holds one. */
+    public boolean tryAcquire(Long workflowId, Long runId, int limit) {
+        Slots s = slotsOf(workflowId);
+        if (s.runs.contains(runId)) return true;
+        while (true) {
+            int used = s.used.get();
+            if (used >= limit) {
+                denied.incrementAndGet();
+                return false;
+            }
+            if (s.used.compareAndSet(used, used + 1)) break;
+        }
+        // lost a race with another acquire of the same run: give the extra permit back
+        if (!s.runs.add(runId)) s.used.decrementAndGet();
+        return true;
+    }
+
+    /** Gives the run's permit back; no-op if it holds none. */
+    public void release(Long workflowId, Long runId) {
+        cancelRequested.remove(runId);
+        Slots s = slots.get(workflowId);
+        if (s != null && s.runs.remove(runId)) s.used.decrementAndGet();
+    }
+
+    /** Permits in use for the workflow, as far as this instance knows. */
+    public int active(Long workflowId) {
+        Slots s = slots.get(workflowId);
+        return s == null ? 0 : Math.max(0, s.used.get());
+    }
+
+    /** Runs of the workflow holding a permit (local and, as of the last reconcile, remote ones). */
+    public Set<Long> activeRuns(Long workflowId) {
+        Slots s = slots.get(workflowId);
+        return s == null ? Set.of() : new HashSet<>(s.runs);
+    }
+
+    /** Asks a run executing on this instance to stop before its next node. */
+    public void requestCancel(Long runId) {
+        cancelRequested.add(runId);
+    }
+
+    public boolean isCancelRequested(Long runId) {
+        return !cancelRequested.isEmpty() && cancelRequested.contains(runId);
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.concurrency.reconcile-ms:15000}")
+    public void reconcile() {
+        try {
+            for (WorkflowRunRepository.ActiveRun r : runRepo.findLimitedRuns(ACTIVE)) {
+                Slots s = slotsOf(r.getWorkflowId());
+                if (s.runs.add(r.getId())) s.used.incrementAndGet();
+            }
+            Map<Long, Long> tracked = new HashMap<>();
+            slots.forEach((workflowId, s) -> s.runs.forEach(runId -> tracked.put(runId, workflowId)));
+            if (tracked.isEmpty()) return;
+            Set<Long> held = new HashSet<>();
+            List<Long> ids = new ArrayList<>(tracked.keySet());
+            for (int i = 0; i < ids.size(); i += 1000) {
+                held.addAll(runRepo.findIdsWithStatus(ids.subList(i, Math.min(i + 1000, ids.size())), HELD));
+            }
+            int dropped = 0;
+            for (Map.Entry<Long, Long> t : tracked.entrySet()) {
+                if (held.contains(t.getKey())) continue;
+                release(t.getValue(), t.getKey());
+                dropped++;
+            }
+            reconciled.addAndGet(dropped);
+            if (dropped > 0) log.debug("Released {} permits of runs that ended elsewhere", dropped);
+        } catch (Exception e) {
+            log.warn("Run permit reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        Map<Long, Integer> active = new TreeMap<>();
+        slots.forEach((workflowId, s) -> {
+            if (s.used.get() > 0) active.put(workflowId, s.used.get());
+        });
+        m.put("activeByWorkflow", active);
+        m.put("denied", denied.get());
+        m.put("releasedByReconcile", reconciled.get());
+        m.put("cancelRequested", cancelRequested.size());
+        return m;
+    }
+
+    private Slots slotsOf(Long workflowId) {
+        Slots s = slots.get(workflowId);
+        return s != null ? s : slots.computeIfAbsent(workflowId, k -> new Slots());
+    }
+
+    private static final class Slots {
+        final AtomicInteger used = new AtomicInteger();
+        final Set<Long> runs = ConcurrentHashMap.newKeySet();
+    }
+}
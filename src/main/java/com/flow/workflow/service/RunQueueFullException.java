@@ -0,0 +1,17 @@
+package com.flow.workflow.service;
+
+/**
+ * Thrown when the run worker pool and its queue are saturated.
+ * Mapped to HTTP 429 by the exception handler.
+ */
+public class RunQueueFullException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public RunQueueFullException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() { return retryAfterSeconds; }
+}
@@ -0,0 +1,350 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.OverlapPolicy;
+import com.flow.workflow.model.RunQueueItem;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.WorkflowDefinition;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import com.flow.workflow.repository.RunQueueRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import com.flow.workflow.util.InstanceIds;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Durable run queue ({@code run_queue}). Triggers enqueue a row and return; workers of every instance poll,
+ * claim up to their free pool capacity in one {@code SELECT ... FOR UPDATE SKIP LOCKED} and run the claimed
+ * runs on the run pool. A claim hides the row for {@code workflow.queue.visibility-timeout-ms}, extended by a
+ * heartbeat while the run executes; the claims of a worker that died become visible again and are redelivered
+ * (at-least-once), with their half-done run reset to QUEUED and executed from the start. After
+ * {@code max-attempts} deliveries the run is canceled instead.
+ * <p>
+ * A run of a workflow with {@code maxConcurrentRuns} starts only with a permit from {@link RunPermits}. Without one
+ * it is dropped under SKIP; otherwise its row is handed back for {@code workflow.concurrency.defer-ms} without using
+ * up a delivery attempt.
+ */
+@Service
+public class RunQueueService {
+
+    private static final Logger log = LoggerFactory.getLogger(RunQueueService.class);
+
+    // hint returned to clients in Retry-After when the queue is full
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    @Autowired
+    private RunQueueRepository queueRepo;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowExecutionService executionService;
+
+    @Autowired
+    private WorkflowDefinitionCache definitions;
+
+    @Autowired
+    private RunPermits permits;
+
+    @Autowired
+    @Qualifier("runExecutor")
+    private ThreadPoolTaskExecutor runExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${workflow.queue.claim-batch-size:50}")
+    private int claimBatchSize;
+
+    @Value("${workflow.queue.visibility-timeout-ms:60000}")
+    private long visibilityTimeoutMs;
+
+    @Value("${workflow.queue.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${workflow.queue.max-depth:100000}")
+    private long maxDepth;
+
+    @Value("${workflow.concurrency.defer-ms:1000}")
+    private long deferMs;
+
+    @Value("${workflow.queue.worker-id:}")
+    private String workerId;
+
+    private Clock clock = Clock.systemDefaultZone();
+    private TransactionTemplate tx;
+    // claimed by this worker and not finished yet; their visibility is extended by the heartbeat
+    private final Set<Long> executing = ConcurrentHashMap.newKeySet();
+    // rows in the queue as of the last heartbeat, plus what this instance enqueued since
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong redelivered = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicLong overlapSkipped = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        tx = new TransactionTemplate(transactionManager);
+        if (workerId == null || workerId.isBlank()) workerId = InstanceIds.local();
+    }
+
+    /** Queues a run of the workflow; the run row is created by the worker that picks it up. */
+    public void enqueue(Long workflowId, String source) {
+        enqueueAll(List.of(workflowId), source);
+    }
+
+    /** Queues several runs in one transaction (inserts go out as one JDBC batch). */
+    public void enqueueAll(List<Long> workflowIds, String source) {
+        if (workflowIds.isEmpty()) return;
+        checkDepth(workflowIds.size());
+        LocalDateTime now = LocalDateTime.now(clock);
+        List<RunQueueItem> items = new ArrayList<>(workflowIds.size());
+        for (Long workflowId : workflowIds) items.add(newItem(workflowId, null, source, now));
+        tx.execute(status -> queueRepo.saveAll(items));
+        added(items.size());
+    }
+
+    /** Creates the run as QUEUED right away (so the caller can poll it) and queues it. */
+    public WorkflowRun enqueueRun(Long workflowId, String source) {
+        checkDepth(1);
+        WorkflowRun run = tx.execute(status -> {
+            WorkflowRun r = executionService.queueRun(workflowId);
+            queueRepo.save(newItem(workflowId, r.getId(), source, LocalDateTime.now(clock)));
+            return r;
+        });
+        added(1);
+        return run;
+    }
+
+    /** Queues a run created earlier as QUEUED (e.g. a synchronous execute that found the workflow at its limit). */
+    public void enqueueQueuedRun(Long workflowId, Long runId, String source) {
+        checkDepth(1);
+        tx.execute(status -> queueRepo.save(newItem(workflowId, runId, source, LocalDateTime.now(clock))));
+        added(1);
+    }
+
+    /** Drops the workflow's queued triggers that have no run yet and are not being picked up. */
+    public int dropPending(Long workflowId) {
+        Integer dropped = tx.execute(status -> queueRepo.deletePending(workflowId));
+        int n = dropped == null ? 0 : dropped;
+        depth.addAndGet(-n);
+        return n;
+    }
+
+    /** True if a trigger of the workflow is queued and not picked up yet. */
+    public boolean hasPending(Long workflowId) {
+        return queueRepo.existsByWorkflowIdAndClaimedByIsNull(workflowId);
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.queue.poll-interval-ms:250}")
+    public void poll() {
+        int free = freeSlots();
+        if (free <= 0) return;
+        List<RunQueueItem> items;
+        try {
+            items = claim(Math.min(free, claimBatchSize));
+        } catch (Exception e) {
+            log.warn("Claiming queued runs failed: {}", e.getMessage());
+            return;
+        }
+        List<Long> undispatched = new ArrayList<>();
+        for (RunQueueItem item : items) {
+            if (!undispatched.isEmpty()) {
+                undispatched.add(item.getId());
+                continue;
+            }
+            executing.add(item.getId());
+            try {
+                runExecutor.execute(() -> work(item));
+            } catch (TaskRejectedException e) {
+                // something else filled the pool since freeSlots(); hand the rest back
+                executing.remove(item.getId());
+                undispatched.add(item.getId());
+            }
+        }
+        if (!undispatched.isEmpty()) {
+            tx.execute(status -> queueRepo.release(workerId, undispatched, LocalDateTime.now(clock)));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.queue.heartbeat-ms:20000}")
+    public void heartbeat() {
+        try {
+            if (!executing.isEmpty()) {
+                LocalDateTime until = LocalDateTime.now(clock).plus(Duration.ofMillis(visibilityTimeoutMs));
+                List<Long> ids = new ArrayList<>(executing);
+                tx.execute(status -> queueRepo.extend(workerId, ids, until));
+            }
+            depth.set(queueRepo.count());
+        } catch (Exception e) {
+            log.warn("Run queue heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Claims up to {@code max} visible rows for this worker in one locking query. Redelivered rows get their run
+     * reset to QUEUED; rows past {@code max-attempts} are removed and their run canceled.
+     */
+    List<RunQueueItem> claim(int max) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        LocalDateTime until = now.plus(Duration.ofMillis(visibilityTimeoutMs));
+        List<RunQueueItem> exhausted = new ArrayList<>();
+        List<RunQueueItem> result = tx.execute(status -> {
+            List<RunQueueItem> items = queueRepo.findClaimable(now, PageRequest.ofSize(max));
+            List<RunQueueItem> mine = new ArrayList<>(items.size());
+            List<Long> rerun = new ArrayList<>();
+            for (RunQueueItem item : items) {
+                if (item.getAttempts() > 0 && item.getRunId() != null) rerun.add(item.getRunId());
+                if (item.getAttempts() >= maxAttempts) {
+                    exhausted.add(item);
+                    continue;
+                }
+                item.setClaimedBy(workerId);
+                item.setAvailableAt(until);
+                item.setAttempts(item.getAttempts() + 1);
+                mine.add(item);
+            }
+            if (!exhausted.isEmpty()) queueRepo.deleteAllInBatch(exhausted);
+            // flushes the claims above first
+            if (!rerun.isEmpty()) runRepo.requeueRunning(rerun);
+            return mine;
+        });
+        for (RunQueueItem item : exhausted) {
+            abandoned.incrementAndGet();
+            log.warn("Queued run of workflow {} (run {}) abandoned after {} delivery attempts",
+                    item.getWorkflowId(), item.getRunId(), item.getAttempts());
+            if (item.getRunId() != null) {
+                executionService.cancelQueuedRun(item.getRunId(),
+                        "Abandoned: worker lost after " + item.getAttempts() + " delivery attempts");
+            }
+        }
+        for (RunQueueItem item : result) {
+            if (item.getAttempts() > 1) redelivered.incrementAndGet();
+        }
+        claimed.addAndGet(result.size());
+        return result;
+    }
+
+    private void work(RunQueueItem item) {
+        Long workflowId = item.getWorkflowId();
+        Long runId = item.getRunId();
+        boolean finished = true;
+        try {
+            WorkflowDefinition definition = definitions.get(workflowId).orElse(null);
+            Integer limit = definition == null ? null : definition.getMaxConcurrentRuns();
+            if (runId == null) {
+                // don't create a run that could not start anyway
+                if (limit != null && permits.active(workflowId) >= limit) {
+                    finished = permits.overlapPolicy(definition) == OverlapPolicy.SKIP;
+                    atLimit(item, definition, null);
+                    return;
+                }
+                // remember the run on the row, so a redelivery resumes this run instead of starting another one
+                runId = tx.execute(status -> {
+                    WorkflowRun run = executionService.queueRun(workflowId);
+                    queueRepo.setRunId(item.getId(), run.getId());
+                    return run.getId();
+                });
+            }
+            if (limit != null && !permits.tryAcquire(workflowId, runId, limit)) {
+                finished = permits.overlapPolicy(definition) == OverlapPolicy.SKIP;
+                atLimit(item, definition, runId);
+                return;
+            }
+            WorkflowRun run = executionService.executeRun(runId);
+            // not started here (canceled meanwhile): the permit goes back; a suspended run keeps it
+            if (run.getStatus() != WorkflowStatus.WAITING) permits.release(workflowId, runId);
+        } catch (Exception e) {
+            log.error("Queued run of workflow {} failed: {}", workflowId, e.getMessage(), e);
+            if (runId != null) permits.release(workflowId, runId);
+        } finally {
+            executing.remove(item.getId());
+            if (finished) {
+                try {
+                    tx.execute(status -> queueRepo.complete(item.getId(), workerId));
+                } catch (Exception e) {
+                    // the claim expires and the run is redelivered
+                    log.warn("Completing queue item {} failed: {}", item.getId(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /** The workflow has no free permit: drop the run (SKIP, the row is completed) or hand the row back for later. */
+    private void atLimit(RunQueueItem item, WorkflowDefinition definition, Long runId) {
+        if (permits.overlapPolicy(definition) == OverlapPolicy.SKIP) {
+            overlapSkipped.incrementAndGet();
+            if (runId != null) {
+                executionService.cancelQueuedRun(runId, "Skipped: workflow already has "
+                        + definition.getMaxConcurrentRuns() + " active runs");
+            }
+            return;
+        }
+        deferred.incrementAndGet();
+        LocalDateTime later = LocalDateTime.now(clock).plus(Duration.ofMillis(deferMs));
+        // if this fails the claim expires and the row is redelivered
+        tx.execute(status -> queueRepo.release(workerId, List.of(item.getId()), later));
+    }
+
+    private int freeSlots() {
+        var pool = runExecutor.getThreadPoolExecutor();
+        return pool.getMaximumPoolSize() - pool.getActiveCount() + pool.getQueue().remainingCapacity();
+    }
+
+    private void checkDepth(int adding) {
+        if (depth.get() + adding > maxDepth) {
+            throw new RunQueueFullException("Run queue is full, try again later", RETRY_AFTER_SECONDS);
+        }
+    }
+
+    private void added(int count) {
+        depth.addAndGet(count);
+        enqueued.addAndGet(count);
+    }
+
+    private RunQueueItem newItem(Long workflowId, Long runId, String source, LocalDateTime now) {
+        return RunQueueItem.builder()
+                .workflowId(workflowId)
+                .runId(runId)
+                .source(source)
+                .enqueuedAt(now)
+                .availableAt(now)
+                .build();
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("workerId", workerId);
+        m.put("depth", depth.get());
+        m.put("maxDepth", maxDepth);
+        m.put("executing", executing.size());
+        m.put("enqueued", enqueued.get());
+        m.put("claimed", claimed.get());
+        m.put("redelivered", redelivered.get());
+        m.put("abandoned", abandoned.get());
+        m.put("deferredAtLimit", deferred.get());
+        m.put("skippedAtLimit", overlapSkipped.get());
+        return m;
+    }
+}
@@ -0,0 +1,166 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.dto.RunStatsDto;
+import com.flow.workflow.dto.WorkflowStatsDto;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowRunStats;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRunStatsRepository;
+import com.flow.workflow.util.LatencySketch;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Keeps {@code workflow_run_stats} up to date: one row per workflow for whole runs and one per node type,
+ * each with counts by status, last success/failure and a {@link LatencySketch} of durations. Rows are
+ * updated incrementally as runs finalize, so the stats endpoint never scans run history.
+ * <p>
+ * Updates run in their own short transaction after the run's finalize transaction: a stats failure is
+ * logged and never fails the run.
+ */
+@Service
+public class RunStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(RunStatsService.class);
+
+    @Autowired
+    private WorkflowRunStatsRepository statsRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Fold a finalized (or suspended) run into the aggregates. {@code finishedRun} is null for a run that only
+     * parked on a DELAY: its node samples count now, the run itself once it ends.
+     */
+    public void record(Long workflowId, WorkflowRun finishedRun, List<RunLogBuffer.NodeSample> samples) {
+        if (workflowId == null) return;
+        try {
+            apply(workflowId, finishedRun, samples);
+        } catch (DataIntegrityViolationException e) {
+            // another run created one of the rows first; it exists now, so the retry only updates
+            try {
+                apply(workflowId, finishedRun, samples);
+            } catch (Exception retryEx) {
+                log.warn("Run stats update failed for workflow {}: {}", workflowId, retryEx.getMessage());
+            }
+        } catch (Exception e) {
+            log.warn("Run stats update failed for workflow {}: {}", workflowId, e.getMessage());
+        }
+    }
+
+    private void apply(Long workflowId, WorkflowRun finishedRun, List<RunLogBuffer.NodeSample> samples) {
+        // group first so each row is locked and written once per run; sorted keys give a fixed lock order
+        Map<String, List<RunLogBuffer.NodeSample>> byType = new TreeMap<>();
+        for (RunLogBuffer.NodeSample s : samples) {
+            if (s.nodeType() == null || s.status() == null) continue;
+            byType.computeIfAbsent(s.nodeType(), k -> new ArrayList<>()).add(s);
+        }
+        if (finishedRun == null && byType.isEmpty()) return;
+
+        tx.executeWithoutResult(status -> {
+            if (finishedRun != null) {
+                WorkflowRunStats stats = lockOrCreate(workflowId, WorkflowRunStats.RUN_SCOPE);
+                LatencySketch sketch = LatencySketch.fromBytes(stats.getDurationSketch());
+                LocalDateTime endedAt = finishedRun.getEndedAt() == null ? LocalDateTime.now() : finishedRun.getEndedAt();
+                // execution time, without the wait in the queue
+                LocalDateTime startedAt = finishedRun.getExecutionStartedAt() != null
+                        ? finishedRun.getExecutionStartedAt() : finishedRun.getStartedAt();
+                long durationMs = startedAt == null ? 0
+                        : Math.max(0, Duration.between(startedAt, endedAt).toMillis());
+                add(stats, sketch, finishedRun.getStatus(), durationMs, endedAt);
+                stats.setDurationSketch(sketch.toBytes());
+                statsRepo.save(stats);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            byType.forEach((type, list) -> {
+                WorkflowRunStats stats = lockOrCreate(workflowId, type);
+                LatencySketch sketch = LatencySketch.fromBytes(stats.getDurationSketch());
+                for (RunLogBuffer.NodeSample s : list) {
+                    add(stats, sketch, s.status(), Math.max(0, s.durationMs()), now);
+                }
+                stats.setDurationSketch(sketch.toBytes());
+                statsRepo.save(stats);
+            });
+        });
+    }
+
+    private WorkflowRunStats lockOrCreate(Long workflowId, String nodeType) {
+        return statsRepo.findForUpdate(workflowId, nodeType).orElseGet(() -> statsRepo.saveAndFlush(
+                WorkflowRunStats.builder().workflowId(workflowId).nodeType(nodeType).build()));
+    }
+
+    private static void add(WorkflowRunStats stats, LatencySketch sketch, WorkflowStatus status, long durationMs,
+                            LocalDateTime at) {
+        switch (status) {
+            case SUCCESS:
+                stats.setSuccessCount(stats.getSuccessCount() + 1);
+                stats.setLastSuccessAt(at);
+                break;
+            case FAILED:
+                stats.setFailedCount(stats.getFailedCount() + 1);
+                stats.setLastFailureAt(at);
+                break;
+            case CANCELED:
+                // skipped/canceled executions did not run: counted, but kept out of the latency sketch
+                stats.setCanceledCount(stats.getCanceledCount() + 1);
+                return;
+            default:
+                return;
+        }
+        sketch.add(durationMs);
+        stats.setTotalDurationMs(stats.getTotalDurationMs() + durationMs);
+        stats.setMaxDurationMs(Math.max(stats.getMaxDurationMs(), durationMs));
+    }
+
+    public WorkflowStatsDto getStats(Long workflowId) {
+        RunStatsDto runs = toDto(null);
+        Map<String, RunStatsDto> nodeTypes = new LinkedHashMap<>();
+        for (WorkflowRunStats stats : statsRepo.findByWorkflowIdOrderByNodeType(workflowId)) {
+            if (WorkflowRunStats.RUN_SCOPE.equals(stats.getNodeType())) {
+                runs = toDto(stats);
+            } else {
+                nodeTypes.put(stats.getNodeType(), toDto(stats));
+            }
+        }
+        return new WorkflowStatsDto(workflowId, runs, nodeTypes);
+    }
+
+    @Transactional
+    public void deleteStats(Long workflowId) {
+        statsRepo.deleteByWorkflowId(workflowId);
+    }
+
+    private static RunStatsDto toDto(WorkflowRunStats stats) {
+        if (stats == null) return new RunStatsDto(0, 0, 0, 0, null, null, null, null, null, null, null, null);
+        long finished = stats.getSuccessCount() + stats.getFailedCount();
+        long total = finished + stats.getCanceledCount();
+        LatencySketch sketch = LatencySketch.fromBytes(stats.getDurationSketch());
+        return new RunStatsDto(total, stats.getSuccessCount(), stats.getFailedCount(), stats.getCanceledCount(),
+                finished == 0 ? null : (double) stats.getSuccessCount() / finished,
+                stats.getLastSuccessAt(), stats.getLastFailureAt(),
+                finished == 0 ? null : stats.getTotalDurationMs() / finished,
+                finished == 0 ? null : stats.getMaxDurationMs(),
+                sketch.quantile(0.50), sketch.quantile(0.90), sketch.quantile(0.99));
+    }
+}
@@ -0,0 +1,191 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.OverlapPolicy;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.WorkflowDefinition;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run submission for all triggers. Asynchronous triggers put the run on the durable run queue
+ * ({@link RunQueueService}) and return immediately; workers of any instance pick it up. When the queue is at its
+ * depth limit the caller gets a {@link RunQueueFullException} instead of an unbounded backlog.
+ * <p>
+ * For a workflow with {@code maxConcurrentRuns}, every trigger first goes through {@link #admit}, which applies its
+ * {@link OverlapPolicy} against the active runs counted by {@link RunPermits}. The limit itself is enforced when a
+ * run starts (queue worker or {@link #execute}), so triggers admitted together still never exceed it.
+ */
+@Service
+public class RunSubmissionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RunSubmissionService.class);
+
+    private static final List<WorkflowStatus> CANCELABLE = List.of(WorkflowStatus.QUEUED, WorkflowStatus.RUNNING,
+            WorkflowStatus.WAITING);
+
+    /** What happens to a trigger under the workflow's overlap policy. */
+    public enum Admission {
+        ADMITTED,
+        SKIPPED,
+        COALESCED
+    }
+
+    @Autowired
+    private RunQueueService runQueue;
+
+    @Autowired
+    private WorkflowExecutionService executionService;
+
+    @Autowired
+    private WorkflowDefinitionCache definitions;
+
+    @Autowired
+    private RunPermits permits;
+
+    @Autowired
+    private RunHeartbeatService heartbeats;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+
+    /**
+     * Applies the overlap policy to a new trigger. SKIP drops it while the workflow is at its limit; COALESCE drops
+     * it when a trigger is already pending that takes the last free permit; CANCEL_PREVIOUS cancels the pending
+     * runs and, at the limit, the active ones before admitting it; QUEUE always admits.
+     */
+    public Admission admit(Long workflowId) {
+        WorkflowDefinition definition = definitions.get(workflowId).orElse(null);
+        if (definition == null || definition.getMaxConcurrentRuns() == null) return Admission.ADMITTED;
+        boolean atLimit = permits.active(workflowId) >= definition.getMaxConcurrentRuns();
+        switch (permits.overlapPolicy(definition)) {
+            case SKIP -> {
+                if (atLimit) {
+                    skipped.incrementAndGet();
+                    return Admission.SKIPPED;
+                }
+            }
+            case COALESCE -> {
+                if (permits.active(workflowId) + 1 >= definition.getMaxConcurrentRuns() && runQueue.hasPending(workflowId)) {
+                    coalesced.incrementAndGet();
+                    return Admission.COALESCED;
+                }
+            }
+            case CANCEL_PREVIOUS -> cancelPrevious(workflowId, atLimit);
+            default -> { }
+        }
+        return Admission.ADMITTED;
+    }
+
+    /** API submission: the run is created as QUEUED before returning, so the caller can poll it. */
+    public WorkflowRun submit(Long workflowId) {
+        return runQueue.enqueueRun(workflowId, "API");
+    }
+
+    /**
+     * Synchronous execution on the caller's thread. A workflow at its limit gets the run queued instead (returned
+     * QUEUED), or canceled under SKIP.
+     */
+    public WorkflowRun execute(Long workflowId) {
+        WorkflowDefinition definition = definitions.get(workflowId).orElse(null);
+        if (definition == null || definition.getMaxConcurrentRuns() == null) {
+            return executionService.executeWorkflow(workflowId);
+        }
+        WorkflowRun run = executionService.queueRun(workflowId);
+        if (!permits.tryAcquire(workflowId, run.getId(), definition.getMaxConcurrentRuns())) {
+            if (permits.overlapPolicy(definition) == OverlapPolicy.SKIP) {
+                skipped.incrementAndGet();
+                executionService.cancelQueuedRun(run.getId(), "Skipped: workflow already has "
+                        + definition.getMaxConcurrentRuns() + " active runs");
+                return runRepo.findById(run.getId()).orElse(run);
+            }
+            runQueue.enqueueQueuedRun(workflowId, run.getId(), "API");
+            return run;
+        }
+        WorkflowRun result = null;
+        try {
+            result = executionService.executeRun(run.getId());
+            return result;
+        } finally {
+            if (result == null || result.getStatus() != WorkflowStatus.WAITING) permits.release(workflowId, run.getId());
+        }
+    }
+
+    /**
+     * Scheduler submission: queues one run per admitted id (an id may repeat) in one batch without waiting on
+     * execution. Returns false when nothing could be queued (queue full or database unavailable).
+     */
+    public boolean trySubmitAll(List<Long> workflowIds) {
+        try {
+            submitAll(workflowIds, "SCHEDULE");
+            return true;
+        } catch (RunQueueFullException e) {
+            return false;
+        } catch (Exception e) {
+            log.warn("Queueing {} scheduled runs failed: {}", workflowIds.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Admits each trigger (an id may repeat) and queues the admitted ones in one batch; under COALESCE a workflow
+     * gets at most one run per batch. Returns how many runs were queued; throws {@link RunQueueFullException}.
+     */
+    public int submitAll(List<Long> workflowIds, String source) {
+        List<Long> admitted = new ArrayList<>(workflowIds.size());
+        Set<Long> inBatch = new HashSet<>();
+        for (Long workflowId : workflowIds) {
+            boolean first = inBatch.add(workflowId);
+            if (!first && coalesces(workflowId)) {
+                coalesced.incrementAndGet();
+                continue;
+            }
+            if (admit(workflowId) == Admission.ADMITTED) admitted.add(workflowId);
+        }
+        runQueue.enqueueAll(admitted, source);
+        return admitted.size();
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>(permits.metrics());
+        m.put("triggersSkipped", skipped.get());
+        m.put("triggersCoalesced", coalesced.get());
+        m.put("runsSuperseded", superseded.get());
+        m.put("runLiveness", heartbeats.metrics());
+        return m;
+    }
+
+    private boolean coalesces(Long workflowId) {
+        WorkflowDefinition definition = definitions.get(workflowId).orElse(null);
+        return definition != null && definition.getMaxConcurrentRuns() != null
+                && permits.overlapPolicy(definition) == OverlapPolicy.COALESCE;
+    }
+
+    // the new trigger supersedes what is still pending, and at the limit also what is running
+    private void cancelPrevious(Long workflowId, boolean atLimit) {
+        List<WorkflowStatus> statuses = atLimit ? CANCELABLE : List.of(WorkflowStatus.QUEUED);
+        int canceled = runQueue.dropPending(workflowId);
+        for (Long runId : runRepo.findIdsByWorkflowAndStatus(workflowId, statuses)) {
+            executionService.cancelRun(runId, "Canceled: superseded by a newer run");
+            canceled++;
+        }
+        superseded.addAndGet(canceled);
+        if (canceled > 0) log.debug("Workflow {}: {} earlier runs superseded", workflowId, canceled);
+    }
+}
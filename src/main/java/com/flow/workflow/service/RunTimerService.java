@@ -0,0 +1,70 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable timer for runs suspended by DELAY nodes. The resume point lives in the
+ * workflow_run row, so waiting runs hold no thread or connection and survive restarts;
+ * this service polls for due runs and resumes them on the run worker pool.
+ */
+@Service
+public class RunTimerService {
+
+    private static final Logger log = LoggerFactory.getLogger(RunTimerService.class);
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowExecutionService executionService;
+
+    @Autowired
+    @Qualifier("runExecutor")
+    private ThreadPoolTaskExecutor runExecutor;
+
+    @Value("${workflow.delay.batch-size:100}")
+    private int batchSize;
+
+    // runs handed to the pool but not yet finished — keeps the next tick from submitting them again
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Scheduled(fixedDelayString = "${workflow.delay.poll-interval-ms:1000}")
+    public void resumeDueRuns() {
+        List<Long> due = runRepo.findDueRunIds(WorkflowStatus.WAITING, LocalDateTime.now(), PageRequest.of(0, batchSize));
+        for (Long runId : due) {
+            if (!inFlight.add(runId)) continue;
+            try {
+                runExecutor.execute(() -> {
+                    try {
+                        executionService.resumeRun(runId);
+                    } catch (Exception e) {
+                        log.error("Resuming run {} failed: {}", runId, e.getMessage(), e);
+                    } finally {
+                        inFlight.remove(runId);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // pool saturated: the run stays WAITING and is picked up on a later tick
+                inFlight.remove(runId);
+                log.debug("Run pool full, deferring resumption of {} due runs", due.size());
+                break;
+            }
+        }
+    }
+}
@@ -1,81 +1,403 @@
 package com.flow.workflow.service;
 
+import com.flow.workflow.model.MisfirePolicy;
 import com.flow.workflow.model.Workflow;
 import com.flow.workflow.repository.WorkflowRepository;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
-import org.springframework.scheduling.support.CronTrigger;
-import org.springframework.stereotype.Service;
+import com.flow.workflow.scheduling.CronCache;
+import com.flow.workflow.scheduling.ScheduleLeaseManager;
+import com.flow.workflow.scheduling.TimingWheel;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ScheduledFuture;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Cron scheduling for workflows with {@code scheduled=true}. Next fire times of all schedules sit in one
+ * {@link TimingWheel}, advanced every {@code workflow.schedule.tick-ms} by a single task on the shared
+ * {@code taskScheduler}. Firing only puts the runs due in a tick on the run queue, in one batch
+ * ({@link RunSubmissionService#trySubmitAll}), so a slow run never delays other schedules. A fire that is late by
+ * more than {@code misfire-threshold-ms}, or that could not be queued, is handled by the workflow's
+ * {@link MisfirePolicy}. Each fire is a trigger like any other: for a workflow with {@code maxConcurrentRuns} its
+ * overlap policy decides whether it is queued (see {@link RunSubmissionService#admit}).
+ * <p>
+ * With several instances ({@code workflow.schedule.cluster.enabled}), each one only holds the schedules of the
+ * partitions {@link ScheduleLeaseManager} leased to it, checks the leases before firing, and re-reads its
+ * partitions every {@code workflow.schedule.cluster.resync-ms} to pick up schedule changes made on other instances.
+ * <p>
+ * After each tick the fired workflows get {@code lastScheduledFireAt} (only written here); a schedule loaded at
+ * startup or on a lease handover continues from it, so fires missed while nobody held it go through the policy.
+ * Manual, webhook and queued runs never move it.
+ */
 @Service
 public class ScheduleService {
 
-    private final ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
-    private final Map<Long, ScheduledFuture<?>> jobs = new ConcurrentHashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(ScheduleService.class);
+
+    private static final int WHEEL_SIZE = 64;
+    // 100ms ticks: 6.4s, 6.8min, 7.3h, 19d, 3.4y, 218y per level
+    private static final int WHEEL_LEVELS = 6;
 
     @Autowired
     private WorkflowRepository workflowRepo;
 
     @Autowired
-    private WorkflowExecutionService executionService;
+    private RunSubmissionService runSubmissionService;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private CronCache cronCache;
+
+    @Autowired
+    private ScheduleLeaseManager leases;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${workflow.schedule.default-cron:0 */5 * * * *}")
+    private String defaultCron;
+
+    @Value("${workflow.schedule.misfire-policy:SKIP}")
+    private MisfirePolicy defaultMisfirePolicy;
+
+    @Value("${workflow.schedule.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${workflow.schedule.misfire-threshold-ms:60000}")
+    private long misfireThresholdMs;
+
+    @Value("${workflow.schedule.max-catch-up:10}")
+    private int maxCatchUp;
+
+    // delay before a fire that could not be queued is retried (FIRE_ONCE / CATCH_UP)
+    @Value("${workflow.schedule.retry-ms:1000}")
+    private long retryMs;
 
-    // default cron — every minute (0 sec, every minute)
-    private static final String DEFAULT_CRON = "0 */5 * * * *";
+    @Value("${workflow.schedule.cluster.heartbeat-ms:10000}")
+    private long heartbeatMs;
+
+    @Value("${workflow.schedule.cluster.resync-ms:60000}")
+    private long resyncMs;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final Map<Long, Schedule> schedules = new ConcurrentHashMap<>();
+    private TimingWheel<Schedule> wheel;
+    private TransactionTemplate tx;
+    private final List<ScheduledFuture<?>> tasks = new ArrayList<>();
+
+    private final AtomicLong fired = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong caughtUp = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong fenced = new AtomicLong();
+    private volatile long lastTickLagMs;
 
     @PostConstruct
     public void init() {
-        taskScheduler.initialize();
-        jobs.clear();
-        // optionally schedule existing published workflows initially:
-        for (Workflow w : workflowRepo.findAll()) {
-            if (Boolean.TRUE.equals(w.getScheduled())) {
-                scheduleWorkflow(w);
+        tx = new TransactionTemplate(transactionManager);
+        wheel = new TimingWheel<>(tickMs, WHEEL_SIZE, WHEEL_LEVELS, System.currentTimeMillis());
+        if (leases.isEnabled()) {
+            // schedules are loaded per partition as leases are acquired
+            leases.setListener(new ScheduleLeaseManager.Listener() {
+                @Override
+                public void acquired(int partition, LocalDateTime handoverAt) {
+                    loadPartition(partition, handoverAt);
+                }
+
+                @Override
+                public void released(int partition) {
+                    unloadPartition(partition);
+                }
+            });
+            tasks.add(taskScheduler.scheduleWithFixedDelay(leases::heartbeat, Duration.ofMillis(heartbeatMs)));
+            tasks.add(taskScheduler.scheduleWithFixedDelay(this::resync, Instant.now().plusMillis(resyncMs),
+                    Duration.ofMillis(resyncMs)));
+        } else {
+            for (WorkflowRepository.ScheduleSpec s : workflowRepo.findScheduleSpecs()) {
+                // resume from the last scheduled fire so fires missed while no instance was up go through the misfire policy
+                schedule(s, null);
             }
+            log.info("Scheduled {} workflows", schedules.size());
         }
+        tasks.add(taskScheduler.scheduleAtFixedRate(this::tick, Duration.ofMillis(tickMs)));
     }
 
+    @PreDestroy
+    public void shutdown() {
+        tasks.forEach(t -> t.cancel(false));
+        if (leases.isEnabled()) leases.releaseAll();
+    }
+
+    /**
+     * (Re)schedules a workflow from its cron and misfire policy; the next fire is computed from now. In a cluster
+     * only the instance holding the workflow's partition schedules it; the others leave it to that instance's resync.
+     */
     public void scheduleWorkflow(Workflow w) {
         if (w == null || w.getId() == null) return;
+        if (leases.isEnabled() && !leases.holds(leases.partitionOf(w.getId()))) return;
+        schedule(w.getId(), w.getCron(), w.getMisfirePolicy(), System.currentTimeMillis());
+    }
+
+    /** Throws IllegalArgumentException for an invalid cron expression; null/blank means the default cron. */
+    public void validateCron(String cron) {
+        cronCache.get(cron == null || cron.isBlank() ? defaultCron : cron);
+    }
+
+    public void cancel(Long workflowId) {
+        Schedule s = schedules.remove(workflowId);
+        if (s != null) {
+            synchronized (this) {
+                if (s.timeout != null) s.timeout.cancel();
+            }
+        }
+    }
+
+    // next fire after max(last scheduled fire, handover from the previous lease holder), or after now for a new schedule
+    private void schedule(WorkflowRepository.ScheduleSpec spec, LocalDateTime handoverAt) {
+        long now = System.currentTimeMillis();
+        long from = spec.getLastScheduledFireAt() == null ? now : toMillis(spec.getLastScheduledFireAt());
+        if (handoverAt != null) from = Math.max(from, toMillis(handoverAt));
+        try {
+            schedule(spec.getId(), spec.getCron(), spec.getMisfirePolicy(), Math.min(from, now));
+        } catch (IllegalArgumentException e) {
+            log.warn("Workflow {} has an invalid cron '{}', not scheduled: {}", spec.getId(), spec.getCron(), e.getMessage());
+        }
+    }
 
-        // try to read cron from workflow if it exists (use reflection to be safe)
-        String cron = DEFAULT_CRON;
+    private void schedule(Long workflowId, String cronText, MisfirePolicy policy, long fromMillis) {
+        CronExpression cron = cronCache.get(cronText == null || cronText.isBlank() ? defaultCron : cronText);
+        Schedule s = new Schedule(workflowId, leases.partitionOf(workflowId), cronText, policy, cron,
+                policy == null ? defaultMisfirePolicy : policy);
+        long first = nextAfter(cron, fromMillis);
+        cancel(workflowId);
+        if (first < 0) return;
+        s.nextFireAt = first;
+        schedules.put(workflowId, s);
+        synchronized (this) {
+            s.timeout = wheel.schedule(s, first);
+        }
+    }
+
+    private void loadPartition(int partition, LocalDateTime handoverAt) {
+        List<WorkflowRepository.ScheduleSpec> specs =
+                workflowRepo.findScheduleSpecs(leases.getPartitions(), List.of((long) partition));
+        for (WorkflowRepository.ScheduleSpec spec : specs) schedule(spec, handoverAt);
+        log.debug("Loaded {} schedules of partition {}", specs.size(), partition);
+    }
+
+    private void unloadPartition(int partition) {
+        for (Schedule s : new ArrayList<>(schedules.values())) {
+            if (s.partition == partition) cancel(s.workflowId);
+        }
+    }
+
+    /** Brings the held partitions in line with the database: new, changed, disabled and deleted schedules. */
+    void resync() {
         try {
-            // safe reflective call — if method absence or exception, we keep default
-            var m = w.getClass().getMethod("getCron");
-            if (m != null) {
-                Object v = m.invoke(w);
-                if (v instanceof String && ((String)v).trim().length() > 0) cron = (String) v;
+            Set<Integer> held = leases.ownedPartitions();
+            if (held.isEmpty()) return;
+            List<Long> owned = held.stream().map(Integer::longValue).toList();
+            Map<Long, WorkflowRepository.ScheduleSpec> specs = new HashMap<>();
+            for (WorkflowRepository.ScheduleSpec spec : workflowRepo.findScheduleSpecs(leases.getPartitions(), owned)) {
+                specs.put(spec.getId(), spec);
+            }
+            for (Schedule s : new ArrayList<>(schedules.values())) {
+                if (!specs.containsKey(s.workflowId) && held.contains(s.partition)) cancel(s.workflowId);
+            }
+            for (WorkflowRepository.ScheduleSpec spec : specs.values()) {
+                if (!leases.holds(leases.partitionOf(spec.getId()))) continue;
+                Schedule current = schedules.get(spec.getId());
+                if (current != null && Objects.equals(current.cronSpec, spec.getCron())
+                        && current.policySpec == spec.getMisfirePolicy()) continue;
+                // enabled or changed on another instance: start from now, like a local enable
+                try {
+                    schedule(spec.getId(), spec.getCron(), spec.getMisfirePolicy(), System.currentTimeMillis());
+                } catch (IllegalArgumentException e) {
+                    log.warn("Workflow {} has an invalid cron '{}', not scheduled", spec.getId(), spec.getCron());
+                }
             }
-        } catch (NoSuchMethodException ignored) {
-            // workflow has no getCron() — use default
         } catch (Exception e) {
-            // fallback to default on any other exception
+            log.warn("Schedule resync failed: {}", e.getMessage());
         }
+    }
 
-        System.out.println("Scheduling workflow " + w.getId() + " with cron: " + cron);
+    void tick() {
+        long now = System.currentTimeMillis();
+        List<Schedule> due;
+        synchronized (this) {
+            due = wheel.advanceTo(now);
+        }
+        if (due.isEmpty()) return;
+        // fencing: one lease check per tick, right before firing
+        Set<Integer> verified = leases.isEnabled() ? leases.verifiedPartitions() : null;
+        long lag = 0;
+        List<Schedule> firing = new ArrayList<>(due.size());
+        List<Long> runs = new ArrayList<>(due.size());
+        List<Schedule> rearm = new ArrayList<>(due.size());
+        for (Schedule s : due) {
+            if (s.retryAt == 0) lag = Math.max(lag, now - s.nextFireAt);
+            if (verified != null && !verified.contains(s.partition)) {
+                // lease lost or unverifiable: don't fire; the heartbeat drops the partition if it is really gone
+                fenced.incrementAndGet();
+                s.retryAt = 0;
+                s.nextFireAt = nextAfter(s.cron, now);
+                if (s.nextFireAt >= 0) rearm.add(s);
+                continue;
+            }
+            s.pendingFires = plan(s, now);
+            for (int i = 0; i < s.pendingFires; i++) runs.add(s.workflowId);
+            firing.add(s);
+        }
+        // all runs of this tick go to the run queue in one batch
+        boolean queued = runs.isEmpty() || runSubmissionService.trySubmitAll(runs);
+        List<Long> handled = new ArrayList<>(firing.size());
+        for (Schedule s : firing) {
+            if (settle(s, now, queued)) rearm.add(s);
+            // a fire kept for retry is not done yet
+            if (s.retryAt == 0) handled.add(s.workflowId);
+        }
+        recordFires(handled, now);
+        lastTickLagMs = lag;
+        synchronized (this) {
+            for (Schedule s : rearm) {
+                // canceled or replaced while firing
+                if (schedules.get(s.workflowId) != s) continue;
+                s.timeout = wheel.schedule(s, s.retryAt > 0 ? s.retryAt : s.nextFireAt);
+            }
+        }
+    }
 
-        // cancel existing job if any
-        cancel(w.getId());
+    // fires up to now are dealt with; a failed write only means a restart may treat some of them as missed
+    private void recordFires(List<Long> workflowIds, long now) {
+        if (workflowIds.isEmpty()) return;
+        LocalDateTime firedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), zone);
+        try {
+            tx.executeWithoutResult(status -> {
+                for (int i = 0; i < workflowIds.size(); i += 1000) {
+                    workflowRepo.updateLastScheduledFire(workflowIds.subList(i, Math.min(i + 1000, workflowIds.size())),
+                            firedAt);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("Recording the scheduled fire of {} workflows failed: {}", workflowIds.size(), e.getMessage());
+        }
+    }
 
-        CronTrigger trigger = new CronTrigger(cron);
-        ScheduledFuture<?> future = taskScheduler.schedule(() -> {
-            try {
-                executionService.executeWorkflow(w.getId());
-            } catch (Exception e) {
-                System.err.println("Scheduled execution failed for workflow " + w.getId() + ": " + e.getMessage());
+    /** Number of runs the due schedule fires now, per its misfire policy when the fire is late. */
+    private int plan(Schedule s, long now) {
+        long fireAt = s.nextFireAt;
+        if (now - fireAt <= misfireThresholdMs) return 1;
+        int fires = 0;
+        if (s.policy == MisfirePolicy.FIRE_ONCE) {
+            fires = 1;
+        } else if (s.policy == MisfirePolicy.CATCH_UP) {
+            for (long t = fireAt; t >= 0 && t <= now && fires < maxCatchUp; t = nextAfter(s.cron, t)) fires++;
+            caughtUp.addAndGet(fires);
+        }
+        skipped.addAndGet(Math.max(0, countFires(s.cron, fireAt, now) - fires));
+        return fires;
+    }
+
+    /** Moves the schedule on after its runs were queued (or not). Returns false to unschedule. */
+    private boolean settle(Schedule s, long now, boolean queued) {
+        s.retryAt = 0;
+        if (queued) {
+            fired.addAndGet(s.pendingFires);
+        } else if (s.pendingFires > 0) {
+            rejected.addAndGet(s.pendingFires);
+            if (s.policy != MisfirePolicy.SKIP) {
+                // keep the missed fire time; once it is late the policy decides what to do with it
+                s.retryAt = now + retryMs;
+                return true;
             }
-        }, trigger);
+            log.warn("Run queue unavailable, skipped scheduled run of workflow {}", s.workflowId);
+        }
+        s.nextFireAt = nextAfter(s.cron, now);
+        return s.nextFireAt >= 0;
+    }
 
-        jobs.put(w.getId(), future);
+    // fire times in [from, to], counted up to a cap so a long outage with a seconds cron stays cheap
+    private long countFires(CronExpression cron, long from, long to) {
+        long n = 0;
+        for (long t = from; t >= 0 && t <= to && n < 1000; t = nextAfter(cron, t)) n++;
+        return n;
     }
 
-    public void cancel(Long workflowId) {
-        ScheduledFuture<?> f = jobs.remove(workflowId);
-        if (f != null) f.cancel(false);
+    private long nextAfter(CronExpression cron, long millis) {
+        ZonedDateTime next = cron.next(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), zone));
+        return next == null ? -1 : next.toInstant().toEpochMilli();
+    }
+
+    private long toMillis(LocalDateTime t) {
+        return t.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("schedules", schedules.size());
+        synchronized (this) {
+            m.put("pendingTimers", wheel == null ? 0 : wheel.size());
+        }
+        m.put("cronExpressions", cronCache.size());
+        m.put("fired", fired.get());
+        m.put("skippedMisfires", skipped.get());
+        m.put("caughtUp", caughtUp.get());
+        m.put("rejected", rejected.get());
+        m.put("fenced", fenced.get());
+        m.put("lastTickLagMs", lastTickLagMs);
+        m.put("tickMs", tickMs);
+        m.put("defaultCron", defaultCron);
+        m.put("defaultMisfirePolicy", defaultMisfirePolicy);
+        m.put("cluster", leases.metrics());
+        return m;
+    }
+
+    private static final class Schedule {
+        final Long workflowId;
+        final int partition;
+        // as stored on the workflow (null = default), to spot changes on resync
+        final String cronSpec;
+        final MisfirePolicy policySpec;
+        final CronExpression cron;
+        final MisfirePolicy policy;
+        // next fire time not yet submitted; only touched by the tick thread once scheduled
+        long nextFireAt;
+        long retryAt;
+        int pendingFires;
+        TimingWheel.Timeout<Schedule> timeout;
+
+        Schedule(Long workflowId, int partition, String cronSpec, MisfirePolicy policySpec, CronExpression cron,
+                 MisfirePolicy policy) {
+            this.workflowId = workflowId;
+            this.partition = partition;
+            this.cronSpec = cronSpec;
+            this.policySpec = policySpec;
+            this.cron = cron;
+            this.policy = policy;
+        }
     }
 }
@@ -0,0 +1,155 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Webhook ingestion. A request only puts the trigger in a bounded in-memory buffer and returns; a full buffer
+ * answers 429 with Retry-After ({@link RunQueueFullException}). Every {@code workflow.webhook.flush-ms} the buffer
+ * is drained in batches of {@code batch-size} into the run queue ({@link RunSubmissionService#submitAll}, which also
+ * applies the workflows' overlap policies), so a burst costs one insert batch per few hundred triggers instead of
+ * one transaction and thread per request. When the run queue refuses a batch it is kept and retried, the buffer
+ * fills up and callers are pushed back.
+ * <p>
+ * Before buffering, a trigger is dropped if its {@code Idempotency-Key} was seen for the workflow within
+ * {@code idempotency-ttl-ms}, or if another trigger of the workflow was accepted within {@code coalesce-window-ms}
+ * (a webhook trigger carries no payload, so such triggers are interchangeable). Both are per instance and
+ * LRU-bounded. Triggers still in the buffer are lost if the process dies; shutdown flushes them.
+ */
+@Service
+public class WebhookIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(WebhookIngestService.class);
+
+    /** What happened to an incoming webhook trigger. */
+    public enum Outcome {
+        ACCEPTED,
+        DUPLICATE,
+        COALESCED
+    }
+
+    @Autowired
+    private RunSubmissionService runSubmissionService;
+
+    @Value("${workflow.webhook.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${workflow.webhook.batch-size:500}")
+    private int batchSize;
+
+    @Value("${workflow.webhook.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    @Value("${workflow.webhook.idempotency-ttl-ms:3600000}")
+    private long idempotencyTtlMs;
+
+    @Value("${workflow.webhook.idempotency-max-keys:100000}")
+    private int idempotencyMaxKeys;
+
+    @Value("${workflow.webhook.coalesce-window-ms:1000}")
+    private long coalesceWindowMs;
+
+    private BlockingQueue<Long> buffer;
+    // "workflowId:key" of recently accepted triggers
+    private BoundedTtlCache<String, Boolean> seenKeys;
+    // workflows with a trigger accepted within the coalesce window
+    private BoundedTtlCache<Long, Boolean> recent;
+    // drained batch the run queue refused; retried before draining more
+    private List<Long> retry = List.of();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushed = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        buffer = new ArrayBlockingQueue<>(Math.max(1, bufferCapacity));
+        seenKeys = new BoundedTtlCache<>(idempotencyMaxKeys);
+        recent = new BoundedTtlCache<>(idempotencyMaxKeys);
+    }
+
+    /** Buffers a trigger of the workflow unless it is a duplicate or coalesced; throws when the buffer is full. */
+    public Outcome accept(Long workflowId, String idempotencyKey) {
+        long now = System.currentTimeMillis();
+        String key = idempotencyKey == null || idempotencyKey.isBlank() ? null : workflowId + ":" + idempotencyKey;
+        if (key != null && seenKeys.putIfAbsent(key, Boolean.TRUE, now + idempotencyTtlMs) != null) {
+            duplicates.incrementAndGet();
+            return Outcome.DUPLICATE;
+        }
+        if (coalesceWindowMs > 0 && recent.putIfAbsent(workflowId, Boolean.TRUE, now + coalesceWindowMs) != null) {
+            coalesced.incrementAndGet();
+            return Outcome.COALESCED;
+        }
+        if (!buffer.offer(workflowId)) {
+            // not accepted: a retry with the same key must go through
+            if (key != null) seenKeys.remove(key);
+            if (coalesceWindowMs > 0) recent.remove(workflowId);
+            rejected.incrementAndGet();
+            throw new RunQueueFullException("Webhook buffer is full, try again later", retryAfterSeconds);
+        }
+        accepted.incrementAndGet();
+        return Outcome.ACCEPTED;
+    }
+
+    @Scheduled(fixedDelayString = "${workflow.webhook.flush-ms:100}")
+    public synchronized void flush() {
+        while (true) {
+            List<Long> batch = retry;
+            if (batch.isEmpty()) {
+                batch = new ArrayList<>(Math.min(batchSize, buffer.size()));
+                buffer.drainTo(batch, batchSize);
+                if (batch.isEmpty()) return;
+            }
+            try {
+                runSubmissionService.submitAll(batch, "WEBHOOK");
+                flushed.addAndGet(batch.size());
+                retry = List.of();
+            } catch (Exception e) {
+                // keep the batch; the buffer pushes back on callers until the run queue takes it
+                retry = batch;
+                if (!(e instanceof RunQueueFullException)) {
+                    log.warn("Queueing {} webhook triggers failed: {}", batch.size(), e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+        int left = buffer.size() + retry.size();
+        if (left > 0) log.warn("{} webhook triggers were not queued before shutdown", left);
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("buffered", buffer.size());
+        m.put("bufferCapacity", bufferCapacity);
+        m.put("retrying", retry.size());
+        m.put("accepted", accepted.get());
+        m.put("duplicates", duplicates.get());
+        m.put("coalesced", coalesced.get());
+        m.put("rejected", rejected.get());
+        m.put("flushed", flushed.get());
+        m.put("idempotencyKeys", seenKeys.metrics());
+        return m;
+    }
+}
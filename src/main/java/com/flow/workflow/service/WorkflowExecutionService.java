@@ -7,4 +7,32 @@ public interface WorkflowExecutionService {
      * Execute the workflow and return the persisted WorkflowRun instance.
      */
     WorkflowRun executeWorkflow(Long workflowId);
+
+    /**
+     * Persist a new run in QUEUED state without executing it.
+     */
+    WorkflowRun queueRun(Long workflowId);
+
+    /**
+     * Execute a run previously created by {@link #queueRun(Long)}.
+     * Runs that are no longer QUEUED (e.g. canceled) are returned untouched.
+     */
+    WorkflowRun executeRun(Long runId);
+
+    /**
+     * Continue a WAITING run (suspended by a DELAY node) from its stored next-node index.
+     * Returns the run untouched when it was already resumed elsewhere.
+     */
+    WorkflowRun resumeRun(Long runId);
+
+    /**
+     * Mark a QUEUED run as CANCELED, recording the reason in a SYSTEM log entry.
+     */
+    void cancelQueuedRun(Long runId, String reason);
+
+    /**
+     * Cancel a QUEUED or WAITING run right away; a RUNNING run executing on this instance stops before its next
+     * node and ends CANCELED. Finished runs (and runs executing on other instances) are left alone.
+     */
+    void cancelRun(Long runId, String reason);
 }
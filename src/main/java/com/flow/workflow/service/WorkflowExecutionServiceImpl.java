@@ -1,25 +1,39 @@
 package com.flow.workflow.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flow.workflow.model.*;
 import com.flow.workflow.repository.*;
-import com.flow.workflow.executor.NotifyExecutor;
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.executor.NodeOutcome;
+import com.flow.workflow.executor.RunContext;
+import com.flow.workflow.plan.DelayStep;
+import com.flow.workflow.plan.PlanStep;
+import com.flow.workflow.plan.WorkflowPlan;
+import com.flow.workflow.plan.WorkflowDefinition;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.context.annotation.Primary;
 
 import java.time.LocalDateTime;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Supplier;
+
+import static com.flow.workflow.util.OutputTruncator.compactAndTruncate;
+
 @Primary
 @Service
 public class WorkflowExecutionServiceImpl implements WorkflowExecutionService {
 
+    private static final Logger log = LoggerFactory.getLogger(WorkflowExecutionServiceImpl.class);
+
     @Autowired
     private WorkflowRepository workflowRepo;
 
@@ -30,93 +44,237 @@ public class WorkflowExecutionServiceImpl implements WorkflowExecutionService {
     private WorkflowRunLogRepository logRepo;
 
     @Autowired
-    private NotifyExecutor notifyExecutor;
+    private NodeExecutorRegistry executorRegistry;
 
-    private final RestTemplate restTemplate = new RestTemplate();
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private DagExecutionEngine dagEngine;
 
-    // truncate outputs longer than this to avoid huge DB fields / noisy logs
-    private static final int MAX_OUTPUT_LENGTH = 5_000;
+    @Autowired
+    private WorkflowDefinitionCache definitions;
+
+    @Autowired
+    private RunLogWriter logWriter;
+
+    @Autowired
+    private RunStatsService statsService;
+
+    @Autowired
+    private RunPermits permits;
+
+    @Autowired
+    private RunHeartbeatService heartbeats;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${workflow.execution.transaction-per-step:true}")
+    private boolean transactionPerStep;
+
+    private TransactionTemplate tx;
+    // outside the run's transaction: still commits when that one is rolled back
+    private TransactionTemplate failTx;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        tx = new TransactionTemplate(transactionManager);
+        failTx = new TransactionTemplate(transactionManager);
+        failTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
 
     @Override
-    @Transactional
     public WorkflowRun executeWorkflow(Long workflowId) {
-        Workflow workflow = workflowRepo.findById(workflowId)
-                .orElseThrow(() -> new RuntimeException("Workflow not found"));
+        return inRunTransaction(() -> {
+            // cached definition: no workflow or node query on the steady-state path
+            WorkflowDefinition definition = definitions.get(workflowId)
+                    .orElseThrow(() -> new RuntimeException("Workflow not found"));
+            StartedRun started = tx.execute(status -> {
+                // Create workflow run entry
+                WorkflowRun run = createRun(workflowId, WorkflowStatus.RUNNING);
+                return new StartedRun(run, definition, 0, new RunContext(run.getId()));
+            });
+            return runNodes(started);
+        });
+    }
 
-        // Create workflow run entry
+    @Override
+    @Transactional
+    public WorkflowRun queueRun(Long workflowId) {
+        if (definitions.get(workflowId).isEmpty()) throw new RuntimeException("Workflow not found");
+        return createRun(workflowId, WorkflowStatus.QUEUED);
+    }
+
+    @Override
+    public WorkflowRun executeRun(Long runId) {
+        return inRunTransaction(() -> {
+            StartedRun started = tx.execute(status -> {
+                WorkflowRun run = runRepo.findById(runId)
+                        .orElseThrow(() -> new RuntimeException("Run not found"));
+                if (run.getStatus() != WorkflowStatus.QUEUED) {
+                    // already picked up or canceled meanwhile
+                    return new StartedRun(run);
+                }
+                run.setStatus(WorkflowStatus.RUNNING);
+                // startedAt stays the enqueue time: it is the run history sort key
+                run.setExecutionStartedAt(LocalDateTime.now());
+                run.setOwnerId(heartbeats.ownerId());
+                run.setHeartbeatAt(heartbeats.now());
+                run = runRepo.saveAndFlush(run);
+                return new StartedRun(run, definitionOf(run), 0, new RunContext(run.getId()));
+            });
+            return started.skip ? started.run : runNodes(started);
+        });
+    }
+
+    @Override
+    public WorkflowRun resumeRun(Long runId) {
+        return inRunTransaction(() -> {
+            StartedRun started = tx.execute(status -> {
+                // conditional WAITING -> RUNNING update: only one caller (timer tick, other instance) wins the run
+                if (runRepo.claimWaitingRun(runId) == 0) {
+                    return new StartedRun(runRepo.findById(runId).orElse(null));
+                }
+                WorkflowRun run = runRepo.findById(runId)
+                        .orElseThrow(() -> new RuntimeException("Run not found"));
+                int startIndex = run.getResumeNodeIndex() == null ? 0 : run.getResumeNodeIndex();
+                run.setResumeNodeIndex(null);
+                run.setOwnerId(heartbeats.ownerId());
+                run.setHeartbeatAt(heartbeats.now());
+                log.info("Resuming run id={} at node index {}", runId, startIndex);
+                // outputs of the steps before the suspension only survive in the run's logs
+                StartedRun resumed = new StartedRun(run, definitionOf(run), startIndex, null);
+                if (resumed.plan != null) {
+                    resumed.history = logRepo.findByRun_IdOrderByStartedAtAsc(run.getId());
+                    resumed.context = RunContext.fromLogs(run.getId(), resumed.plan, resumed.history,
+                            logWriter::fullOutput);
+                }
+                return resumed;
+            });
+            return started.skip ? started.run : runNodes(started);
+        });
+    }
+
+    /**
+     * With transaction-per-step (the default) a run only holds a DB connection inside the short transactions
+     * around it: start, log flushes, finalize. Otherwise the whole run shares one transaction, as it used to.
+     */
+    private WorkflowRun inRunTransaction(Supplier<WorkflowRun> body) {
+        return transactionPerStep ? body.get() : tx.execute(status -> body.get());
+    }
+
+    @Override
+    @Transactional
+    public void cancelQueuedRun(Long runId, String reason) {
+        runRepo.findById(runId).ifPresent(run -> {
+            if (run.getStatus() != WorkflowStatus.QUEUED) return;
+            LocalDateTime now = LocalDateTime.now();
+            run.setStatus(WorkflowStatus.CANCELED);
+            run.setEndedAt(now);
+            runRepo.save(run);
+            logRepo.save(systemLog(run, WorkflowStatus.CANCELED, reason));
+        });
+    }
+
+    @Override
+    public void cancelRun(Long runId, String reason) {
+        WorkflowRun run = runRepo.findById(runId).orElse(null);
+        if (run == null) return;
+        switch (run.getStatus()) {
+            case QUEUED -> {
+                tx.execute(status -> {
+                    cancelQueuedRun(runId, reason);
+                    return null;
+                });
+                permits.release(run.getWorkflow().getId(), runId);
+            }
+            case WAITING -> {
+                Long workflowId = run.getWorkflow().getId();
+                boolean canceled = Boolean.TRUE.equals(tx.execute(status -> {
+                    if (runRepo.cancelWaitingRun(runId, LocalDateTime.now()) == 0) return false;
+                    logRepo.save(systemLog(runRepo.getReferenceById(runId), WorkflowStatus.CANCELED, reason));
+                    return true;
+                }));
+                // resumed meanwhile: stop it at its next node instead
+                if (canceled) permits.release(workflowId, runId);
+                else permits.requestCancel(runId);
+            }
+            case RUNNING -> {
+                // a run whose worker died has no thread to see the flag: end it here
+                if (!heartbeats.cancelIfOrphaned(runId, run.getWorkflow().getId(), reason)) {
+                    permits.requestCancel(runId);
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private WorkflowRunLog systemLog(WorkflowRun run, WorkflowStatus status, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        return WorkflowRunLog.builder()
+                .run(run)
+                .nodeType("SYSTEM")
+                .status(status)
+                .startedAt(now)
+                .endedAt(now)
+                .error(error)
+                .build();
+    }
+
+    private WorkflowRun createRun(Long workflowId, WorkflowStatus status) {
+        LocalDateTime now = LocalDateTime.now();
         WorkflowRun run = WorkflowRun.builder()
-                .workflow(workflow)
-                .startedAt(LocalDateTime.now())
-                .status(WorkflowStatus.RUNNING)
+                // reference only: the definition came from the cache, no need to select the row
+                .workflow(workflowRepo.getReferenceById(workflowId))
+                .startedAt(now)
+                .status(status)
                 .build();
+        if (status == WorkflowStatus.RUNNING) {
+            run.setExecutionStartedAt(now);
+            run.setOwnerId(heartbeats.ownerId());
+            run.setHeartbeatAt(heartbeats.now());
+        }
         run = runRepo.saveAndFlush(run);
-        System.out.println("Created run id=" + run.getId());
+        log.debug("Created run id={} status={}", run.getId(), status);
+        return run;
+    }
+
+    // the run's workflow association is a lazy proxy; reading its id does not load it
+    private WorkflowDefinition definitionOf(WorkflowRun run) {
+        return definitions.get(run.getWorkflow().getId())
+                .orElseThrow(() -> new RuntimeException("Workflow not found"));
+    }
 
+    /**
+     * Drive the run to completion (or suspension). Linear workflows execute steps by orderIndex;
+     * DAG workflows are handed to {@link DagExecutionEngine}. No transaction is open while nodes execute;
+     * the outcome is written in one short transaction at the end.
+     */
+    private WorkflowRun runNodes(StartedRun started) {
+        WorkflowRun run = started.run;
+        boolean suspended = false;
+        // node logs are written behind, in batches; flushed at the latest before the run is saved
+        RunLogBuffer logs = logWriter.open(run);
+        // without transaction-per-step RUNNING is never committed before the run ends: nothing to vouch for
+        if (transactionPerStep) heartbeats.begin(run.getId());
         try {
-            // Execute nodes in order
-            List<Node> nodes = workflow.getNodes();
-            if (nodes != null) {
-                nodes.sort(Comparator.comparingInt(Node::getOrderIndex));
-
-                for (Node node : nodes) {
-                    System.out.println("Executing node: " + node.getType());
-
-                    // create log entry before execution
-                    WorkflowRunLog log = WorkflowRunLog.builder()
-                            .run(run)
-                            .nodeId(node.getId())
-                            .nodeType(node.getType())
-                            .status(WorkflowStatus.RUNNING)
-                            .startedAt(LocalDateTime.now())
-                            .build();
-                    log = logRepo.save(log);
-
-                    try {
-                        String output = null;
-                        switch (node.getType().toUpperCase()) {
-                            case "HTTP":
-                                output = executeHttpNode(node);
-                                log.setStatus(WorkflowStatus.SUCCESS);
-                                log.setOutput(compactAndTruncate(output));
-                                break;
-
-                            // DELEGATE NOTIFY nodes to NotifyExecutor (it will read latest HTTP output and persist its own run log)
-                            case "NOTIFY":
-                                // call NotifyExecutor which creates its own log entry (in a REQUIRES_NEW tx)
-                                notifyExecutor.executeNotify(run.getId(), node);
-                                // mark this execution's log as success — NotifyExecutor also persisted its own detailed log
-                                log.setStatus(WorkflowStatus.SUCCESS);
-                                log.setOutput("Delegated notify to NotifyExecutor");
-                                break;
-
-                            case "CONDITION":
-                                output = executeConditionNode(node);
-                                log.setStatus(WorkflowStatus.SUCCESS);
-                                log.setOutput(compactAndTruncate(output));
-                                break;
-                            case "DELAY":
-                                output = executeDelayNode(node);
-                                log.setStatus(WorkflowStatus.SUCCESS);
-                                log.setOutput(compactAndTruncate(output));
-                                break;
-                            default:
-                                output = "Unknown node type: " + node.getType();
-                                log.setStatus(WorkflowStatus.FAILED);
-                                log.setError(output);
-                        }
-                    } catch (Exception nodeEx) {
-                        log.setStatus(WorkflowStatus.FAILED);
-                        log.setError(compactAndTruncate(nodeEx == null ? null : nodeEx.getMessage()));
-                    } finally {
-                        log.setEndedAt(LocalDateTime.now());
-                        logRepo.save(log);
-                    }
-                }
+            if (started.planError != null) throw started.planError;
+            WorkflowPlan plan = started.plan;
+            if (plan.getExecutionMode() == ExecutionMode.DAG) {
+                suspended = dagEngine.execute(run, plan, logs, started.context, started.history);
+            } else {
+                suspended = runLinear(run, started.context, logs, plan.getSteps(), started.startIndex);
             }
 
-            run.setStatus(WorkflowStatus.SUCCESS);
+            if (!suspended) run.setStatus(WorkflowStatus.SUCCESS);
+        } catch (RunCanceledException e) {
+            suspended = false;
+            run.setResumeAt(null);
+            run.setResumeNodeIndex(null);
+            run.setStatus(WorkflowStatus.CANCELED);
+            logs.add(systemLog(run, WorkflowStatus.CANCELED, compactAndTruncate(e.getMessage())));
         } catch (Exception e) {
+            suspended = false;
+            run.setResumeAt(null);
+            run.setResumeNodeIndex(null);
             run.setStatus(WorkflowStatus.FAILED);
             WorkflowRunLog failureLog = WorkflowRunLog.builder()
                     .run(run)
@@ -127,120 +285,162 @@ public class WorkflowExecutionServiceImpl implements WorkflowExecutionService {
                     .endedAt(LocalDateTime.now())
                     .error(compactAndTruncate(e == null ? null : e.getMessage()))
                     .build();
-            logRepo.save(failureLog);
+            logs.add(failureLog);
         } finally {
-            run.setEndedAt(LocalDateTime.now());
-            runRepo.save(run);
-
-            // update workflow metadata
-            workflow.setLastRunAt(run.getEndedAt());
-            workflow.setStatus(run.getStatus());
-            workflowRepo.save(workflow);
+            run = completeRun(started, logs, suspended);
         }
 
         return run;
     }
 
-    // ---- Node Executors (same as you already have) ----
-
-    private String executeHttpNode(Node node) {
+    /**
+     * Writes the run's outcome and gives back its permit. If the finish transaction fails (e.g. a DB blip) the run
+     * is marked FAILED in a transaction of its own instead of staying RUNNING with nobody executing it; the node
+     * or run error logged before is kept. Nothing here throws.
+     */
+    private WorkflowRun completeRun(StartedRun started, RunLogBuffer logs, boolean suspended) {
+        WorkflowRun run = started.run;
+        boolean parked = suspended;
         try {
-            JsonNode configJson = objectMapper.readTree(node.getConfig());
-            String url = configJson.get("url").asText();
-            String method = configJson.has("method")
-                    ? configJson.get("method").asText().toUpperCase()
-                    : "GET";
-
-            HttpHeaders headers = new HttpHeaders();
-            if (configJson.has("headers")) {
-                configJson.get("headers").fields().forEachRemaining(entry -> {
-                    headers.add(entry.getKey(), entry.getValue().asText());
-                });
-            }
-
-            String body = configJson.has("body") ? configJson.get("body").toString() : null;
-            HttpEntity<String> entity = (body != null) ? new HttpEntity<>(body, headers) : new HttpEntity<>(headers);
-
-            ResponseEntity<String> response;
-            if ("POST".equals(method)) {
-                response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-            } else if ("PUT".equals(method)) {
-                response = restTemplate.exchange(url, HttpMethod.PUT, entity, String.class);
-            } else {
-                response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-            }
-            return response.getBody();
-        } catch (Exception e) {
-            throw new RuntimeException("HTTP node failed: " + e.getMessage(), e);
+            run = tx.execute(status -> finishRun(started.run, started.workflowId, logs, suspended));
+        } catch (RuntimeException e) {
+            log.error("Finishing run {} failed, marking it FAILED: {}", run.getId(), e.getMessage(), e);
+            parked = false;
+            failUnfinishedRun(run, started.workflowId, e);
+        } finally {
+            heartbeats.end(run.getId());
+            if (!parked) permits.release(started.workflowId, run.getId());
+        }
+        try {
+            if (!parked) definitions.recordRun(started.workflowId, run.getEndedAt(), run.getStatus());
+            statsService.record(started.workflowId, parked ? null : run, logs.samples());
+        } catch (RuntimeException e) {
+            log.warn("Recording the end of run {} failed: {}", run.getId(), e.getMessage());
         }
+        return run;
     }
 
-    // NOTE: keep executeNotifyNode for testing, but production NOTIFY nodes are handled by NotifyExecutor
-    private String executeNotifyNode(Node node) {
+    private void failUnfinishedRun(WorkflowRun run, Long workflowId, RuntimeException cause) {
+        LocalDateTime now = LocalDateTime.now();
+        run.setStatus(WorkflowStatus.FAILED);
+        run.setEndedAt(now);
+        run.setResumeAt(null);
+        run.setResumeNodeIndex(null);
         try {
-            JsonNode cfg = objectMapper.readTree(node.getConfig());
-            String message = cfg.has("message") ? cfg.get("message").asText() : "Default notification";
-            String webhookUrl = cfg.has("webhookUrl") ? cfg.get("webhookUrl").asText() : null;
-
-            if (webhookUrl == null || webhookUrl.isBlank()) {
-                return "Simulated notify: " + message;
-            }
+            failTx.executeWithoutResult(status -> {
+                if (runRepo.failRunningRun(run.getId(), now) == 0) return;
+                logRepo.save(systemLog(runRepo.getReferenceById(run.getId()), WorkflowStatus.FAILED,
+                        compactAndTruncate("Finishing the run failed: " + cause.getMessage())));
+                workflowRepo.updateLastRun(workflowId, now, WorkflowStatus.FAILED);
+            });
+        } catch (RuntimeException e) {
+            // left RUNNING: without heartbeats RunHeartbeatService fails it once it is stale
+            log.error("Could not mark run {} FAILED either: {}", run.getId(), e.getMessage());
+        }
+    }
 
-            var payload = objectMapper.createObjectNode().put("text", message);
-            String json = objectMapper.writeValueAsString(payload);
+    private WorkflowRun finishRun(WorkflowRun run, Long workflowId, RunLogBuffer logs, boolean suspended) {
+        logs.flush();
+        if (suspended) {
+            // run is parked until its timer fires — no end time or workflow metadata yet
+            return runRepo.save(run);
+        }
+        run.setEndedAt(LocalDateTime.now());
+        WorkflowRun saved = runRepo.save(run);
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<String> entity = new HttpEntity<>(json, headers);
+        // update workflow metadata
+        workflowRepo.updateLastRun(workflowId, saved.getEndedAt(), saved.getStatus());
+        return saved;
+    }
 
-            ResponseEntity<String> resp = restTemplate.exchange(webhookUrl, HttpMethod.POST, entity, String.class);
-            if (!resp.getStatusCode().is2xxSuccessful()) {
-                throw new RuntimeException("Slack returned non-2xx: " + resp.getStatusCode());
-            }
-            return "Slack POST -> status=" + resp.getStatusCodeValue();
-        } catch (Exception e) {
-            throw new RuntimeException("Notify node failed: " + e.getMessage(), e);
+    /**
+     * What a run needs once its start transaction committed: the run and its workflow's compiled plan.
+     */
+    private final class StartedRun {
+        final WorkflowRun run;
+        final boolean skip;
+        final Long workflowId;
+        final int startIndex;
+        WorkflowPlan plan;
+        RuntimeException planError;
+        RunContext context;
+        // log rows written before a suspension; the DAG engine restores its progress from them
+        List<WorkflowRunLog> history = List.of();
+
+        // run someone else already picked up (or that vanished): nothing to execute
+        StartedRun(WorkflowRun run) {
+            this.run = run;
+            this.skip = true;
+            this.workflowId = null;
+            this.startIndex = 0;
         }
-    }
 
-    private String executeConditionNode(Node node) {
-        try {
-            JsonNode configJson = objectMapper.readTree(node.getConfig());
-            String condition = configJson.get("condition").asText();
-            String trueMessage = configJson.has("trueMessage") ? configJson.get("trueMessage").asText() : "Condition true";
-            String falseMessage = configJson.has("falseMessage") ? configJson.get("falseMessage").asText() : "Condition false";
-
-            if (condition.contains(">")) {
-                String[] parts = condition.split(">");
-                int left = Integer.parseInt(parts[0].trim());
-                int right = Integer.parseInt(parts[1].trim());
-                return (left > right) ? trueMessage : falseMessage;
-            } else {
-                return "Unsupported condition format: " + condition;
+        StartedRun(WorkflowRun run, WorkflowDefinition definition, int startIndex, RunContext context) {
+            this.run = run;
+            this.skip = false;
+            this.workflowId = definition.getId();
+            this.startIndex = startIndex;
+            this.context = context;
+            try {
+                // compiled once per workflow definition — no node JSON parsing on the hot path
+                this.plan = definition.getPlan();
+            } catch (RuntimeException e) {
+                this.planError = e;
             }
-        } catch (Exception e) {
-            throw new RuntimeException("Condition node failed: " + e.getMessage(), e);
         }
     }
 
-    private String executeDelayNode(Node node) {
-        try {
-            JsonNode configJson = objectMapper.readTree(node.getConfig());
-            int seconds = configJson.get("seconds").asInt();
-            Thread.sleep(seconds * 1000L);
-            return "Delay of " + seconds + " seconds completed";
-        } catch (Exception e) {
-            throw new RuntimeException("Delay node failed: " + e.getMessage(), e);
-        }
-    }
+    /**
+     * Execute steps in order starting at {@code startIndex}. A DELAY step suspends the run (status WAITING with a
+     * resume timestamp and the index of the next step) and returns true, releasing this thread and the transaction;
+     * {@link RunTimerService} picks it up again through {@link #resumeRun(Long)} once it is due.
+     */
+    private boolean runLinear(WorkflowRun run, RunContext context, RunLogBuffer logs, List<PlanStep> steps,
+                              int startIndex) {
+        for (int i = startIndex; i < steps.size(); i++) {
+            PlanStep step = steps.get(i);
+            if (permits.isCancelRequested(run.getId())) {
+                throw new RunCanceledException("Canceled before node " + step.getOrderIndex() + ": superseded by a newer run");
+            }
+            log.debug("Run {} executing node {} ({})", run.getId(), step.getOrderIndex(), step.getType());
+
+            // log entry is built before execution and written once the step finished
+            WorkflowRunLog stepLog = logs.start(step);
+
+            boolean suspended = false;
+            try {
+                if (step instanceof DelayStep delay) {
+                    String output;
+                    long seconds = delay.getDelay().getSeconds();
+                    if (seconds > 0) {
+                        LocalDateTime resumeAt = LocalDateTime.now().plusSeconds(seconds);
+                        run.setStatus(WorkflowStatus.WAITING);
+                        run.setResumeAt(resumeAt);
+                        run.setResumeNodeIndex(i + 1);
+                        suspended = true;
+                        output = "Delay of " + seconds + " seconds, run resumes at " + resumeAt;
+                    } else {
+                        output = "Delay of " + seconds + " seconds completed";
+                    }
+                    stepLog.setStatus(WorkflowStatus.SUCCESS);
+                    stepLog.setOutput(compactAndTruncate(output));
+                } else {
+                    NodeOutcome outcome = executorRegistry.execute(step, context);
+                    context.record(step, outcome);
+                    stepLog.setStatus(outcome.getStatus());
+                    logs.setOutput(stepLog, outcome.getOutput(), outcome.getOutputRef());
+                    stepLog.setError(compactAndTruncate(outcome.getError()));
+                }
+            } catch (Exception nodeEx) {
+                stepLog.setStatus(WorkflowStatus.FAILED);
+                stepLog.setError(compactAndTruncate(nodeEx == null ? null : nodeEx.getMessage()));
+            } finally {
+                stepLog.setEndedAt(LocalDateTime.now());
+                logs.add(stepLog);
+            }
 
-    // compact whitespace (including newlines) and trim, then optionally truncate
-    private String compactAndTruncate(String s) {
-        if (s == null) return null;
-        String compact = s.replaceAll("\\s+", " ").trim();
-        if (compact.length() > MAX_OUTPUT_LENGTH) {
-            return compact.substring(0, MAX_OUTPUT_LENGTH) + "...[truncated]";
+            if (suspended) return true;
         }
-        return compact;
+        return false;
     }
 }
@@ -0,0 +1,295 @@
+package com.flow.workflow.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flow.workflow.dto.NodeRequest;
+import com.flow.workflow.dto.WorkflowImportResult;
+import com.flow.workflow.dto.WorkflowRequest;
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.Node;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.InvalidStep;
+import com.flow.workflow.plan.PlanStep;
+import com.flow.workflow.plan.WorkflowPlanCompiler;
+import com.flow.workflow.repository.NodeRepository;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.util.ConfigMasker;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.support.CronExpression;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import/export of workflow definitions in the {@link WorkflowRequest} shape, so an export can be
+ * imported elsewhere as-is.
+ * <p>
+ * Import reads the request body as a stream of array elements and validates each one (the same compiler runs
+ * use: node types, configs, DAG dependencies), spooling the valid ones to a temp file. Nothing is inserted until
+ * the whole array was read, so a malformed body or one over {@code workflow.import.max-items} is rejected without
+ * leaving part of it behind. The spooled workflows are then inserted in chunks of
+ * {@code workflow.import.chunk-size}, one transaction per chunk; pooled ids let Hibernate send the inserts as
+ * JDBC batches. A chunk that fails marks only its own items FAILED.
+ */
+@Service
+public class WorkflowTransferService {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkflowTransferService.class);
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private NodeRepository nodeRepo;
+
+    @Autowired
+    private WorkflowPlanCompiler compiler;
+
+    @Autowired
+    private ConfigMasker masker;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${workflow.import.chunk-size:500}")
+    private int chunkSize = 500;
+
+    @Value("${workflow.import.max-items:100000}")
+    private int maxItems = 100_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private TransactionTemplate tx;
+
+    @PostConstruct
+    void initTransactionTemplate() {
+        tx = new TransactionTemplate(transactionManager);
+    }
+
+    public WorkflowImportResult importWorkflows(InputStream body) throws IOException {
+        List<WorkflowImportResult.Item> items = new ArrayList<>();
+        // request order of the spooled (valid) workflows, one per spool line
+        List<Integer> valid = new ArrayList<>();
+        Path spool = Files.createTempFile("workflow-import", ".jsonl");
+        try {
+            try (JsonParser p = objectMapper.getFactory().createParser(body);
+                 BufferedWriter out = Files.newBufferedWriter(spool, StandardCharsets.UTF_8)) {
+                if (p.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("Expected a JSON array of workflows");
+                }
+                int index = 0;
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (index >= maxItems) throw new IllegalArgumentException("At most " + maxItems + " workflows per import");
+                    // one element at a time: a malformed item is reported, the rest of the stream still imports
+                    JsonNode element = p.readValueAsTree();
+                    WorkflowRequest request = null;
+                    String error;
+                    try {
+                        request = objectMapper.treeToValue(element, WorkflowRequest.class);
+                        error = validate(request);
+                    } catch (Exception e) {
+                        error = "Unreadable workflow: " + e.getMessage();
+                    }
+                    String name = request == null ? element.path("name").asText(null) : request.getName();
+                    items.add(new WorkflowImportResult.Item(index, name, error == null ? "CREATED" : "INVALID", null, error));
+                    if (error == null) {
+                        // compact JSON has no raw line breaks: one workflow per line
+                        out.write(objectMapper.writeValueAsString(request));
+                        out.newLine();
+                        valid.add(index);
+                    }
+                    index++;
+                }
+            }
+
+            List<Pending> chunk = new ArrayList<>(chunkSize);
+            try (BufferedReader in = Files.newBufferedReader(spool, StandardCharsets.UTF_8)) {
+                for (int index : valid) {
+                    Workflow w = toEntity(objectMapper.readValue(in.readLine(), WorkflowRequest.class));
+                    w.getNodes().forEach(masker::stamp);
+                    chunk.add(new Pending(index, w));
+                    if (chunk.size() >= chunkSize) {
+                        persist(chunk, items);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) persist(chunk, items);
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+
+        int created = 0, invalid = 0, failed = 0;
+        for (WorkflowImportResult.Item i : items) {
+            switch (i.getStatus()) {
+                case "CREATED" -> created++;
+                case "INVALID" -> invalid++;
+                default -> failed++;
+            }
+        }
+        log.info("Workflow import: {} created, {} invalid, {} failed", created, invalid, failed);
+        return new WorkflowImportResult(created, invalid, failed, items);
+    }
+
+    /** Null if the workflow can be created, else why not. */
+    String validate(WorkflowRequest r) {
+        if (r == null) return "Empty workflow";
+        if (r.getName() == null || r.getName().isBlank()) return "name is required";
+        if ((r.getRetentionMaxRuns() != null && r.getRetentionMaxRuns() < 0)
+                || (r.getRetentionDays() != null && r.getRetentionDays() < 0)) {
+            return "retentionMaxRuns and retentionDays must be >= 0";
+        }
+        if (r.getMaxConcurrentRuns() != null && r.getMaxConcurrentRuns() < 1) return "maxConcurrentRuns must be >= 1";
+        if (r.getCron() != null && !r.getCron().isBlank() && !CronExpression.isValidExpression(r.getCron())) {
+            return "invalid cron: " + r.getCron();
+        }
+        Workflow probe = toEntity(r);
+        long tempId = -1;
+        for (Node n : probe.getNodes()) {
+            if (n.getType() == null || n.getType().isBlank()) return "node " + n.getOrderIndex() + ": type is required";
+            // the compiler orders by (orderIndex, id); transient nodes get placeholder ids
+            n.setId(tempId--);
+        }
+        try {
+            for (PlanStep step : compiler.compile(probe).getSteps()) {
+                if (step instanceof InvalidStep invalid) return "node " + step.getOrderIndex() + ": " + invalid.getError();
+            }
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private Workflow toEntity(WorkflowRequest r) {
+        Workflow w = new Workflow();
+        w.setWorkflowName(r.getName());
+        w.setStatus(WorkflowStatus.DRAFT);
+        w.setExecutionMode(r.getExecutionMode() == null ? ExecutionMode.LINEAR : r.getExecutionMode());
+        w.setRetentionMaxRuns(r.getRetentionMaxRuns());
+        w.setRetentionDays(r.getRetentionDays());
+        w.setCron(r.getCron());
+        w.setMisfirePolicy(r.getMisfirePolicy());
+        w.setMaxConcurrentRuns(r.getMaxConcurrentRuns());
+        w.setOverlapPolicy(r.getOverlapPolicy());
+        List<Node> nodes = new ArrayList<>();
+        if (r.getNodes() != null) {
+            for (NodeRequest nr : r.getNodes()) {
+                Node n = new Node();
+                n.setType(nr.getType());
+                n.setConfig(nr.getConfig());
+                n.setOrderIndex(nr.getOrderIndex());
+                if (nr.getDependsOn() != null && !nr.getDependsOn().isEmpty()) {
+                    n.setDependsOn(nr.getDependsOn().stream().map(String::valueOf).collect(Collectors.joining(",")));
+                }
+                n.setWorkflow(w);
+                nodes.add(n);
+            }
+        }
+        w.setNodes(nodes);
+        return w;
+    }
+
+    private void persist(List<Pending> chunk, List<WorkflowImportResult.Item> items) {
+        try {
+            tx.executeWithoutResult(status -> {
+                // nodes cascade from their workflow; inserts are ordered and batched at flush
+                workflowRepo.saveAll(chunk.stream().map(Pending::workflow).toList());
+                entityManager.flush();
+            });
+            for (Pending pending : chunk) {
+                WorkflowImportResult.Item i = items.get(pending.index());
+                items.set(pending.index(), new WorkflowImportResult.Item(i.getIndex(), i.getName(), "CREATED",
+                        pending.workflow().getId(), null));
+            }
+        } catch (Exception e) {
+            log.warn("Import chunk of {} workflows failed: {}", chunk.size(), e.getMessage());
+            for (Pending pending : chunk) {
+                WorkflowImportResult.Item i = items.get(pending.index());
+                items.set(pending.index(), new WorkflowImportResult.Item(i.getIndex(), i.getName(), "FAILED",
+                        null, e.getMessage()));
+            }
+        } finally {
+            // don't let imported entities pile up in a request-scoped persistence context
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Stream every workflow with its nodes to {@code out} as one JSON array of import documents, reading
+     * {@code pageSize} workflows (plus one node query) at a time. Configs are written unmasked.
+     */
+    public void exportWorkflows(OutputStream out, int pageSize) throws IOException {
+        try (JsonGenerator g = objectMapper.getFactory().createGenerator(out)) {
+            g.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            g.writeStartArray();
+            long afterId = 0;
+            while (true) {
+                long from = afterId;
+                List<WorkflowRequest> page = new ArrayList<>();
+                List<Long> ids = new ArrayList<>();
+                tx.executeWithoutResult(status -> {
+                    List<Workflow> workflows = workflowRepo.findAfterId(from, PageRequest.of(0, pageSize));
+                    Map<Long, List<NodeRequest>> nodes = new HashMap<>();
+                    if (!workflows.isEmpty()) {
+                        for (NodeRepository.NodeSummary n : nodeRepo.findSummariesByWorkflowIds(
+                                workflows.stream().map(Workflow::getId).toList())) {
+                            NodeRequest nr = new NodeRequest();
+                            nr.setType(n.getType());
+                            nr.setConfig(n.getConfig());
+                            nr.setOrderIndex(n.getOrderIndex());
+                            List<Integer> deps = WorkflowPlanCompiler.parseDependsOn(n.getDependsOn());
+                            nr.setDependsOn(deps.isEmpty() ? null : deps);
+                            nodes.computeIfAbsent(n.getWorkflowId(), k -> new ArrayList<>()).add(nr);
+                        }
+                    }
+                    for (Workflow w : workflows) {
+                        WorkflowRequest r = new WorkflowRequest();
+                        r.setName(w.getWorkflowName());
+                        r.setExecutionMode(w.getExecutionMode());
+                        r.setRetentionMaxRuns(w.getRetentionMaxRuns());
+                        r.setRetentionDays(w.getRetentionDays());
+                        r.setCron(w.getCron());
+                        r.setMisfirePolicy(w.getMisfirePolicy());
+                        r.setMaxConcurrentRuns(w.getMaxConcurrentRuns());
+                        r.setOverlapPolicy(w.getOverlapPolicy());
+                        r.setNodes(nodes.getOrDefault(w.getId(), List.of()));
+                        page.add(r);
+                        ids.add(w.getId());
+                    }
+                    entityManager.clear();
+                });
+                for (WorkflowRequest r : page) objectMapper.writeValue(g, r);
+                g.flush();
+                if (ids.size() < pageSize) break;
+                afterId = ids.get(ids.size() - 1);
+            }
+            g.writeEndArray();
+        }
+    }
+
+    private record Pending(int index, Workflow workflow) {}
+}
@@ -0,0 +1,213 @@
+package com.flow.workflow.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content-addressed store for large node outputs: each distinct output is kept once, gzip-compressed, at
+ * {@code <dir>/<first 2 hex chars>/<sha256>.gz}, and run logs reference it as {@code blob:<sha256>}. Storing an
+ * output that already exists only refreshes the file's mtime, which {@link #sweep} uses as a grace period.
+ * Reads memory-map the compressed file.
+ * <p>
+ * Storing and sweeping a hash hold the same lock stripe, and the sweep re-reads the mtime under it right before
+ * deleting: a blob re-referenced while a sweep runs is either kept or written again, never lost.
+ */
+@Component
+public class BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(BlobStore.class);
+
+    public static final String REF_PREFIX = "blob:";
+    private static final String SUFFIX = ".gz";
+    private static final int LOCK_STRIPES = 64;
+
+    private final boolean enabled;
+    private final Path dir;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public BlobStore(@Value("${workflow.blob.enabled:true}") boolean enabled,
+                     @Value("${workflow.blob.dir:${java.io.tmpdir}/workflow-blobs}") String dir) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        boolean ok = enabled;
+        if (enabled) {
+            try {
+                Files.createDirectories(this.dir);
+            } catch (IOException e) {
+                log.warn("Blob directory {} is not usable, outputs stay truncated in the run log: {}",
+                        this.dir, e.getMessage());
+                ok = false;
+            }
+        }
+        this.enabled = ok;
+        for (int i = 0; i < locks.length; i++) locks[i] = new Object();
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public static boolean isBlobRef(String ref) {
+        return ref != null && ref.startsWith(REF_PREFIX);
+    }
+
+    /** Store the text (UTF-8) unless an identical blob exists; returns its ref. */
+    public String put(String text) throws IOException {
+        byte[] data = text.getBytes(StandardCharsets.UTF_8);
+        String hash = sha256(data);
+        Path target = pathOf(hash);
+        synchronized (lockOf(hash)) {
+            if (Files.exists(target)) {
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                return REF_PREFIX + hash;
+            }
+            Files.createDirectories(target.getParent());
+            Path tmp = target.resolveSibling(hash + "." + UUID.randomUUID().toString().substring(0, 8) + ".tmp");
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 16 * 1024)) {
+                out.write(data);
+            }
+            // same content under the same name: losing a race against another instance's writer is harmless
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return REF_PREFIX + hash;
+    }
+
+    /** Decompressed content of a blob, read from a memory-mapped file; null if the ref is unknown. */
+    public InputStream open(String ref) throws IOException {
+        Path p = resolve(ref);
+        if (p == null) return null;
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            // the mapping stays valid after the channel is closed
+            MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            return new GZIPInputStream(new ByteBufferInputStream(mapped), 16 * 1024);
+        }
+    }
+
+    public String read(String ref) throws IOException {
+        try (InputStream in = open(ref)) {
+            return in == null ? null : new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Path of the blob behind a ref, or null if the ref is malformed or the blob does not exist. */
+    public Path resolve(String ref) {
+        if (!isBlobRef(ref)) return null;
+        String hash = ref.substring(REF_PREFIX.length());
+        if (hash.length() != 64 || !hash.chars().allMatch(c -> (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+            return null;
+        }
+        Path p = pathOf(hash);
+        return Files.isRegularFile(p) ? p : null;
+    }
+
+    /**
+     * Delete blobs no run log references any more. Blobs written or re-referenced after {@code notAfter} are kept
+     * since a run may not have flushed its log yet. Older blobs are checked in batches of {@code batchSize} refs:
+     * {@code referenced} returns those of a batch still in the DB. Returns the number of blobs deleted.
+     */
+    public int sweep(Instant notAfter, int batchSize, Function<List<String>, Collection<String>> referenced) {
+        if (!enabled) return 0;
+        int deleted = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Stream<Path> files = Files.walk(dir, 2)) {
+            for (Path p : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = p.getFileName().toString();
+                if (!name.endsWith(SUFFIX) || isRecent(p, notAfter)) continue;
+                batch.add(name.substring(0, name.length() - SUFFIX.length()));
+                if (batch.size() >= batchSize) {
+                    deleted += sweepBatch(batch, notAfter, referenced);
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Blob sweep of {} failed: {}", dir, e.getMessage());
+        }
+        if (!batch.isEmpty()) deleted += sweepBatch(batch, notAfter, referenced);
+        return deleted;
+    }
+
+    private int sweepBatch(List<String> hashes, Instant notAfter, Function<List<String>, Collection<String>> referenced) {
+        Set<String> live = new HashSet<>(referenced.apply(hashes.stream().map(h -> REF_PREFIX + h).toList()));
+        int deleted = 0;
+        for (String hash : hashes) {
+            if (live.contains(REF_PREFIX + hash)) continue;
+            Path p = pathOf(hash);
+            synchronized (lockOf(hash)) {
+                // re-referenced since it was listed: put() refreshed the mtime under this lock
+                if (isRecent(p, notAfter)) continue;
+                try {
+                    if (Files.deleteIfExists(p)) deleted++;
+                } catch (IOException e) {
+                    log.warn("Could not delete blob {}: {}", p, e.getMessage());
+                }
+            }
+        }
+        return deleted;
+    }
+
+    // also true when the mtime cannot be read: keep what we are not sure about
+    private static boolean isRecent(Path p, Instant notAfter) {
+        try {
+            return Files.getLastModifiedTime(p).toInstant().isAfter(notAfter);
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private Object lockOf(String hash) {
+        return locks[Integer.parseInt(hash.substring(0, 2), 16) % LOCK_STRIPES];
+    }
+
+    private Path pathOf(String hash) {
+        return dir.resolve(hash.substring(0, 2)).resolve(hash + SUFFIX);
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) return -1;
+            int n = Math.min(len, buf.remaining());
+            buf.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.flow.workflow.storage;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archive of purged runs: gzip-compressed NDJSON segments, one JSON line per run (with its logs),
+ * under {@code <dir>/workflow-<id>/}. Segment names carry the startedAt range they cover
+ * ({@code runs-<fromEpochSec>-<toEpochSec>-<uuid>.ndjson.gz}), so time-range queries only open
+ * the segments that overlap.
+ */
+@Component
+public class RunArchive {
+
+    private static final Logger log = LoggerFactory.getLogger(RunArchive.class);
+    private static final String SUFFIX = ".ndjson.gz";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public RunArchive(@Value("${workflow.retention.archive.dir:${java.io.tmpdir}/workflow-archive}") String dir) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Write one segment for runs of a workflow. Written to a temp file and moved into place,
+     * so readers never see a partial segment. Returns the segment path.
+     */
+    public Path writeSegment(Long workflowId, LocalDateTime from, LocalDateTime to, List<?> records) throws IOException {
+        Path wfDir = dir.resolve("workflow-" + workflowId);
+        Files.createDirectories(wfDir);
+        String name = "runs-" + epoch(from) + "-" + epoch(to) + "-" + UUID.randomUUID().toString().substring(0, 8) + SUFFIX;
+        Path tmp = wfDir.resolve(name + ".tmp");
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(tmp), 64 * 1024), StandardCharsets.UTF_8))) {
+            for (Object r : records) {
+                w.write(objectMapper.writeValueAsString(r));
+                w.write('\n');
+            }
+        }
+        Path target = wfDir.resolve(name);
+        Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        return target;
+    }
+
+    public void deleteSegment(Path segment) {
+        try {
+            Files.deleteIfExists(segment);
+        } catch (IOException e) {
+            log.warn("Could not delete archive segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    /**
+     * Archived runs of a workflow whose startedAt falls in [from, to] (either bound may be null), streamed to
+     * {@code out} as NDJSON. Only segments overlapping the range are read. Returns the number of runs written.
+     */
+    public int query(Long workflowId, LocalDateTime from, LocalDateTime to, Long runId, OutputStream out)
+            throws IOException {
+        Path wfDir = dir.resolve("workflow-" + workflowId);
+        if (!Files.isDirectory(wfDir)) return 0;
+
+        long fromSec = from == null ? Long.MIN_VALUE : epoch(from);
+        long toSec = to == null ? Long.MAX_VALUE : epoch(to);
+        List<Path> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(wfDir)) {
+            files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                    .filter(p -> overlaps(p.getFileName().toString(), fromSec, toSec))
+                    .sorted()
+                    .forEach(segments::add);
+        }
+
+        Predicate<JsonNode> match = run -> {
+            if (runId != null && run.path("id").asLong() != runId) return false;
+            String started = run.path("startedAt").asText(null);
+            if (started == null) return from == null && to == null;
+            LocalDateTime t = LocalDateTime.parse(started);
+            return (from == null || !t.isBefore(from)) && (to == null || !t.isAfter(to));
+        };
+
+        int count = 0;
+        for (Path segment : segments) {
+            try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = r.readLine()) != null) {
+                    if (line.isBlank() || !match.test(objectMapper.readTree(line))) continue;
+                    out.write(line.getBytes(StandardCharsets.UTF_8));
+                    out.write('\n');
+                    count++;
+                }
+            }
+        }
+        out.flush();
+        return count;
+    }
+
+    private static boolean overlaps(String name, long fromSec, long toSec) {
+        // runs-<from>-<to>-<uuid>.ndjson.gz
+        try {
+            String[] parts = name.substring("runs-".length()).split("-");
+            long segFrom = Long.parseLong(parts[0]);
+            long segTo = Long.parseLong(parts[1]);
+            return segTo >= fromSec && segFrom <= toSec;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private static long epoch(LocalDateTime t) {
+        return t == null ? 0 : t.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,110 @@
+package com.flow.workflow.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
+
+/**
+ * Local file store for node outputs too large to keep in memory or in the run log.
+ * Run logs keep a short preview plus the ref returned here; the full body can be read back through {@link #resolve}.
+ */
+@Component
+public class SpillStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SpillStore.class);
+
+    private final boolean enabled;
+    private final Path dir;
+    private final long maxBytes;
+
+    public SpillStore(@Value("${workflow.spill.enabled:true}") boolean enabled,
+                      @Value("${workflow.spill.dir:${java.io.tmpdir}/workflow-spill}") String dir,
+                      @Value("${workflow.spill.max-bytes:104857600}") long maxBytes) {
+        this.dir = Paths.get(dir).toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        boolean ok = enabled;
+        if (enabled) {
+            try {
+                Files.createDirectories(this.dir);
+            } catch (IOException e) {
+                log.warn("Spill directory {} is not usable, large outputs will only keep their preview: {}",
+                        this.dir, e.getMessage());
+                ok = false;
+            }
+        }
+        this.enabled = ok;
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** Largest body written for one spill; anything beyond is dropped and the spill marked truncated. */
+    public long getMaxBytes() { return maxBytes; }
+
+    public Spill create(String name) throws IOException {
+        String ref = name.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + UUID.randomUUID() + ".body";
+        return new Spill(ref, new BufferedOutputStream(Files.newOutputStream(dir.resolve(ref)), 64 * 1024));
+    }
+
+    /** Path of a spilled body, or null if the ref is unknown or points outside the store. */
+    public Path resolve(String ref) {
+        if (ref == null) return null;
+        Path p = dir.resolve(ref).normalize();
+        if (!p.startsWith(dir) || !Files.isRegularFile(p)) return null;
+        return p;
+    }
+
+    public void delete(String ref) {
+        Path p = resolve(ref);
+        if (p == null) return;
+        try {
+            Files.deleteIfExists(p);
+        } catch (IOException e) {
+            log.warn("Could not delete spill {}: {}", ref, e.getMessage());
+        }
+    }
+
+    public final class Spill implements Closeable {
+        private final String ref;
+        private final OutputStream out;
+        private long written;
+        private boolean truncated;
+
+        private Spill(String ref, OutputStream out) {
+            this.ref = ref;
+            this.out = out;
+        }
+
+        /** Write up to the store's size cap; returns false once the cap is hit and the rest is dropped. */
+        public boolean write(byte[] b, int off, int len) throws IOException {
+            long room = maxBytes - written;
+            if (len > room) {
+                out.write(b, off, (int) room);
+                written += room;
+                truncated = true;
+                return false;
+            }
+            out.write(b, off, len);
+            written += len;
+            return true;
+        }
+
+        public String getRef() { return ref; }
+        public long getWritten() { return written; }
+        public boolean isTruncated() { return truncated; }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
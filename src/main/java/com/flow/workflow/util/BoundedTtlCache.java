@@ -0,0 +1,90 @@
+package com.flow.workflow.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small LRU map whose entries also expire at a per-entry deadline. Lookups and puts take one short lock,
+ * which is fine for the hot-but-tiny caches it backs (verified tokens, user details).
+ */
+public final class BoundedTtlCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtMillis) {}
+
+    private final int maxSize;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public BoundedTtlCache(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public V get(K key) {
+        synchronized (entries) {
+            Entry<V> e = entries.get(key);
+            if (e != null && e.expiresAtMillis() > System.currentTimeMillis()) {
+                hits.increment();
+                return e.value();
+            }
+            if (e != null) entries.remove(key);
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) return;
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+            Iterator<K> it = entries.keySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Puts the value unless a live entry exists; returns that entry's value, or null if this put won. Check and put
+     * happen under the same lock, so concurrent callers with the same key see exactly one winner.
+     */
+    public V putIfAbsent(K key, V value, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry<V> e = entries.get(key);
+            if (e != null && e.expiresAtMillis() > now) {
+                hits.increment();
+                return e.value();
+            }
+            misses.increment();
+            if (expiresAtMillis <= now) return null;
+            entries.put(key, new Entry<>(value, expiresAtMillis));
+            Iterator<K> it = entries.keySet().iterator();
+            while (entries.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        return null;
+    }
+
+    public void remove(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (entries) {
+            m.put("size", entries.size());
+        }
+        m.put("maxSize", maxSize);
+        m.put("hits", hits.sum());
+        m.put("misses", misses.sum());
+        return m;
+    }
+}
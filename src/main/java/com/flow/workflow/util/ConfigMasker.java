@@ -1,28 +1,128 @@
-// src/main/java/com/flow/workflow/util/ConfigMasker.java
 package com.flow.workflow.util;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.flow.workflow.model.Node;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Masks sensitive values in node configs for the read APIs. Works in one streaming pass (JsonParser straight
+ * into JsonGenerator, no tree); a value under one of {@code workflow.masking.sensitive-keys}, at any depth, is
+ * replaced by a mask that keeps at most its last 8 characters. Both methods return JSON text that can be
+ * embedded as-is in a response; a config that is not valid JSON comes back as a JSON string.
+ * <p>
+ * Nodes keep their masked config next to the raw one ({@link #stamp}), tagged with {@link #version()}, so list
+ * reads do not mask on every call; a copy made under a different key set is masked again when read.
+ */
+@Component
 public class ConfigMasker {
-    private static final ObjectMapper OM = new ObjectMapper();
 
-    public static String maskWebhook(String configJson) {
-        if (configJson == null) return null;
+    private static final String MASK = "••••••••";
+    private static final int VISIBLE_SUFFIX = 8;
+    private static final int MAX_INVALID_LENGTH = 200;
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Set<String> sensitiveKeys;
+    private final String version;
+
+    public ConfigMasker(@Value("${workflow.masking.sensitive-keys:webhookUrl,webhook,url,token,secret,apiKey,authorization,auth}")
+                        String sensitiveKeys) {
+        this.sensitiveKeys = Arrays.stream(sensitiveKeys.split(","))
+                .map(String::trim)
+                .filter(k -> !k.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        this.version = Integer.toHexString(String.join(",", new TreeSet<>(this.sensitiveKeys)).hashCode());
+    }
+
+    /** Identifies the sensitive key set (and so what {@link #mask} produces); stable across restarts. */
+    public String version() {
+        return version;
+    }
+
+    /** Store the masked form of the node's current config on it. */
+    public void stamp(Node node) {
+        node.setMaskedConfig(mask(node.getConfig()));
+        node.setMaskedWith(version);
+    }
+
+    /** The stored masked config if it was made with the current key set, otherwise the config masked now. */
+    public String masked(String config, String maskedConfig, String maskedWith) {
+        return version.equals(maskedWith) ? maskedConfig : mask(config);
+    }
+
+    /** Masked JSON of the config, or null for a blank config. */
+    public String mask(String config) {
+        if (config == null || config.isBlank()) return null;
         try {
-            JsonNode cfg = OM.readTree(configJson);
-            if (cfg.isObject()) {
-                ObjectNode on = (ObjectNode) cfg;
-                if (on.has("webhookUrl")) on.put("webhookUrl", "*****");
-                if (on.has("webhook")) on.put("webhook", "*****");
-                if (on.has("token")) on.put("token", "*****");
-                return OM.writeValueAsString(on);
-            }
-            return configJson;
-        } catch (Exception e) {
-            // fallback: strip any http(s) urls (simple)
-            return configJson.replaceAll("https?://[^\\s\"']+", "*****");
+            return copy(config, true);
+        } catch (IOException e) {
+            // not JSON: truncate and hide obvious urls
+            String s = config;
+            if (s.length() > MAX_INVALID_LENGTH) s = s.substring(0, MAX_INVALID_LENGTH) + "…";
+            s = s.replaceAll("(https?://[^\\s\"]+)", "https://" + MASK);
+            return quote(s);
+        }
+    }
+
+    /** The config unmasked, as JSON (admins with reveal=true). */
+    public String reveal(String config) {
+        if (config == null || config.isBlank()) return null;
+        try {
+            return copy(config, false);
+        } catch (IOException e) {
+            return quote(config);
+        }
+    }
+
+    private String copy(String config, boolean masking) throws IOException {
+        StringWriter out = new StringWriter(config.length());
+        try (JsonParser p = jsonFactory.createParser(config);
+             JsonGenerator g = jsonFactory.createGenerator(out)) {
+            if (p.nextToken() == null) throw new IOException("empty config");
+            int depth = 0;
+            do {
+                JsonToken t = p.currentToken();
+                if (masking && t == JsonToken.FIELD_NAME && sensitiveKeys.contains(p.currentName())) {
+                    g.writeFieldName(p.currentName());
+                    JsonToken value = p.nextToken();
+                    String text = value.isScalarValue() && value != JsonToken.VALUE_NULL ? p.getText() : null;
+                    if (value.isStructStart()) p.skipChildren();
+                    g.writeString(maskValue(text));
+                    continue;
+                }
+                g.copyCurrentEvent(p);
+                if (t.isStructStart()) depth++;
+                else if (t.isStructEnd()) depth--;
+            } while (depth > 0 && p.nextToken() != null);
+            if (depth != 0) throw new IOException("truncated config");
+            // a single JSON value only; trailing content makes it plain text
+            if (p.nextToken() != null) throw new IOException("trailing content");
+        }
+        return out.toString();
+    }
+
+    private static String maskValue(String v) {
+        if (v == null || v.isBlank()) return MASK;
+        return v.length() > VISIBLE_SUFFIX ? MASK + v.substring(v.length() - VISIBLE_SUFFIX) : MASK;
+    }
+
+    private String quote(String s) {
+        StringWriter out = new StringWriter(s.length() + 2);
+        try (JsonGenerator g = jsonFactory.createGenerator(out)) {
+            g.writeString(s);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
         }
+        return out.toString();
     }
 }
@@ -0,0 +1,28 @@
+package com.flow.workflow.util;
+
+import java.net.InetAddress;
+import java.util.UUID;
+
+/** Ids identifying this process in shared tables (lease holders, queue claims): host name plus a random suffix. */
+public final class InstanceIds {
+
+    private static final String GENERATED = generate();
+
+    private InstanceIds() {
+    }
+
+    /** The id generated for this JVM; stable for its lifetime so every component claims under the same name. */
+    public static String local() {
+        return GENERATED;
+    }
+
+    private static String generate() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
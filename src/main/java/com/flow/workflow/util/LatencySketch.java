@@ -0,0 +1,110 @@
+package com.flow.workflow.util;
+
+import java.io.*;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mergeable latency histogram with bounded relative error (DDSketch-style log buckets): any quantile it
+ * reports is within {@link #RELATIVE_ACCURACY} of the true value. Bucket count grows with log(max/min),
+ * not with the number of samples, so a workflow's whole history fits in a few hundred bytes.
+ */
+public final class LatencySketch {
+
+    public static final double RELATIVE_ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final byte FORMAT = 1;
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    private long zeroCount;
+    private long count;
+
+    public void add(long valueMs) {
+        if (valueMs <= 0) {
+            zeroCount++;
+        } else {
+            buckets.merge((int) Math.ceil(Math.log(valueMs) / LOG_GAMMA), 1L, Long::sum);
+        }
+        count++;
+    }
+
+    public long getCount() { return count; }
+
+    /** Estimated value at quantile q (0..1), or null if empty. */
+    public Long quantile(double q) {
+        if (count == 0) return null;
+        long rank = (long) Math.ceil(Math.max(0, Math.min(1, q)) * count);
+        if (rank <= zeroCount) return 0L;
+        long seen = zeroCount;
+        for (Map.Entry<Integer, Long> e : buckets.entrySet()) {
+            seen += e.getValue();
+            if (seen >= rank) return Math.round(2 * Math.pow(GAMMA, e.getKey()) / (GAMMA + 1));
+        }
+        return Math.round(2 * Math.pow(GAMMA, buckets.lastKey()) / (GAMMA + 1));
+    }
+
+    public byte[] toBytes() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + buckets.size() * 4);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(FORMAT);
+            writeVarLong(out, zeroCount);
+            writeVarLong(out, buckets.size());
+            int prev = 0;
+            for (Map.Entry<Integer, Long> e : buckets.entrySet()) {
+                writeVarLong(out, zigZag(e.getKey() - prev));
+                writeVarLong(out, e.getValue());
+                prev = e.getKey();
+            }
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static LatencySketch fromBytes(byte[] data) {
+        LatencySketch s = new LatencySketch();
+        if (data == null || data.length == 0) return s;
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            if (in.readByte() != FORMAT) throw new IllegalArgumentException("Unknown sketch format");
+            s.zeroCount = readVarLong(in);
+            s.count = s.zeroCount;
+            long n = readVarLong(in);
+            int index = 0;
+            for (long i = 0; i < n; i++) {
+                index += (int) unZigZag(readVarLong(in));
+                long c = readVarLong(in);
+                s.buckets.put(index, c);
+                s.count += c;
+            }
+            return s;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long zigZag(long v) { return (v << 1) ^ (v >> 63); }
+
+    private static long unZigZag(long v) { return (v >>> 1) ^ -(v & 1); }
+
+    private static void writeVarLong(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
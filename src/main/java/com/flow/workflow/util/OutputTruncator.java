@@ -0,0 +1,48 @@
+package com.flow.workflow.util;
+
+/**
+ * Keeps run-log outputs single-line and bounded so they fit the TEXT columns and stay readable.
+ */
+public final class OutputTruncator {
+
+    // truncate outputs longer than this to avoid huge DB fields / noisy logs
+    public static final int MAX_OUTPUT_LENGTH = 5_000;
+
+    private OutputTruncator() {}
+
+    // compact whitespace (including newlines) and trim, then optionally truncate.
+    // Single pass that stops at the limit, so large inputs are never copied in full.
+    public static String compactAndTruncate(String s) {
+        return compactAndTruncate(s, MAX_OUTPUT_LENGTH);
+    }
+
+    public static String compactAndTruncate(String s, int maxLength) {
+        if (s == null) return null;
+        StringBuilder sb = new StringBuilder(Math.min(s.length(), maxLength));
+        boolean pendingSpace = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (isRegexWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (sb.length() == maxLength) {
+                return sb + "...[truncated]";
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+                if (sb.length() == maxLength) {
+                    return sb + "...[truncated]";
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    // same set as the regex \s
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,19 @@
+package com.flow.workflow;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * For {@code @DataJpaTest}s on the embedded database: the slice has no security config, but the application
+ * class's admin-user runner still needs a password encoder.
+ */
+@TestConfiguration
+public class EmbeddedDbTestConfig {
+
+    @Bean
+    PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+}
@@ -0,0 +1,114 @@
+package com.flow.workflow.controller;
+
+import com.flow.workflow.EmbeddedDbTestConfig;
+import com.flow.workflow.dto.RunDto;
+import com.flow.workflow.dto.RunPageDto;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Keyset-paged run history on an embedded database. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:run-history;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedDbTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WorkflowControllerTest {
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    private final WorkflowController controller = new WorkflowController();
+    private final LocalDateTime t = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    private Workflow workflow;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "runRepo", runRepo);
+        workflow = workflowRepo.save(workflow("history"));
+    }
+
+    @AfterEach
+    void cleanUp() {
+        runRepo.deleteAll();
+        workflowRepo.deleteAll();
+    }
+
+    @Test
+    void pagesThroughRunsWithEqualStartTimesWithoutGapsOrDuplicates() {
+        List<WorkflowRun> runs = new ArrayList<>();
+        // a burst of runs created in the same instant straddles every page boundary
+        for (int i = 0; i < 5; i++) runs.add(run(workflow, t));
+        runs.add(run(workflow, t.minusMinutes(1)));
+        runs.add(run(workflow, t.minusMinutes(1)));
+        runs.add(run(workflow, t.plusMinutes(1)));
+        run(workflowRepo.save(workflow("other")), t);
+
+        List<Long> expected = runs.stream()
+                .sorted(Comparator.comparing(WorkflowRun::getStartedAt).thenComparing(WorkflowRun::getId).reversed())
+                .map(WorkflowRun::getId)
+                .toList();
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            RunPageDto page = controller.getRunHistory(workflow.getId(), cursor, 3);
+            page.getItems().stream().map(RunDto::getId).forEach(seen::add);
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(expected, seen);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void aMalformedCursorIsABadRequest() {
+        String notAKey = Base64.getUrlEncoder().encodeToString("yesterday|1".getBytes(StandardCharsets.UTF_8));
+        for (String cursor : List.of("%%%", notAKey, Base64.getUrlEncoder().encodeToString(new byte[]{1}))) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> controller.getRunHistory(workflow.getId(), cursor, 10));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+    }
+
+    private WorkflowRun run(Workflow w, LocalDateTime startedAt) {
+        return runRepo.save(WorkflowRun.builder().workflow(w).status(WorkflowStatus.SUCCESS)
+                .startedAt(startedAt).executionStartedAt(startedAt).endedAt(startedAt.plusSeconds(1)).build());
+    }
+
+    private static Workflow workflow(String name) {
+        Workflow w = new Workflow();
+        w.setWorkflowName(name);
+        return w;
+    }
+}
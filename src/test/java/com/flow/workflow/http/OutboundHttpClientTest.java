@@ -0,0 +1,261 @@
+package com.flow.workflow.http;
+
+import com.flow.workflow.storage.SpillStore;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundHttpClientTest {
+
+    private static final int BODY_SIZE = 2 * 1024 * 1024;
+
+    @TempDir
+    Path spillDir;
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private URI uri;
+    // holds /stall, /trickle, /slow-headers and /block handlers until the test lets go
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch blocked = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/big", ex -> {
+            byte[] chunk = new byte[64 * 1024];
+            Arrays.fill(chunk, (byte) 'a');
+            ex.sendResponseHeaders(200, BODY_SIZE);
+            try (OutputStream out = ex.getResponseBody()) {
+                for (int i = 0; i < BODY_SIZE / chunk.length; i++) out.write(chunk);
+            }
+        });
+        server.createContext("/stall", ex -> {
+            ex.sendResponseHeaders(200, 100);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write("abc".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                await(release);
+            }
+        });
+        server.createContext("/trickle", ex -> {
+            ex.sendResponseHeaders(200, 100);
+            try (OutputStream out = ex.getResponseBody()) {
+                for (int i = 0; i < 100 && !await(release, 100); i++) {
+                    out.write('a');
+                    out.flush();
+                }
+            }
+        });
+        server.createContext("/slow-headers", ex -> {
+            await(release);
+            respond(ex, "late");
+        });
+        server.createContext("/block", ex -> {
+            blocked.countDown();
+            await(release);
+            respond(ex, "done");
+        });
+        server.createContext("/port", ex -> respond(ex, String.valueOf(ex.getRemoteAddress().getPort())));
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.start();
+        uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/big");
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private OutboundHttpClient client(boolean spillEnabled) {
+        return client(spillEnabled, 4);
+    }
+
+    private OutboundHttpClient client(boolean spillEnabled, int maxPerHost) {
+        SpillStore store = new SpillStore(spillEnabled, spillDir.toString(), 100L * 1024 * 1024);
+        return new OutboundHttpClient(2000, 5000, 10000, maxPerHost, 60, 1024, store);
+    }
+
+    private URI path(String path) {
+        return uri.resolve(path);
+    }
+
+    @Test
+    void largeBodyKeepsBoundedHeadAndSpillsFullBody() throws Exception {
+        OutboundHttpClient.Response resp = client(true)
+                .exchange(HttpMethod.GET, uri, new HttpHeaders(), null, null, "run-1-node-1");
+
+        assertEquals(200, resp.getStatus());
+        assertEquals(1024, resp.getBody().length());
+        assertTrue(resp.isTruncated());
+        assertEquals(BODY_SIZE, resp.getBodyBytes());
+        assertNotNull(resp.getSpillRef());
+        assertEquals(BODY_SIZE, Files.size(spillDir.resolve(resp.getSpillRef())));
+    }
+
+    @Test
+    void withoutSpillReadingStopsAtHead() {
+        OutboundHttpClient.Response resp = client(false)
+                .exchange(HttpMethod.GET, uri, new HttpHeaders(), null, null, "run-1-node-1");
+
+        assertEquals(1024, resp.getBody().length());
+        assertTrue(resp.isTruncated());
+        assertNull(resp.getSpillRef());
+        // size comes from Content-Length since the rest of the body was never read
+        assertEquals(BODY_SIZE, resp.getBodyBytes());
+    }
+
+    @Test
+    void aStalledBodyFailsAfterTheReadTimeout() {
+        OutboundHttpClient client = client(false);
+        long start = System.nanoTime();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> client.exchange(HttpMethod.GET,
+                path("/stall"), new HttpHeaders(), null, new HttpTimeouts(null, 300, 10_000)));
+
+        assertTrue(e.getMessage().contains("300ms without response data"), e.getMessage());
+        assertTrue(elapsedMs(start) < 3000, "waited on the server instead of the read timeout");
+        assertEquals(1L, client.metrics().get("timeouts"));
+    }
+
+    @Test
+    void aTricklingBodyFailsAfterTheTotalTimeout() {
+        OutboundHttpClient client = client(false);
+        long start = System.nanoTime();
+
+        // every read gets a byte well within the read timeout, but the body takes ten seconds
+        RuntimeException e = assertThrows(RuntimeException.class, () -> client.exchange(HttpMethod.GET,
+                path("/trickle"), new HttpHeaders(), null, new HttpTimeouts(null, 1000, 600)));
+
+        assertTrue(e.getMessage().contains("timed out after 600ms"), e.getMessage());
+        assertTrue(elapsedMs(start) < 3000, "waited on the server instead of the total timeout");
+    }
+
+    @Test
+    void slowHeadersFailAfterTheReadTimeout() {
+        OutboundHttpClient client = client(false);
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> client.exchange(HttpMethod.GET,
+                path("/slow-headers"), new HttpHeaders(), null, new HttpTimeouts(null, 300, 10_000)));
+
+        assertTrue(e.getMessage().startsWith("HttpTimeoutException"), e.getMessage());
+        assertEquals(1L, client.metrics().get("timeouts"));
+    }
+
+    @Test
+    void anUnansweredConnectFailsAfterTheConnectTimeout() throws Exception {
+        // a listener that never accepts, with its backlog filled: further SYNs go unanswered
+        List<Socket> filler = new ArrayList<>();
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            try {
+                while (filler.size() < 10) {
+                    Socket s = new Socket();
+                    filler.add(s);
+                    s.connect(listener.getLocalSocketAddress(), 300);
+                }
+            } catch (SocketTimeoutException full) {
+                // backlog is full
+            }
+            URI unanswered = URI.create("http://127.0.0.1:" + listener.getLocalPort() + "/");
+            OutboundHttpClient client = client(false);
+            long start = System.nanoTime();
+
+            RuntimeException e = assertThrows(RuntimeException.class, () -> client.exchange(HttpMethod.GET,
+                    unanswered, new HttpHeaders(), null, new HttpTimeouts(300, null, 10_000)));
+
+            assertTrue(e.getMessage().startsWith("HttpConnectTimeoutException"), e.getMessage());
+            assertTrue(elapsedMs(start) < 3000);
+        } finally {
+            for (Socket s : filler) s.close();
+        }
+    }
+
+    @Test
+    void requestsOverTheHostLimitAreRejected() throws Exception {
+        OutboundHttpClient client = client(false, 1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<OutboundHttpClient.Response> first = caller.submit(() -> client.exchange(HttpMethod.GET,
+                    path("/block"), new HttpHeaders(), null, null));
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            RuntimeException e = assertThrows(RuntimeException.class, () -> client.exchange(HttpMethod.GET,
+                    path("/port"), new HttpHeaders(), null, new HttpTimeouts(null, null, 200)));
+            assertTrue(e.getMessage().startsWith("Too many concurrent requests"), e.getMessage());
+            assertEquals(1L, client.metrics().get("hostLimitRejections"));
+
+            release.countDown();
+            assertEquals("done", first.get(5, TimeUnit.SECONDS).getBody());
+            // the permit came back with the first response
+            assertEquals(200, client.exchange(HttpMethod.GET, path("/port"), new HttpHeaders(), null, null)
+                    .getStatus());
+        } finally {
+            caller.shutdownNow();
+        }
+    }
+
+    @Test
+    void sequentialRequestsReuseThePooledConnection() {
+        OutboundHttpClient client = client(false);
+
+        String firstPort = client.exchange(HttpMethod.GET, path("/port"), new HttpHeaders(), null, null).getBody();
+        String secondPort = client.exchange(HttpMethod.GET, path("/port"), new HttpHeaders(), null,
+                new HttpTimeouts(null, 1000, 2000)).getBody();
+
+        // same client port: the second request went over the first one's kept-alive connection
+        assertEquals(firstPort, secondPort);
+        // read and total overrides share the default connect timeout's client
+        assertEquals(1, client.metrics().get("clientPools"));
+    }
+
+    private static void respond(HttpExchange ex, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        await(latch, 10_000);
+    }
+
+    private static boolean await(CountDownLatch latch, long ms) {
+        try {
+            return latch.await(ms, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    private static long elapsedMs(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
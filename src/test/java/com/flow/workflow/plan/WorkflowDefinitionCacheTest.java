@@ -0,0 +1,82 @@
+package com.flow.workflow.plan;
+
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.model.Node;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.util.ConfigMasker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WorkflowDefinitionCacheTest {
+
+    private final WorkflowDefinitionCache cache = new WorkflowDefinitionCache();
+    private final WorkflowRepository workflowRepo = mock(WorkflowRepository.class);
+
+    @BeforeEach
+    void setUp() {
+        WorkflowPlanCompiler compiler = new WorkflowPlanCompiler();
+        ReflectionTestUtils.setField(compiler, "executorRegistry", mock(NodeExecutorRegistry.class));
+        ReflectionTestUtils.setField(cache, "workflowRepo", workflowRepo);
+        ReflectionTestUtils.setField(cache, "compiler", compiler);
+        ReflectionTestUtils.setField(cache, "masker", new ConfigMasker("url,token"));
+        when(workflowRepo.findWithNodesById(1L)).thenAnswer(inv -> Optional.of(workflow(1L)));
+        when(workflowRepo.findWithNodesById(2L)).thenAnswer(inv -> Optional.of(workflow(2L)));
+    }
+
+    @Test
+    void repeatedReadsHitTheCacheUntilInvalidated() {
+        WorkflowDefinition first = cache.get(1L).orElseThrow();
+        assertSame(first, cache.get(1L).orElseThrow());
+        assertEquals(1, first.getPlan().getSteps().size());
+        verify(workflowRepo, times(1)).findWithNodesById(1L);
+
+        cache.invalidate(1L);
+        assertNotSame(first, cache.get(1L).orElseThrow());
+        verify(workflowRepo, times(2)).findWithNodesById(1L);
+        assertEquals(1L, cache.metrics().get("hits"));
+        assertEquals(2L, cache.metrics().get("misses"));
+    }
+
+    @Test
+    void finishedRunsUpdateTheSnapshotAndOverflowEvictsTheLeastRecentlyUsed() {
+        ReflectionTestUtils.setField(cache, "maxSize", 1);
+        cache.get(1L);
+        LocalDateTime at = LocalDateTime.now();
+        cache.recordRun(1L, at, WorkflowStatus.SUCCESS);
+        assertEquals(at, cache.getIfPresent(1L).getLastRunAt());
+
+        cache.get(2L);
+        assertNull(cache.getIfPresent(1L));
+        assertNotNull(cache.getIfPresent(2L));
+        assertEquals(1L, cache.metrics().get("evictions"));
+    }
+
+    @Test
+    void missingWorkflowsAreNotCached() {
+        assertTrue(cache.get(3L).isEmpty());
+        assertEquals(0, cache.metrics().get("size"));
+    }
+
+    private static Workflow workflow(Long id) {
+        Workflow w = new Workflow();
+        w.setId(id);
+        Node n = new Node();
+        n.setId(id * 10);
+        n.setType("DELAY");
+        n.setConfig("{\"seconds\":0}");
+        n.setOrderIndex(1);
+        w.setNodes(new ArrayList<>(List.of(n)));
+        return w;
+    }
+}
@@ -0,0 +1,232 @@
+package com.flow.workflow.scheduling;
+
+import com.flow.workflow.EmbeddedDbTestConfig;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.SchedulePartitionRepository;
+import com.flow.workflow.repository.SchedulerInstanceRepository;
+import com.flow.workflow.repository.WorkflowRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Several scheduler instances in one JVM sharing an embedded database. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:schedule-leases;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedDbTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ScheduleLeaseManagerTest {
+
+    private static final int PARTITIONS = 12;
+
+    @Autowired
+    private SchedulePartitionRepository partitionRepo;
+
+    @Autowired
+    private SchedulerInstanceRepository instanceRepo;
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+
+    @AfterEach
+    void cleanUp() {
+        partitionRepo.deleteAll();
+        instanceRepo.deleteAll();
+        workflowRepo.deleteAll();
+    }
+
+    @Test
+    void instancesSplitPartitionsAndTakeOverFromADeadOne() {
+        Map<String, Set<Integer>> fired = new HashMap<>();
+        ScheduleLeaseManager a = instance("a", fired);
+        ScheduleLeaseManager b = instance("b", fired);
+        ScheduleLeaseManager c = instance("c", fired);
+
+        a.heartbeat();
+        assertEquals(PARTITIONS, a.ownedPartitions().size());
+
+        // b and c join: a gives up the partitions above its share, the newcomers pick them up
+        for (int round = 0; round < 3; round++) {
+            clock.advance(1000);
+            for (ScheduleLeaseManager m : List.of(a, b, c)) m.heartbeat();
+        }
+        assertDisjointAndComplete(List.of(a, b, c));
+        for (ScheduleLeaseManager m : List.of(a, b, c)) {
+            assertEquals(PARTITIONS / 3, m.ownedPartitions().size());
+            assertEquals(m.ownedPartitions(), m.verifiedPartitions());
+            assertEquals(m.ownedPartitions(), fired.get(m.getInstanceId()));
+        }
+
+        // c dies: nothing moves until its leases expire, then a and b share everything
+        Set<Integer> orphaned = c.ownedPartitions();
+        clock.advance(10_000);
+        a.heartbeat();
+        b.heartbeat();
+        assertTrue(Collections.disjoint(orphaned, a.ownedPartitions()));
+        clock.advance(25_000);
+        a.heartbeat();
+        b.heartbeat();
+        a.heartbeat();
+        assertDisjointAndComplete(List.of(a, b));
+        assertEquals(PARTITIONS / 2, a.ownedPartitions().size());
+
+        // a paused past its lease: its view is stale, but the fencing check no longer verifies anything
+        clock.advance(31_000);
+        b.heartbeat();
+        assertEquals(PARTITIONS, b.ownedPartitions().size());
+        assertFalse(a.ownedPartitions().isEmpty());
+        assertTrue(a.verifiedPartitions().isEmpty());
+        a.heartbeat();
+        assertTrue(a.ownedPartitions().isEmpty());
+        assertTrue(fired.get("a").isEmpty());
+    }
+
+    @Test
+    void gracefulShutdownHandsPartitionsOverImmediately() {
+        Map<String, Set<Integer>> fired = new HashMap<>();
+        ScheduleLeaseManager a = instance("a", fired);
+        ScheduleLeaseManager b = instance("b", fired);
+        a.heartbeat();
+        b.heartbeat();
+        a.heartbeat();
+        b.heartbeat();
+        assertDisjointAndComplete(List.of(a, b));
+
+        a.releaseAll();
+        assertTrue(fired.get("a").isEmpty());
+        clock.advance(1000);
+        b.heartbeat();
+        assertEquals(PARTITIONS, b.ownedPartitions().size());
+    }
+
+    @Test
+    void scheduleSpecsAreSelectedByPartition() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Workflow w = new Workflow();
+            w.setWorkflowName("w" + i);
+            w.setScheduled(i != 5);
+            ids.add(workflowRepo.save(w).getId());
+        }
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            if (Math.floorMod(ids.get(i), 3L) == 1) expected.add(ids.get(i));
+        }
+        Set<Long> found = new HashSet<>();
+        workflowRepo.findScheduleSpecs(3, List.of(1L)).forEach(s -> found.add(s.getId()));
+        assertEquals(expected, found);
+    }
+
+    @Test
+    void onlyTheSchedulerMovesTheLastScheduledFire() {
+        Workflow w = new Workflow();
+        w.setWorkflowName("cron");
+        w.setScheduled(true);
+        Long id = workflowRepo.save(w).getId();
+        LocalDateTime fired = LocalDateTime.of(2026, 1, 1, 12, 0);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            workflowRepo.updateLastScheduledFire(List.of(id), fired);
+            // a run ending (manual, webhook or late) does not shift the misfire window
+            workflowRepo.updateLastRun(id, fired.plusHours(1), WorkflowStatus.SUCCESS);
+            // a stale fire from a previous lease holder does not move it back
+            workflowRepo.updateLastScheduledFire(List.of(id), fired.minusMinutes(5));
+        });
+
+        assertEquals(fired, workflowRepo.findScheduleSpecs().get(0).getLastScheduledFireAt());
+    }
+
+    private ScheduleLeaseManager instance(String id, Map<String, Set<Integer>> fired) {
+        ScheduleLeaseManager m = new ScheduleLeaseManager();
+        ReflectionTestUtils.setField(m, "partitionRepo", partitionRepo);
+        ReflectionTestUtils.setField(m, "instanceRepo", instanceRepo);
+        ReflectionTestUtils.setField(m, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(m, "entityManager", entityManager);
+        ReflectionTestUtils.setField(m, "enabled", true);
+        ReflectionTestUtils.setField(m, "partitions", PARTITIONS);
+        ReflectionTestUtils.setField(m, "leaseTtlMs", 30_000L);
+        ReflectionTestUtils.setField(m, "instanceId", id);
+        ReflectionTestUtils.setField(m, "clock", clock);
+        ReflectionTestUtils.invokeMethod(m, "init");
+        Set<Integer> held = new TreeSet<>();
+        fired.put(id, held);
+        m.setListener(new ScheduleLeaseManager.Listener() {
+            @Override
+            public void acquired(int partition, java.time.LocalDateTime handoverAt) {
+                assertTrue(held.add(partition));
+            }
+
+            @Override
+            public void released(int partition) {
+                assertTrue(held.remove(partition));
+            }
+        });
+        return m;
+    }
+
+    private static void assertDisjointAndComplete(List<ScheduleLeaseManager> managers) {
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (ScheduleLeaseManager m : managers) {
+            all.addAll(m.ownedPartitions());
+            total += m.ownedPartitions().size();
+        }
+        assertEquals(PARTITIONS, total);
+        assertEquals(PARTITIONS, all.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(long millis) {
+            now = now.plusMillis(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
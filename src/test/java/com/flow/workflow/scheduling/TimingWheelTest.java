@@ -0,0 +1,52 @@
+package com.flow.workflow.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void everyTimerFiresInTheTickOfItsDeadline() {
+        long start = 1_700_000_000_050L;
+        TimingWheel<Long> wheel = new TimingWheel<>(100, 64, 6, start);
+        Random random = new Random(7);
+        int count = 100_000;
+        for (int i = 0; i < count; i++) {
+            // spread over ~2 days so timers cascade through several levels
+            long deadline = start + (long) (random.nextDouble() * 2 * 24 * 3600 * 1000);
+            wheel.schedule(deadline, deadline);
+        }
+        assertEquals(count, wheel.size());
+
+        int fired = 0;
+        for (long now = start; now <= start + 2L * 24 * 3600 * 1000 + 1000; now += 1000) {
+            for (long deadline : wheel.advanceTo(now)) {
+                assertTrue(deadline <= now, "fired early: " + deadline + " at " + now);
+                assertTrue(now - deadline < 1000 + 100, "fired late: " + deadline + " at " + now);
+                fired++;
+            }
+        }
+        assertEquals(count, fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledAndOverdueTimers() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 64, 6, 10_000);
+        TimingWheel.Timeout<String> cancelled = wheel.schedule("cancelled", 20_000);
+        wheel.schedule("kept", 20_000);
+        wheel.schedule("past", 5_000);
+        cancelled.cancel();
+
+        assertEquals(List.of("past"), wheel.advanceTo(10_000));
+        List<String> due = new ArrayList<>(wheel.advanceTo(19_999));
+        assertTrue(due.isEmpty());
+        assertEquals(List.of("kept"), wheel.advanceTo(20_100));
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,35 @@
+package com.flow.workflow.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil(100);
+
+    @Test
+    void tokenIsVerifiedOnceAndThenServedFromCache() {
+        String token = jwtUtil.generateToken("alice", "ADMIN");
+
+        JwtUtil.VerifiedToken first = jwtUtil.verify(token);
+        assertEquals("alice", first.username());
+        assertEquals("ADMIN", first.role());
+        assertSame(first, jwtUtil.verify(token));
+        assertTrue(jwtUtil.validateToken(token, "alice"));
+        assertFalse(jwtUtil.validateToken(token, "bob"));
+
+        assertEquals(1L, jwtUtil.cacheMetrics().get("misses"));
+        assertEquals(3L, jwtUtil.cacheMetrics().get("hits"));
+    }
+
+    @Test
+    void tamperedTokensAreRejectedAndNotCached() {
+        String token = jwtUtil.generateToken("alice", "USER");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(jwtUtil.verify(tampered));
+        assertNull(jwtUtil.verify("not-a-jwt"));
+        assertEquals(0, jwtUtil.cacheMetrics().get("size"));
+    }
+}
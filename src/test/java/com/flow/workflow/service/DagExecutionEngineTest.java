@@ -0,0 +1,222 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.executor.NodeOutcome;
+import com.flow.workflow.executor.NodeResult;
+import com.flow.workflow.executor.RunContext;
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.Node;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.PlanStep;
+import com.flow.workflow.plan.WorkflowPlan;
+import com.flow.workflow.plan.WorkflowPlanCompiler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flow.workflow.repository.WorkflowRunLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DagExecutionEngineTest {
+
+    private final DagExecutionEngine engine = new DagExecutionEngine();
+    private final NodeExecutorRegistry registry = mock(NodeExecutorRegistry.class);
+    private final WorkflowPlanCompiler compiler = new WorkflowPlanCompiler();
+    private final RunLogWriter logWriter = new RunLogWriter();
+    private final List<WorkflowRunLog> savedLogs = Collections.synchronizedList(new ArrayList<>());
+    private ThreadPoolTaskExecutor pool;
+
+    @BeforeEach
+    void setUp() {
+        WorkflowRunLogRepository logRepo = mock(WorkflowRunLogRepository.class);
+        when(logRepo.saveAll(any())).thenAnswer(inv -> {
+            List<WorkflowRunLog> batch = inv.getArgument(0);
+            savedLogs.addAll(batch);
+            return batch;
+        });
+
+        pool = new ThreadPoolTaskExecutor();
+        pool.setCorePoolSize(4);
+        pool.setMaxPoolSize(4);
+        pool.initialize();
+
+        ReflectionTestUtils.setField(logWriter, "logRepo", logRepo);
+        ReflectionTestUtils.setField(engine, "executorRegistry", registry);
+        ReflectionTestUtils.setField(engine, "permits", new RunPermits());
+        ReflectionTestUtils.setField(compiler, "executorRegistry", registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void independentNodesRunInParallelAndFanInWaitsForAll() {
+        WorkflowPlan plan = plan(node(1L, 1, null), node(2L, 2, null), node(3L, 3, null), node(4L, 4, "1,2,3"));
+        // each root waits for the other two to start: they only all succeed when they run at the same time
+        CountDownLatch rootsStarted = new CountDownLatch(3);
+        List<Long> finishOrder = Collections.synchronizedList(new ArrayList<>());
+        when(registry.submit(any(PlanStep.class), any(RunContext.class))).thenAnswer(inv -> {
+            PlanStep step = inv.getArgument(0);
+            return CompletableFuture.supplyAsync(() -> {
+                if (step.getNodeId() != 4L) {
+                    rootsStarted.countDown();
+                    if (!await(rootsStarted)) return NodeOutcome.failed("roots did not run in parallel");
+                }
+                finishOrder.add(step.getNodeId());
+                return NodeOutcome.success("ok " + step.getNodeId());
+            }, pool);
+        });
+
+        execute(plan);
+
+        assertEquals(4, finishOrder.size());
+        assertEquals(4L, finishOrder.get(3));
+        assertEquals(4, savedLogs.size());
+        assertTrue(savedLogs.stream().allMatch(l -> l.getStatus() == WorkflowStatus.SUCCESS));
+    }
+
+    @Test
+    void nodesDownstreamOfFailureAreSkipped() {
+        WorkflowPlan plan = plan(node(1L, 1, null), node(2L, 2, "1"), node(3L, 3, "2"), node(4L, 4, null));
+        when(registry.submit(any(PlanStep.class), any(RunContext.class))).thenAnswer(inv -> {
+            PlanStep step = inv.getArgument(0);
+            return CompletableFuture.completedFuture(
+                    step.getNodeId() == 1L ? NodeOutcome.failed("boom") : NodeOutcome.success("ok"));
+        });
+
+        execute(plan);
+
+        assertEquals(WorkflowStatus.FAILED, statusOf(1L));
+        assertEquals(WorkflowStatus.CANCELED, statusOf(2L));
+        assertEquals(WorkflowStatus.CANCELED, statusOf(3L));
+        assertEquals(WorkflowStatus.SUCCESS, statusOf(4L));
+    }
+
+    @Test
+    void downstreamNodesReadUpstreamResultsFromRunContext() throws Exception {
+        WorkflowPlan plan = plan(node(1L, 1, null), node(2L, 2, "1"));
+        Map<Long, NodeResult> seenUpstream = new ConcurrentHashMap<>();
+        when(registry.submit(any(PlanStep.class), any(RunContext.class))).thenAnswer(inv -> {
+            PlanStep step = inv.getArgument(0);
+            RunContext ctx = inv.getArgument(1);
+            if (step.getNodeId() == 2L) seenUpstream.put(2L, ctx.upstream(step, "HTTP"));
+            return CompletableFuture.completedFuture(NodeOutcome.success("{\"temp\": 21}")
+                    .withData(new ObjectMapper().readTree("{\"temp\": 21}"), 200));
+        });
+
+        execute(plan);
+
+        NodeResult upstream = seenUpstream.get(2L);
+        assertNotNull(upstream);
+        assertEquals(1L, upstream.getNodeId());
+        assertEquals(200, upstream.getStatusCode());
+        assertEquals(21, upstream.getJson().get("temp").asInt());
+    }
+
+    @Test
+    void delaySuspendsTheRunAndResumeContinuesWithoutRerunningFinishedNodes() {
+        Node delay = node(2L, 2, "1");
+        delay.setType("DELAY");
+        delay.setConfig("{\"seconds\":60}");
+        WorkflowPlan plan = plan(node(1L, 1, null), delay, node(3L, 3, "2"), node(4L, 4, null));
+        Map<Long, Integer> submits = new ConcurrentHashMap<>();
+        when(registry.submit(any(PlanStep.class), any(RunContext.class))).thenAnswer(inv -> {
+            PlanStep step = inv.getArgument(0);
+            submits.merge(step.getNodeId(), 1, Integer::sum);
+            return CompletableFuture.completedFuture(NodeOutcome.success("ok " + step.getNodeId()));
+        });
+
+        WorkflowRun run = run();
+        RunLogBuffer logs = logWriter.open(run);
+        assertTrue(engine.execute(run, plan, logs));
+        logs.flush();
+
+        assertEquals(WorkflowStatus.WAITING, run.getStatus());
+        assertNotNull(run.getResumeAt());
+        assertEquals(WorkflowStatus.WAITING, statusOf(2L));
+        assertEquals(Map.of(1L, 1, 4L, 1), submits);
+
+        // the timer fires once the delay is due: rebuild from the persisted rows like resumeRun does
+        List<WorkflowRunLog> history = new ArrayList<>(savedLogs);
+        WorkflowRunLog waiting = history.stream().filter(l -> l.getNodeId() == 2L).findFirst().orElseThrow();
+        waiting.setStartedAt(waiting.getStartedAt().minusSeconds(61));
+        savedLogs.clear();
+        run.setStatus(WorkflowStatus.RUNNING);
+        RunContext context = RunContext.fromLogs(run.getId(), plan, history);
+        assertNull(context.byOrderIndex(2));
+
+        RunLogBuffer resumed = logWriter.open(run);
+        assertFalse(engine.execute(run, plan, resumed, context, history));
+        resumed.flush();
+
+        assertEquals(Map.of(1L, 1, 3L, 1, 4L, 1), submits);
+        assertEquals(WorkflowStatus.SUCCESS, statusOf(2L));
+        assertEquals(WorkflowStatus.SUCCESS, statusOf(3L));
+        assertEquals(2, savedLogs.size());
+    }
+
+    @Test
+    void cyclesAreRejectedWhenThePlanIsCompiled() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> plan(node(1L, 1, "2"), node(2L, 2, "1")));
+        assertTrue(ex.getMessage().contains("cycle"));
+    }
+
+    private void execute(WorkflowPlan plan) {
+        WorkflowRun run = run();
+        RunLogBuffer logs = logWriter.open(run);
+        engine.execute(run, plan, logs);
+        logs.flush();
+    }
+
+    private WorkflowStatus statusOf(Long nodeId) {
+        return savedLogs.stream().filter(l -> nodeId.equals(l.getNodeId())).findFirst().orElseThrow().getStatus();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private WorkflowPlan plan(Node... nodes) {
+        Workflow w = new Workflow();
+        w.setId(7L);
+        w.setExecutionMode(ExecutionMode.DAG);
+        w.setNodes(new ArrayList<>(List.of(nodes)));
+        return compiler.compile(w);
+    }
+
+    private static WorkflowRun run() {
+        return WorkflowRun.builder().id(42L).status(WorkflowStatus.RUNNING).build();
+    }
+
+    private static Node node(Long id, int orderIndex, String dependsOn) {
+        Node n = new Node();
+        n.setId(id);
+        n.setType("HTTP");
+        n.setConfig("{\"url\":\"http://localhost/" + id + "\"}");
+        n.setOrderIndex(orderIndex);
+        n.setDependsOn(dependsOn);
+        return n;
+    }
+}
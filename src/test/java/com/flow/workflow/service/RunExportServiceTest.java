@@ -0,0 +1,54 @@
+package com.flow.workflow.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flow.workflow.dto.RunExportRow;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RunExportServiceTest {
+
+    @Test
+    void consecutiveRowsOfARunBecomeOneNdjsonLine() throws Exception {
+        LocalDateTime t = LocalDateTime.of(2024, 5, 1, 12, 0);
+        WorkflowRunRepository runRepo = mock(WorkflowRunRepository.class);
+        when(runRepo.streamRunsWithLogs(eq(7L), any(), any())).thenReturn(Stream.of(
+                row(1L, t, 10L, "HTTP"),
+                row(1L, t, 11L, "NOTIFY"),
+                row(2L, t.plusMinutes(1), null, null)));
+        RunExportService service = new RunExportService();
+        ReflectionTestUtils.setField(service, "runRepo", runRepo);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, service.export(7L, null, null, out));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        JsonNode first = new ObjectMapper().readTree(lines[0]);
+        assertEquals(1, first.get("id").asInt());
+        assertEquals(2000, first.get("durationMs").asInt());
+        assertEquals("2024-05-01T12:00:00", first.get("startedAt").asText());
+        assertEquals(2, first.get("logs").size());
+        assertEquals("NOTIFY", first.get("logs").get(1).get("nodeType").asText());
+        assertEquals(0, new ObjectMapper().readTree(lines[1]).get("logs").size());
+    }
+
+    private static RunExportRow row(Long runId, LocalDateTime startedAt, Long logId, String nodeType) {
+        return new RunExportRow(runId, 7L, WorkflowStatus.SUCCESS, startedAt, startedAt.plusSeconds(2),
+                logId, logId, nodeType, logId == null ? null : WorkflowStatus.SUCCESS, "ok", null, null,
+                startedAt, startedAt.plusSeconds(1));
+    }
+}
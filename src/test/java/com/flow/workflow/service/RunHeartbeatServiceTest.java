@@ -0,0 +1,129 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.EmbeddedDbTestConfig;
+import com.flow.workflow.model.RunQueueItem;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.RunQueueRepository;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.repository.WorkflowRunLogRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** A limited workflow whose RUNNING run lost its worker, on an embedded database. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:run-heartbeats;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedDbTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RunHeartbeatServiceTest {
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowRunLogRepository logRepo;
+
+    @Autowired
+    private RunQueueRepository queueRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final RunPermits permits = new RunPermits();
+    private final RunHeartbeatService heartbeats = new RunHeartbeatService();
+    private Workflow workflow;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(permits, "runRepo", runRepo);
+        ReflectionTestUtils.setField(heartbeats, "runRepo", runRepo);
+        ReflectionTestUtils.setField(heartbeats, "logRepo", logRepo);
+        ReflectionTestUtils.setField(heartbeats, "permits", permits);
+        ReflectionTestUtils.setField(heartbeats, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(heartbeats, "staleAfterMs", 90_000L);
+        ReflectionTestUtils.setField(heartbeats, "reapBatchSize", 100);
+        ReflectionTestUtils.invokeMethod(heartbeats, "init");
+
+        Workflow w = new Workflow();
+        w.setWorkflowName("limited");
+        w.setMaxConcurrentRuns(1);
+        workflow = workflowRepo.save(w);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        queueRepo.deleteAll();
+        logRepo.deleteAll();
+        runRepo.deleteAll();
+        workflowRepo.deleteAll();
+    }
+
+    @Test
+    void aLimitedWorkflowRecoversFromARunWhoseWorkerDied() {
+        // the instance running it synchronously died ten minutes ago
+        WorkflowRun orphan = running(LocalDateTime.now().minusMinutes(10));
+        permits.reconcile();
+        assertFalse(permits.tryAcquire(workflow.getId(), -1L, 1), "the dead run holds the only permit");
+
+        heartbeats.reap();
+
+        WorkflowRun stored = runRepo.findById(orphan.getId()).orElseThrow();
+        assertEquals(WorkflowStatus.FAILED, stored.getStatus());
+        assertNotNull(stored.getEndedAt());
+        assertEquals(1, logRepo.findByRun_IdOrderByStartedAtAsc(orphan.getId()).size());
+        // reconcile no longer brings it back, and the next trigger gets the permit
+        permits.reconcile();
+        assertEquals(0, permits.active(workflow.getId()));
+        assertTrue(permits.tryAcquire(workflow.getId(), -1L, 1));
+    }
+
+    @Test
+    void liveAndQueuedRunsAreNotReaped() {
+        WorkflowRun live = running(LocalDateTime.now());
+        WorkflowRun queued = running(LocalDateTime.now().minusMinutes(10));
+        queueRepo.save(RunQueueItem.builder().workflowId(workflow.getId()).runId(queued.getId()).source("API")
+                .enqueuedAt(LocalDateTime.now()).availableAt(LocalDateTime.now()).build());
+
+        heartbeats.reap();
+
+        assertEquals(WorkflowStatus.RUNNING, runRepo.findById(live.getId()).orElseThrow().getStatus());
+        assertEquals(WorkflowStatus.RUNNING, runRepo.findById(queued.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void cancelingAnOrphanedRunEndsItInsteadOfFlaggingIt() {
+        WorkflowRun orphan = running(LocalDateTime.now().minusMinutes(10));
+        WorkflowRun live = running(LocalDateTime.now());
+
+        assertTrue(heartbeats.cancelIfOrphaned(orphan.getId(), workflow.getId(), "superseded"));
+        assertFalse(heartbeats.cancelIfOrphaned(live.getId(), workflow.getId(), "superseded"));
+
+        assertEquals(WorkflowStatus.CANCELED, runRepo.findById(orphan.getId()).orElseThrow().getStatus());
+        assertEquals(WorkflowStatus.RUNNING, runRepo.findById(live.getId()).orElseThrow().getStatus());
+    }
+
+    private WorkflowRun running(LocalDateTime heartbeatAt) {
+        return runRepo.save(WorkflowRun.builder().workflow(workflow).status(WorkflowStatus.RUNNING)
+                .startedAt(heartbeatAt).ownerId("gone-1234").heartbeatAt(heartbeatAt).build());
+    }
+}
@@ -0,0 +1,64 @@
+package com.flow.workflow.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunPermitsTest {
+
+    @Test
+    void concurrentAcquiresNeverExceedTheLimit() throws Exception {
+        RunPermits permits = new RunPermits();
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        AtomicInteger maxSeen = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            long base = t * 10_000L;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long run = base; run < base + 2_000; run++) {
+                    if (!permits.tryAcquire(1L, run, 3)) continue;
+                    granted.incrementAndGet();
+                    maxSeen.accumulateAndGet(permits.active(1L), Math::max);
+                    permits.release(1L, run);
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertTrue(granted.get() > 0);
+        assertTrue(maxSeen.get() <= 3, "limit exceeded: " + maxSeen.get());
+        assertEquals(0, permits.active(1L));
+    }
+
+    @Test
+    void acquireAndReleaseAreIdempotentPerRun() {
+        RunPermits permits = new RunPermits();
+        assertTrue(permits.tryAcquire(1L, 10L, 1));
+        // the same run again (e.g. redelivered) keeps its permit instead of taking a second one
+        assertTrue(permits.tryAcquire(1L, 10L, 1));
+        assertFalse(permits.tryAcquire(1L, 11L, 1));
+        assertTrue(permits.tryAcquire(2L, 20L, 1), "limits are per workflow");
+
+        permits.requestCancel(10L);
+        assertTrue(permits.isCancelRequested(10L));
+        permits.release(1L, 10L);
+        permits.release(1L, 10L);
+        assertFalse(permits.isCancelRequested(10L));
+        assertEquals(0, permits.active(1L));
+        assertTrue(permits.tryAcquire(1L, 11L, 1));
+    }
+}
@@ -0,0 +1,137 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.EmbeddedDbTestConfig;
+import com.flow.workflow.model.RunQueueItem;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.repository.RunQueueRepository;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/** Two workers (as on two instances) claiming from one queue on an embedded database. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:run-queue;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedDbTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RunQueueServiceTest {
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Autowired
+    private RunQueueRepository queueRepo;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final WorkflowExecutionService executionService = mock(WorkflowExecutionService.class);
+
+    @AfterEach
+    void cleanUp() {
+        queueRepo.deleteAll();
+        runRepo.deleteAll();
+        workflowRepo.deleteAll();
+    }
+
+    @Test
+    void workersClaimDisjointBatches() {
+        RunQueueService a = worker("a");
+        RunQueueService b = worker("b");
+        a.enqueueAll(List.of(1L, 1L, 2L, 3L, 4L), "SCHEDULE");
+
+        List<RunQueueItem> first = a.claim(3);
+        List<RunQueueItem> second = b.claim(10);
+        assertEquals(3, first.size());
+        assertEquals(2, second.size());
+        Set<Long> ids = new HashSet<>();
+        first.forEach(i -> ids.add(i.getId()));
+        second.forEach(i -> ids.add(i.getId()));
+        assertEquals(5, ids.size());
+        // claimed rows stay invisible while the claims are fresh
+        assertTrue(a.claim(10).isEmpty());
+    }
+
+    @Test
+    void abandonedClaimsAreRedeliveredThenGivenUp() {
+        Workflow w = new Workflow();
+        w.setWorkflowName("queued");
+        w = workflowRepo.save(w);
+        WorkflowRun run = runRepo.save(WorkflowRun.builder().workflow(w).status(WorkflowStatus.QUEUED)
+                .startedAt(LocalDateTime.now()).build());
+        when(executionService.queueRun(w.getId())).thenReturn(run);
+
+        RunQueueService a = worker("a");
+        RunQueueService b = worker("b");
+        a.enqueueRun(w.getId(), "API");
+        assertEquals(1, a.claim(10).size());
+        // a starts the run, then dies without completing the queue row
+        run.setStatus(WorkflowStatus.RUNNING);
+        runRepo.save(run);
+        assertTrue(b.claim(10).isEmpty());
+
+        at(b, 61);
+        List<RunQueueItem> redelivered = b.claim(10);
+        assertEquals(1, redelivered.size());
+        assertEquals(2, redelivered.get(0).getAttempts());
+        assertEquals(WorkflowStatus.QUEUED, runRepo.findById(run.getId()).orElseThrow().getStatus());
+
+        at(b, 122);
+        assertEquals(1, b.claim(10).size());
+        at(b, 183);
+        assertTrue(b.claim(10).isEmpty());
+        verify(executionService).cancelQueuedRun(eq(run.getId()), anyString());
+        assertEquals(0, queueRepo.count());
+        assertEquals(1L, b.metrics().get("abandoned"));
+    }
+
+    private RunQueueService worker(String id) {
+        RunQueueService q = new RunQueueService();
+        ReflectionTestUtils.setField(q, "queueRepo", queueRepo);
+        ReflectionTestUtils.setField(q, "runRepo", runRepo);
+        ReflectionTestUtils.setField(q, "executionService", executionService);
+        ReflectionTestUtils.setField(q, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(q, "claimBatchSize", 50);
+        ReflectionTestUtils.setField(q, "visibilityTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(q, "maxAttempts", 3);
+        ReflectionTestUtils.setField(q, "maxDepth", 1000L);
+        ReflectionTestUtils.setField(q, "workerId", id);
+        at(q, 0);
+        ReflectionTestUtils.invokeMethod(q, "init");
+        return q;
+    }
+
+    private static void at(RunQueueService q, long seconds) {
+        ReflectionTestUtils.setField(q, "clock", Clock.fixed(T0.plusSeconds(seconds), ZoneId.of("UTC")));
+    }
+}
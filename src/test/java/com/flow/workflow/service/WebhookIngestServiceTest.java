@@ -0,0 +1,85 @@
+package com.flow.workflow.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WebhookIngestServiceTest {
+
+    private final WebhookIngestService ingest = new WebhookIngestService();
+    private final RunSubmissionService submission = mock(RunSubmissionService.class);
+    private final List<List<Long>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(submission.submitAll(anyList(), eq("WEBHOOK"))).thenAnswer(inv -> {
+            List<Long> batch = new ArrayList<>(inv.getArgument(0));
+            batches.add(batch);
+            return batch.size();
+        });
+        ReflectionTestUtils.setField(ingest, "runSubmissionService", submission);
+        ReflectionTestUtils.setField(ingest, "bufferCapacity", 3);
+        ReflectionTestUtils.setField(ingest, "batchSize", 2);
+        ReflectionTestUtils.setField(ingest, "retryAfterSeconds", 2L);
+        ReflectionTestUtils.setField(ingest, "idempotencyTtlMs", 60_000L);
+        ReflectionTestUtils.setField(ingest, "idempotencyMaxKeys", 100);
+        ReflectionTestUtils.setField(ingest, "coalesceWindowMs", 0L);
+        ReflectionTestUtils.invokeMethod(ingest, "init");
+    }
+
+    @Test
+    void fullBufferPushesBackAndFlushDrainsInBatches() {
+        for (long id = 1; id <= 3; id++) assertEquals(WebhookIngestService.Outcome.ACCEPTED, ingest.accept(id, "k"));
+        RunQueueFullException full = assertThrows(RunQueueFullException.class, () -> ingest.accept(4L, "k"));
+        assertEquals(2, full.getRetryAfterSeconds());
+
+        ingest.flush();
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L)), batches);
+        // the rejected trigger was not remembered, so its retry goes through
+        assertEquals(WebhookIngestService.Outcome.ACCEPTED, ingest.accept(4L, "k"));
+    }
+
+    @Test
+    void refusedBatchIsRetriedBeforeDrainingMore() {
+        ingest.accept(1L, null);
+        ingest.accept(2L, null);
+        ingest.accept(3L, null);
+        reset(submission);
+        when(submission.submitAll(anyList(), eq("WEBHOOK")))
+                .thenThrow(new RunQueueFullException("full", 5))
+                .thenAnswer(inv -> {
+                    batches.add(new ArrayList<>(inv.getArgument(0)));
+                    return 0;
+                });
+
+        ingest.flush();
+        assertTrue(batches.isEmpty());
+        ingest.flush();
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L)), batches);
+    }
+
+    @Test
+    void idempotencyKeysAndCoalescingDropRepeats() {
+        assertEquals(WebhookIngestService.Outcome.ACCEPTED, ingest.accept(1L, "evt-1"));
+        assertEquals(WebhookIngestService.Outcome.DUPLICATE, ingest.accept(1L, "evt-1"));
+        // keys are per workflow
+        assertEquals(WebhookIngestService.Outcome.ACCEPTED, ingest.accept(2L, "evt-1"));
+
+        ReflectionTestUtils.setField(ingest, "coalesceWindowMs", 60_000L);
+        assertEquals(WebhookIngestService.Outcome.ACCEPTED, ingest.accept(3L, null));
+        assertEquals(WebhookIngestService.Outcome.COALESCED, ingest.accept(3L, "evt-2"));
+        // a coalesced trigger counts as handled: its key stays seen
+        ReflectionTestUtils.setField(ingest, "coalesceWindowMs", 0L);
+        assertEquals(WebhookIngestService.Outcome.DUPLICATE, ingest.accept(3L, "evt-2"));
+        ingest.flush();
+        assertEquals(WebhookIngestService.Outcome.ACCEPTED, ingest.accept(3L, "evt-3"));
+    }
+}
@@ -0,0 +1,227 @@
+package com.flow.workflow.service;
+
+import com.flow.workflow.EmbeddedDbTestConfig;
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.executor.NodeOutcome;
+import com.flow.workflow.executor.NodeResult;
+import com.flow.workflow.executor.RunContext;
+import com.flow.workflow.model.ExecutionMode;
+import com.flow.workflow.model.Node;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.model.WorkflowRun;
+import com.flow.workflow.model.WorkflowRunLog;
+import com.flow.workflow.model.WorkflowStatus;
+import com.flow.workflow.plan.PlanStep;
+import com.flow.workflow.plan.WorkflowDefinitionCache;
+import com.flow.workflow.plan.WorkflowPlanCompiler;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.repository.WorkflowRunLogRepository;
+import com.flow.workflow.repository.WorkflowRunRepository;
+import com.flow.workflow.util.ConfigMasker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/** A linear run suspended by a DELAY node and resumed, on an embedded database. */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:run-resume;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(EmbeddedDbTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class WorkflowExecutionServiceImplTest {
+
+    @Autowired
+    private WorkflowRepository workflowRepo;
+
+    @Autowired
+    private WorkflowRunRepository runRepo;
+
+    @Autowired
+    private WorkflowRunLogRepository logRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final NodeExecutorRegistry registry = mock(NodeExecutorRegistry.class);
+    private final WorkflowExecutionServiceImpl service = new WorkflowExecutionServiceImpl();
+    // node id -> how often it executed / the node 1 result it saw
+    private final Map<Long, Integer> executions = new ConcurrentHashMap<>();
+    private final Map<Long, NodeResult> seenUpstream = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> nodeIds = new ConcurrentHashMap<>();
+    private final RunLogWriter logWriter = new RunLogWriter();
+    private final RunPermits permits = spy(new RunPermits());
+
+    @BeforeEach
+    void setUp() {
+        when(registry.execute(any(PlanStep.class), any(RunContext.class))).thenAnswer(inv -> {
+            PlanStep step = inv.getArgument(0);
+            RunContext ctx = inv.getArgument(1);
+            executions.merge(step.getNodeId(), 1, Integer::sum);
+            NodeResult first = ctx.byOrderIndex(1);
+            if (first != null) seenUpstream.put(step.getNodeId(), first);
+            return NodeOutcome.success("{\"order\": " + step.getOrderIndex() + "}");
+        });
+
+        WorkflowPlanCompiler compiler = new WorkflowPlanCompiler();
+        ReflectionTestUtils.setField(compiler, "executorRegistry", registry);
+        WorkflowDefinitionCache definitions = new WorkflowDefinitionCache();
+        ReflectionTestUtils.setField(definitions, "workflowRepo", workflowRepo);
+        ReflectionTestUtils.setField(definitions, "compiler", compiler);
+        ReflectionTestUtils.setField(definitions, "masker", new ConfigMasker("url,token"));
+        ReflectionTestUtils.setField(logWriter, "logRepo", logRepo);
+
+        ReflectionTestUtils.setField(service, "workflowRepo", workflowRepo);
+        ReflectionTestUtils.setField(service, "runRepo", runRepo);
+        ReflectionTestUtils.setField(service, "logRepo", logRepo);
+        ReflectionTestUtils.setField(service, "executorRegistry", registry);
+        ReflectionTestUtils.setField(service, "definitions", definitions);
+        ReflectionTestUtils.setField(service, "logWriter", logWriter);
+        ReflectionTestUtils.setField(service, "statsService", mock(RunStatsService.class));
+        ReflectionTestUtils.setField(service, "permits", permits);
+        RunHeartbeatService heartbeats = new RunHeartbeatService();
+        ReflectionTestUtils.setField(heartbeats, "runRepo", runRepo);
+        ReflectionTestUtils.setField(heartbeats, "logRepo", logRepo);
+        ReflectionTestUtils.setField(heartbeats, "permits", permits);
+        ReflectionTestUtils.setField(heartbeats, "transactionManager", transactionManager);
+        ReflectionTestUtils.invokeMethod(heartbeats, "init");
+        ReflectionTestUtils.setField(service, "heartbeats", heartbeats);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(service, "transactionPerStep", true);
+        ReflectionTestUtils.invokeMethod(service, "initTransactionTemplate");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        logRepo.deleteAll();
+        runRepo.deleteAll();
+        workflowRepo.deleteAll();
+    }
+
+    @Test
+    void delaySuspendsTheRunAtTheNextNodeIndex() {
+        WorkflowRun run = service.executeWorkflow(delayedWorkflow());
+
+        WorkflowRun stored = runRepo.findById(run.getId()).orElseThrow();
+        assertEquals(WorkflowStatus.WAITING, stored.getStatus());
+        assertEquals(2, stored.getResumeNodeIndex());
+        assertNotNull(stored.getResumeAt());
+        assertNull(stored.getEndedAt());
+        assertEquals(Map.of(nodeIds.get(1), 1), executions);
+        assertEquals(2, logRepo.findByRun_IdOrderByStartedAtAsc(run.getId()).size());
+    }
+
+    @Test
+    void resumeContinuesAtTheStoredIndexWithTheContextRebuiltFromLogs() {
+        WorkflowRun run = service.executeWorkflow(delayedWorkflow());
+
+        WorkflowRun resumed = service.resumeRun(run.getId());
+
+        assertEquals(WorkflowStatus.SUCCESS, resumed.getStatus());
+        WorkflowRun stored = runRepo.findById(run.getId()).orElseThrow();
+        assertNull(stored.getResumeNodeIndex());
+        assertNotNull(stored.getEndedAt());
+        // the first node is not executed again; the third reads its output back from the log row
+        assertEquals(Map.of(nodeIds.get(1), 1, nodeIds.get(3), 1), executions);
+        NodeResult upstream = seenUpstream.get(nodeIds.get(3));
+        assertNotNull(upstream);
+        assertEquals(1, upstream.getJson().get("order").asInt());
+        List<WorkflowRunLog> logs = logRepo.findByRun_IdOrderByStartedAtAsc(run.getId());
+        assertEquals(3, logs.size());
+        assertTrue(logs.stream().allMatch(l -> l.getStatus() == WorkflowStatus.SUCCESS));
+    }
+
+    @Test
+    void onlyOneClaimOfAWaitingRunWins() {
+        WorkflowRun run = service.executeWorkflow(delayedWorkflow());
+
+        // another instance's timer got there first
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        assertEquals(Integer.valueOf(1), tx.execute(status -> runRepo.claimWaitingRun(run.getId())));
+        assertEquals(Integer.valueOf(0), tx.execute(status -> runRepo.claimWaitingRun(run.getId())));
+
+        WorkflowRun second = service.resumeRun(run.getId());
+        assertEquals(WorkflowStatus.RUNNING, second.getStatus());
+        assertEquals(Map.of(nodeIds.get(1), 1), executions);
+        assertEquals(2, logRepo.findByRun_IdOrderByStartedAtAsc(run.getId()).size());
+    }
+
+    @Test
+    void aFailedFinishMarksTheRunFailedAndReleasesItsPermit() {
+        Long workflowId = delayedWorkflow();
+        // the node logs cannot be written: the finish transaction fails
+        WorkflowRunLogRepository broken = mock(WorkflowRunLogRepository.class);
+        when(broken.saveAll(any())).thenThrow(new IllegalStateException("connection reset"));
+        ReflectionTestUtils.setField(logWriter, "logRepo", broken);
+
+        WorkflowRun run = service.executeWorkflow(workflowId);
+
+        assertEquals(WorkflowStatus.FAILED, run.getStatus());
+        WorkflowRun stored = runRepo.findById(run.getId()).orElseThrow();
+        assertEquals(WorkflowStatus.FAILED, stored.getStatus());
+        assertNotNull(stored.getEndedAt());
+        assertNull(stored.getResumeAt());
+        List<WorkflowRunLog> logs = logRepo.findByRun_IdOrderByStartedAtAsc(run.getId());
+        assertEquals(1, logs.size());
+        assertTrue(logs.get(0).getError().contains("connection reset"));
+        verify(permits).release(workflowId, run.getId());
+    }
+
+    @Test
+    void executingAQueuedRunKeepsItsStartedAtAsTheHistoryKey() throws Exception {
+        WorkflowRun queued = service.queueRun(delayedWorkflow());
+        LocalDateTime enqueuedAt = runRepo.findById(queued.getId()).orElseThrow().getStartedAt();
+        Thread.sleep(20);
+
+        service.executeRun(queued.getId());
+
+        WorkflowRun stored = runRepo.findById(queued.getId()).orElseThrow();
+        assertEquals(enqueuedAt, stored.getStartedAt());
+        assertNotNull(stored.getExecutionStartedAt());
+        assertTrue(stored.getExecutionStartedAt().isAfter(enqueuedAt));
+    }
+
+    /** HTTP (1) -> DELAY 60s (2) -> HTTP (3). */
+    private Long delayedWorkflow() {
+        Workflow w = new Workflow();
+        w.setWorkflowName("delayed");
+        w.setStatus(WorkflowStatus.PUBLISHED);
+        w.setExecutionMode(ExecutionMode.LINEAR);
+        List<Node> nodes = new ArrayList<>();
+        nodes.add(node(w, "HTTP", "{\"url\":\"http://localhost/1\"}", 1));
+        nodes.add(node(w, "DELAY", "{\"seconds\":60}", 2));
+        nodes.add(node(w, "HTTP", "{\"url\":\"http://localhost/3\"}", 3));
+        w.setNodes(nodes);
+        Workflow saved = workflowRepo.save(w);
+        saved.getNodes().forEach(n -> nodeIds.put(n.getOrderIndex(), n.getId()));
+        return saved.getId();
+    }
+
+    private static Node node(Workflow w, String type, String config, int orderIndex) {
+        Node n = new Node();
+        n.setWorkflow(w);
+        n.setType(type);
+        n.setConfig(config);
+        n.setOrderIndex(orderIndex);
+        return n;
+    }
+}
@@ -0,0 +1,99 @@
+package com.flow.workflow.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.flow.workflow.dto.WorkflowImportResult;
+import com.flow.workflow.executor.NodeExecutorRegistry;
+import com.flow.workflow.model.Workflow;
+import com.flow.workflow.plan.WorkflowPlanCompiler;
+import com.flow.workflow.repository.WorkflowRepository;
+import com.flow.workflow.util.ConfigMasker;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class WorkflowTransferServiceTest {
+
+    private final WorkflowTransferService service = new WorkflowTransferService();
+    private final WorkflowRepository workflowRepo = mock(WorkflowRepository.class);
+    private final List<Integer> chunkSizes = new ArrayList<>();
+    private final List<Workflow> saved = new ArrayList<>();
+    private final ConfigMasker masker = new ConfigMasker("url,token");
+
+    @BeforeEach
+    void setUp() {
+        WorkflowPlanCompiler compiler = new WorkflowPlanCompiler();
+        ReflectionTestUtils.setField(compiler, "executorRegistry", mock(NodeExecutorRegistry.class));
+        AtomicLong ids = new AtomicLong(100);
+        when(workflowRepo.saveAll(anyList())).thenAnswer(inv -> {
+            List<Workflow> batch = inv.getArgument(0);
+            chunkSizes.add(batch.size());
+            saved.addAll(batch);
+            batch.forEach(w -> w.setId(ids.incrementAndGet()));
+            return batch;
+        });
+        ReflectionTestUtils.setField(service, "workflowRepo", workflowRepo);
+        ReflectionTestUtils.setField(service, "compiler", compiler);
+        ReflectionTestUtils.setField(service, "masker", masker);
+        ReflectionTestUtils.setField(service, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.setField(service, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.invokeMethod(service, "initTransactionTemplate");
+    }
+
+    @Test
+    void validItemsAreInsertedInChunksAndInvalidOnesReported() throws Exception {
+        String body = "["
+                + "{\"name\":\"a\",\"nodes\":[{\"type\":\"DELAY\",\"config\":\"{\\\"seconds\\\":1}\",\"orderIndex\":1}]},"
+                + "{\"name\":\"\"},"
+                + "{\"name\":\"b\",\"executionMode\":\"DAG\",\"nodes\":[{\"type\":\"DELAY\",\"config\":\"{\\\"seconds\\\":1}\","
+                + "\"orderIndex\":1,\"dependsOn\":[2]}]},"
+                + "{\"name\":\"c\",\"executionMode\":\"NOPE\"},"
+                + "{\"name\":\"d\"},"
+                + "{\"name\":\"e\"}"
+                + "]";
+
+        WorkflowImportResult result = service.importWorkflows(
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, result.getCreated());
+        assertEquals(3, result.getInvalid());
+        assertEquals(List.of(2, 1), chunkSizes);
+        assertEquals("CREATED", result.getItems().get(0).getStatus());
+        assertEquals(101L, result.getItems().get(0).getId());
+        assertEquals("name is required", result.getItems().get(1).getError());
+        assertTrue(result.getItems().get(2).getError().contains("unknown node 2"));
+        assertTrue(result.getItems().get(3).getError().startsWith("Unreadable workflow"));
+        assertEquals("e", result.getItems().get(5).getName());
+        assertEquals(103L, result.getItems().get(5).getId());
+        // node configs are masked once on the way in, for the list view
+        assertEquals("{\"seconds\":1}", saved.get(0).getNodes().get(0).getMaskedConfig());
+        assertEquals(masker.version(), saved.get(0).getNodes().get(0).getMaskedWith());
+    }
+
+    @Test
+    void aBrokenOrOversizedBodyCreatesNothing() {
+        // the first chunk (2 items) is complete before the stream breaks
+        String broken = "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"},{\"name\":";
+        assertThrows(JsonProcessingException.class, () -> service.importWorkflows(
+                new ByteArrayInputStream(broken.getBytes(StandardCharsets.UTF_8))));
+
+        ReflectionTestUtils.setField(service, "maxItems", 2);
+        String tooMany = "[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]";
+        assertThrows(IllegalArgumentException.class, () -> service.importWorkflows(
+                new ByteArrayInputStream(tooMany.getBytes(StandardCharsets.UTF_8))));
+
+        verify(workflowRepo, never()).saveAll(anyList());
+    }
+}
@@ -0,0 +1,83 @@
+package com.flow.workflow.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void identicalOutputsAreStoredOnceAndReadBackInFull() throws Exception {
+        BlobStore store = new BlobStore(true, dir.toString());
+        String payload = "{\"temp\": 21, \"pad\": \"" + "x".repeat(100_000) + "\"}";
+
+        String ref = store.put(payload);
+        assertEquals(ref, store.put(payload));
+        assertTrue(ref.startsWith(BlobStore.REF_PREFIX));
+        assertEquals(payload, store.read(ref));
+
+        Path file = store.resolve(ref);
+        assertTrue(Files.size(file) < 2_000, "compressed to " + Files.size(file));
+        try (var files = Files.walk(dir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void malformedRefsDoNotResolveAndSweepKeepsLiveBlobs() throws Exception {
+        BlobStore store = new BlobStore(true, dir.toString());
+        String live = store.put("live output");
+        String dead = store.put("dead output");
+
+        assertNull(store.resolve("blob:../../etc/passwd"));
+        assertNull(store.resolve("spill-ref.body"));
+
+        List<List<String>> lookups = new ArrayList<>();
+        Function<List<String>, Collection<String>> db = refs -> {
+            lookups.add(refs);
+            return refs.stream().filter(live::equals).toList();
+        };
+        assertEquals(0, store.sweep(Instant.now().minusSeconds(60), 1, db));
+        assertTrue(lookups.isEmpty());
+        assertEquals(1, store.sweep(Instant.now().plusSeconds(1), 1, db));
+        // one candidate per lookup, never the whole reference set
+        assertEquals(2, lookups.size());
+        assertNotNull(store.resolve(live));
+        assertNull(store.resolve(dead));
+    }
+
+    @Test
+    void aBlobReReferencedDuringTheSweepIsKept() throws Exception {
+        BlobStore store = new BlobStore(true, dir.toString());
+        String ref = store.put("shared output");
+        Files.setLastModifiedTime(store.resolve(ref), FileTime.from(Instant.now().minusSeconds(7200)));
+
+        // a run stores the same output after the sweep listed the blob as old and unreferenced
+        int deleted = store.sweep(Instant.now().minusSeconds(3600), 10, refs -> {
+            try {
+                assertEquals(ref, store.put("shared output"));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return List.of();
+        });
+
+        assertEquals(0, deleted);
+        assertEquals("shared output", store.read(ref));
+    }
+}
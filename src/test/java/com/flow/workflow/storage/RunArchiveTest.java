@@ -0,0 +1,49 @@
+package com.flow.workflow.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void segmentsAreQueryableByTimeRangeAndRunId() throws Exception {
+        RunArchive archive = new RunArchive(dir.toString());
+        LocalDateTime t0 = LocalDateTime.of(2024, 1, 1, 0, 0);
+        archive.writeSegment(1L, t0, t0.plusHours(1), List.of(run(10L, t0), run(11L, t0.plusHours(1))));
+        archive.writeSegment(1L, t0.plusDays(1), t0.plusDays(1), List.of(run(12L, t0.plusDays(1))));
+
+        assertEquals(3, count(archive, null, null, null));
+        assertEquals(1, count(archive, t0.plusMinutes(30), t0.plusHours(2), null));
+        assertEquals(1, count(archive, null, null, 12L));
+        assertEquals(0, count(archive, t0.plusDays(5), null, null));
+    }
+
+    private static int count(RunArchive archive, LocalDateTime from, LocalDateTime to, Long runId) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int n = archive.query(1L, from, to, runId, out);
+        assertEquals(n, out.toString(StandardCharsets.UTF_8).lines().count());
+        return n;
+    }
+
+    private static Map<String, Object> run(Long id, LocalDateTime startedAt) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", id);
+        m.put("workflowId", 1L);
+        m.put("startedAt", startedAt);
+        m.put("logs", List.of());
+        return m;
+    }
+}
@@ -0,0 +1,47 @@
+package com.flow.workflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConfigMaskerTest {
+
+    private final ConfigMasker masker = new ConfigMasker("webhookUrl, token, auth");
+
+    @Test
+    void masksSensitiveKeysAtAnyDepthInOnePass() {
+        String masked = masker.mask("{\"webhookUrl\":\"https://hooks.example.com/T000/B000/abcdefgh12345678\","
+                + "\"headers\":{\"token\":\"short\"},\"items\":[{\"auth\":{\"user\":\"x\"}}],\"message\":\"hi\",\"n\":3}");
+
+        assertEquals("{\"webhookUrl\":\"••••••••12345678\",\"headers\":{\"token\":\"••••••••\"},"
+                + "\"items\":[{\"auth\":\"••••••••\"}],\"message\":\"hi\",\"n\":3}", masked);
+    }
+
+    @Test
+    void invalidJsonComesBackAsAMaskedJsonString() {
+        assertEquals("\"call https://•••••••• now\"", masker.mask("call https://example.com/secret now"));
+        assertEquals("\"{\\\"a\\\":1} trailing\"", masker.reveal("{\"a\":1} trailing"));
+        assertNull(masker.mask("  "));
+    }
+
+    @Test
+    void aStoredMaskIsUsedOnlyWhenMadeWithTheSameKeys() {
+        String config = "{\"token\":\"abc\",\"url\":\"https://example.com\"}";
+        ConfigMasker before = new ConfigMasker("token");
+        String stored = before.mask(config);
+
+        assertEquals(before.version(), new ConfigMasker(" token ,").version());
+        assertEquals(stored, before.masked(config, stored, before.version()));
+        // url became sensitive since the copy was stored: it is masked again
+        ConfigMasker after = new ConfigMasker("token,url");
+        assertNotEquals(before.version(), after.version());
+        assertEquals("{\"token\":\"••••••••\",\"url\":\"••••••••mple.com\"}",
+                after.masked(config, stored, before.version()));
+        assertEquals(after.mask(config), after.masked(config, null, null));
+    }
+
+    @Test
+    void revealKeepsValues() {
+        assertEquals("{\"token\":\"abc\"}", masker.reveal("{ \"token\" : \"abc\" }"));
+    }
+}
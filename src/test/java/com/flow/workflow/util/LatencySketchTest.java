@@ -0,0 +1,37 @@
+package com.flow.workflow.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencySketchTest {
+
+    @Test
+    void quantilesStayWithinRelativeAccuracyAcrossSerialization() {
+        LatencySketch sketch = new LatencySketch();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            // long-tailed latencies between 1ms and ~60s
+            sketch.add((long) Math.exp(random.nextDouble() * 11));
+        }
+        sketch.add(0);
+
+        byte[] bytes = sketch.toBytes();
+        assertTrue(bytes.length < 4096, "sketch is " + bytes.length + " bytes");
+        LatencySketch restored = LatencySketch.fromBytes(bytes);
+        assertEquals(100_001, restored.getCount());
+        assertEquals(sketch.quantile(0.99), restored.quantile(0.99));
+        long p50 = restored.quantile(0.5);
+        double exactP50 = Math.exp(5.5);
+        assertTrue(Math.abs(p50 - exactP50) / exactP50 < 0.05, "p50 " + p50);
+        assertEquals(0L, restored.quantile(0.0));
+    }
+
+    @Test
+    void emptySketchHasNoQuantiles() {
+        assertNull(LatencySketch.fromBytes(null).quantile(0.5));
+        assertNull(LatencySketch.fromBytes(new LatencySketch().toBytes()).quantile(0.5));
+    }
+}